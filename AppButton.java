@@ -3,7 +3,8 @@ import java.awt.*;
 import java.awt.event.*;
 
 /**
- * Class that represents a functional button. Once the button is clicked, the function associated with the button will then be executed
+ * Class that represents a functional button. Once the button is clicked, the function associated with the button will then be executed.
+ * A disabled button is drawn with grayed out text and ignores clicks
  */
 public class AppButton extends JComponent implements MouseListener {
 
@@ -12,8 +13,9 @@ public class AppButton extends JComponent implements MouseListener {
   protected int height;     // Height of the button
   protected Runnable func;  // Function to execute when the button is clicked
   protected Color color;    // Background color of the button
-  protected Color defaultColor = new Color(255, 255, 255);  // Default color value for the button background
-  protected Color pressedColor = new Color(150, 150, 150);  // Default color to use while the button is pressed
+  protected Color defaultColor = Palette.BACKGROUND;  // Default color value for the button background
+  protected Color pressedColor = Palette.PRESSED;  // Default color to use while the button is pressed
+  protected TextFitCache textFit = new TextFitCache(1);  // Fitted font of the button text for the current width
 
   /**
    * Creates a new button that executes a function when pressed
@@ -68,7 +70,7 @@ public class AppButton extends JComponent implements MouseListener {
    * @param MouseEvent e Current mouse event
    */
   public void mousePressed(MouseEvent e) {
-    if (containsButton(e.getX(), e.getY())) {
+    if (isEnabled() && containsButton(e.getX(), e.getY())) {
       this.color = this.pressedColor;
       repaint();
     }
@@ -88,7 +90,7 @@ public class AppButton extends JComponent implements MouseListener {
    * @param MouseEvent e Current mouse event
    */
   public void mouseClicked(MouseEvent e) {
-    if (containsButton(e.getX(), e.getY()))
+    if (isEnabled() && containsButton(e.getX(), e.getY()))
       this.func.run();
   }
 
@@ -102,17 +104,14 @@ public class AppButton extends JComponent implements MouseListener {
   public void paintComponent(Graphics g) {
     g.setColor(this.color);
     g.fillRect(0, 0, this.width, this.height);
-    g.setColor(new Color(0, 0, 0 ));
+    g.setColor(Palette.BORDER);
     g.drawRect(0, 0, this.width-1, this.height);
-    Font font = g.getFont();
-    FontMetrics metrics = g.getFontMetrics(font);
-    while (metrics.stringWidth(this.name) > this.width) {
-      font = new Font(font.getName(), font.getStyle(), (int)(font.getSize()*((float)3/4)));
-      metrics = g.getFontMetrics(font);
-    }
-    g.setFont( font );
-    int centerX = 0 + this.width/2 - metrics.stringWidth( this.name )/2;
-    int centerY = 0 + ((this.height - metrics.getHeight())/2) + metrics.getAscent();
+    TextFitCache.FittedText fitted = this.textFit.fit(g, this.name, this.width);
+    g.setFont(fitted.getFont());
+    if (!isEnabled())
+      g.setColor(Palette.DISABLED);
+    int centerX = 0 + this.width/2 - fitted.getWidth()/2;
+    int centerY = 0 + fitted.getBaseline(this.height);
     g.drawString(this.name, centerX, centerY);
   }
 
@@ -0,0 +1,402 @@
+import java.awt.Dimension;
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Class that writes a completion report of an image directory and its save directory without opening the GUI.
+ * The directories are counted in parallel through the completion index, so only the counts of each
+ * directory are kept in memory, and the report is written one directory at a time as JSON or CSV.
+ * With "--validate", every save file is checked against the dimensions of its image instead, which are read
+ * from the image's header without decoding it, and only the save files with problems are reported.
+ * Usage: audit [--images DIR] [--saves DIR] [--format json|csv] [--out FILE] [--parallelism N] [--validate]
+ */
+public class AuditReport {
+
+  private Path imgDir;              // Outermost image directory to report on
+  private Path saveDir;             // Outermost save directory matching the image directory
+  private boolean json;             // Whether the report is written as JSON (true) or CSV (false)
+  private int parallelism;          // Number of threads used to count directories
+  private PrintWriter out;          // Writer that the report is written to
+  private boolean firstRow;         // Whether or not the next directory is the first one written
+  private int checked;              // Number of save files checked so far by a validation
+  private int invalid;              // Number of save files found with problems so far by a validation
+  private static final String USAGE = "Usage: audit [--images DIR] [--saves DIR] [--format json|csv] [--out FILE] [--parallelism N] [--validate]";
+  public static final double EDGE_TOLERANCE = 1;  // Distance in pixels a saved rectangle may reach past the edge of its image
+  public static final int INVALID_STATUS = 3;     // Exit status of a validation that found save files with problems
+  public static final int PENDING_PER_THREAD = 16;  // Number of save file checks kept in flight for each thread during a validation
+
+  /**
+   * Initializes a report of the given directories
+   * @param  Path        img           Outermost image directory
+   * @param  Path        save          Outermost save directory
+   * @param  boolean     asJson        Whether to write JSON (true) or CSV (false)
+   * @param  int         threads       Number of threads used to count directories
+   * @param  PrintWriter writer        Writer to write the report to
+   */
+  public AuditReport(Path img, Path save, boolean asJson, int threads, PrintWriter writer) {
+    this.imgDir = img;
+    this.saveDir = save;
+    this.json = asJson;
+    this.parallelism = threads;
+    this.out = writer;
+    this.firstRow = true;
+    this.checked = 0;
+    this.invalid = 0;
+  }
+
+  /**
+   * Parses the command line arguments, writes the report and exits with a non-zero status on failure,
+   * or with the invalid status if a validation found any save files with problems
+   * @param String[] args Command line arguments, starting with "audit"
+   */
+  public static void run(String[] args) {
+    Path workDir = Main.findWorkDir();
+    Path img = null;
+    Path save = null;
+    String format = "json";
+    String outFile = null;
+    int threads = Integer.getInteger(CompletionIndex.PARALLELISM_PROPERTY, Runtime.getRuntime().availableProcessors());
+    boolean validate = false;
+
+    try {
+      for (int i=1; i < args.length; i++) {
+        if (args[i].equals("--images"))
+          img = Paths.get(args[++i]);
+        else if (args[i].equals("--saves"))
+          save = Paths.get(args[++i]);
+        else if (args[i].equals("--format"))
+          format = args[++i];
+        else if (args[i].equals("--out"))
+          outFile = args[++i];
+        else if (args[i].equals("--parallelism"))
+          threads = Integer.parseInt(args[++i]);
+        else if (args[i].equals("--validate"))
+          validate = true;
+        else
+          throw new IllegalArgumentException("Unknown argument " + args[i]);
+      }
+      if (!format.equals("json") && !format.equals("csv"))
+        throw new IllegalArgumentException("Unknown format " + format);
+    } catch (Exception e) {
+      System.err.println("Error when reading audit arguments! " + e);
+      System.err.println(AuditReport.USAGE);
+      System.exit(2);
+    }
+
+    // Defaults to the same folders the GUI uses
+    if (img == null)
+      img = workDir.resolve("images");
+    if (save == null)
+      save = img.resolveSibling("saves");
+    img = img.toAbsolutePath().normalize();
+    save = save.toAbsolutePath().normalize();
+    if (!Files.isDirectory(img)) {
+      System.err.println("Error when running audit! No image directory at " + img);
+      System.exit(1);
+    }
+
+    int invalid = 0;
+    try (PrintWriter writer = outFile == null ?
+        new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out))) :
+        new PrintWriter(Files.newBufferedWriter(Paths.get(outFile)))) {
+      AuditReport report = new AuditReport(img, save, format.equals("json"), threads, writer);
+      if (validate)
+        invalid = report.validate();
+      else
+        report.write();
+      if (writer.checkError())
+        throw new IOException("Could not write the report");
+    } catch (Exception e) {
+      System.err.println("Error when running audit! " + e);
+      System.exit(1);
+    }
+    if (invalid > 0)
+      System.exit(AuditReport.INVALID_STATUS);
+  }
+
+  /**
+   * Counts every directory and writes the report. The completion index is updated and saved along the way,
+   * so later audits and the GUI only rescan directories that have changed since
+   */
+  public void write() {
+    CompletionIndex index = new CompletionIndex(this.imgDir, this.saveDir, this.parallelism);
+    index.load();
+    // Brings every entry up to date in parallel, after which the report is written from the index alone
+    index.getCompletion(this.imgDir);
+
+    if (this.json) {
+      this.out.println("{");
+      this.out.println("  \"images\": " + jsonString(this.imgDir.toString()) + ",");
+      this.out.println("  \"saves\": " + jsonString(this.saveDir.toString()) + ",");
+      this.out.print("  \"directories\": [");
+    } else {
+      this.out.println("directory,completed,total,direct_completed,direct_total");
+    }
+
+    CompletionData total = writeDir(index, this.imgDir);
+
+    if (this.json) {
+      this.out.println();
+      this.out.println("  ],");
+      this.out.println("  \"completed\": " + total.getCompleteNum() + ",");
+      this.out.println("  \"total\": " + total.getFileNum());
+      this.out.println("}");
+    }
+    this.out.flush();
+    index.save();
+  }
+
+  /**
+   * Writes the directory after all of its subdirectories. Directories without any images are left out,
+   * except for the image directory itself
+   * @param  CompletionIndex index         Up to date completion index
+   * @param  Path            dirPath       Directory to write
+   * @return                 Recursive completion data of the directory
+   */
+  public CompletionData writeDir(CompletionIndex index, Path dirPath) {
+    DirCompletionEntry entry = index.getIndexedEntry(dirPath);
+    if (entry == null)
+      return new CompletionData(0, 0);
+
+    ArrayList<String> subdirs = new ArrayList<String>(entry.getSubdirs());
+    Collections.sort(subdirs);
+    CompletionData data = new CompletionData(entry.getCompleteNum(), entry.getFileNum());
+    for (String subdir : subdirs)
+      data = data.merge(writeDir(index, dirPath.resolve(subdir)));
+
+    if (data.getFileNum() > 0 || dirPath.equals(this.imgDir))
+      writeRow(dirPath, data, entry);
+    return data;
+  }
+
+  /**
+   * Writes a single directory to the report
+   * @param Path               dirPath Directory to write
+   * @param CompletionData     data    Recursive completion data of the directory
+   * @param DirCompletionEntry entry   Index entry with the counts directly in the directory
+   */
+  public void writeRow(Path dirPath, CompletionData data, DirCompletionEntry entry) {
+    String relative = this.imgDir.relativize(dirPath).toString().replace(File.separatorChar, '/');
+    if (relative.isEmpty())
+      relative = ".";
+
+    if (this.json) {
+      if (!this.firstRow)
+        this.out.print(",");
+      this.out.println();
+      this.out.print("    {\"path\": " + jsonString(relative) + ", \"completed\": " + data.getCompleteNum() +
+          ", \"total\": " + data.getFileNum() + ", \"directCompleted\": " + entry.getCompleteNum() +
+          ", \"directTotal\": " + entry.getFileNum() + "}");
+    } else {
+      this.out.println(csvString(relative) + "," + data.getCompleteNum() + "," + data.getFileNum() + "," +
+          entry.getCompleteNum() + "," + entry.getFileNum());
+    }
+    this.firstRow = false;
+  }
+
+  /**
+   * Checks every save file against its image in parallel and writes the save files that have problems.
+   * The save directory is listed one directory at a time and only a bounded number of checks are in flight,
+   * so the memory used does not grow with the number of save files
+   * @return Number of save files with problems
+   */
+  public int validate() throws IOException {
+    if (this.json) {
+      this.out.println("{");
+      this.out.println("  \"images\": " + jsonString(this.imgDir.toString()) + ",");
+      this.out.println("  \"saves\": " + jsonString(this.saveDir.toString()) + ",");
+      this.out.print("  \"invalid\": [");
+    } else {
+      this.out.println("save,problem");
+    }
+
+    // Each save only reads the header of its image, so the checks are spread across the threads
+    ForkJoinPool pool = new ForkJoinPool(Math.max(1, this.parallelism));
+    ArrayDeque<Path> pendingSaves = new ArrayDeque<Path>();
+    ArrayDeque<ForkJoinTask<String>> pendingTasks = new ArrayDeque<ForkJoinTask<String>>();
+    int maxPending = Math.max(1, this.parallelism)*AuditReport.PENDING_PER_THREAD;
+    this.checked = 0;
+    this.invalid = 0;
+    try {
+      if (Files.isDirectory(this.saveDir))
+        validateDir(this.saveDir, pool, pendingSaves, pendingTasks, maxPending);
+      // Writes the checks still in flight once every directory has been listed
+      while (!pendingTasks.isEmpty())
+        writeProblem(pendingSaves.poll(), pendingTasks.poll().join());
+    } finally {
+      pool.shutdown();
+    }
+
+    if (this.json) {
+      this.out.println();
+      this.out.println("  ],");
+      this.out.println("  \"checked\": " + this.checked + ",");
+      this.out.println("  \"valid\": " + (this.checked-this.invalid));
+      this.out.println("}");
+    }
+    this.out.flush();
+    return this.invalid;
+  }
+
+  /**
+   * Submits a check of each save file directly in the directory and then validates its subdirectories, both in name order.
+   * Once the given number of checks are in flight, the oldest check is waited for and written before another is submitted,
+   * so the results are written in the order the save files are found
+   * @param  Path                             dirPath      Save directory to validate
+   * @param  ForkJoinPool                     pool         Pool that runs the checks
+   * @param  ArrayDeque<Path>                 pendingSaves Save files of the checks in flight, oldest first
+   * @param  ArrayDeque<ForkJoinTask<String>> pendingTasks Checks in flight, in the same order as their save files
+   * @param  int                              maxPending   Maximum number of checks in flight
+   */
+  private void validateDir(Path dirPath, ForkJoinPool pool, ArrayDeque<Path> pendingSaves,
+      ArrayDeque<ForkJoinTask<String>> pendingTasks, int maxPending) throws IOException {
+    final ArrayList<String> saveNames = new ArrayList<String>();
+    final ArrayList<String> subdirs = new ArrayList<String>();
+    // Only this directory is listed, with the type of each entry taken from the attributes read while listing it
+    Files.walkFileTree(dirPath, EnumSet.of(FileVisitOption.FOLLOW_LINKS), 1, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        String name = file.getFileName().toString();
+        if (attrs.isDirectory())
+          subdirs.add(name);
+        else if (attrs.isRegularFile() && name.endsWith(".txt"))
+          saveNames.add(name);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(Path file, IOException e) {
+        System.err.println("Error when listing save directory! " + e);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    Collections.sort(saveNames);
+    Collections.sort(subdirs);
+
+    for (String name : saveNames) {
+      if (pendingTasks.size() >= maxPending)
+        writeProblem(pendingSaves.poll(), pendingTasks.poll().join());
+      final Path savePath = dirPath.resolve(name);
+      pendingSaves.add(savePath);
+      pendingTasks.add(pool.submit(new Callable<String>() {
+        @Override
+        public String call() {
+          return checkSave(savePath);
+        }
+      }));
+    }
+    for (String subdir : subdirs)
+      validateDir(dirPath.resolve(subdir), pool, pendingSaves, pendingTasks, maxPending);
+  }
+
+  /**
+   * Counts a checked save file and writes it to the report if it has a problem
+   * @param Path   savePath Path of the save file
+   * @param String problem  Description of the problem found, or null if the save file is valid
+   */
+  private void writeProblem(Path savePath, String problem) {
+    this.checked++;
+    if (problem == null)
+      return;
+    String relative = this.saveDir.relativize(savePath).toString().replace(File.separatorChar, '/');
+    if (this.json) {
+      if (this.invalid > 0)
+        this.out.print(",");
+      this.out.println();
+      this.out.print("    {\"save\": " + jsonString(relative) + ", \"problem\": " + jsonString(problem) + "}");
+    } else {
+      this.out.println(csvString(relative) + "," + csvString(problem));
+    }
+    this.invalid++;
+  }
+
+  /**
+   * Checks that a save file belongs to an existing image, that its saved dimensions match the image's header
+   * and that every saved rectangle lies within the image
+   * @param  Path   savePath      Path of the save file
+   * @return        Description of the first problem found, or null if the save file is valid
+   */
+  public String checkSave(Path savePath) {
+    try {
+      List<String> lines = Files.readAllLines(savePath);
+      // Trailing blank lines are not counted as rectangles
+      int end = lines.size();
+      while (end > 0 && lines.get(end-1).trim().isEmpty())
+        end--;
+      if (end < 3)
+        return "save file is incomplete";
+
+      Path imgPath = this.imgDir.resolve(lines.get(0).trim()).normalize();
+      if (!Files.isRegularFile(imgPath))
+        return "image " + lines.get(0).trim() + " is missing";
+      if (!ScrollList.convertToSavePath(this.imgDir, this.saveDir, imgPath).equals(savePath))
+        return "save file is not in the place of the save of image " + lines.get(0).trim();
+
+      Dimension size = ImageDimensions.probe(imgPath);
+      if (size == null)
+        return "image " + lines.get(0).trim() + " could not be read";
+      String[] dims = lines.get(1).split(",");
+      int savedW = Integer.parseInt(dims[0].trim());
+      int savedH = Integer.parseInt(dims[1].trim());
+      if (savedW != size.width || savedH != size.height)
+        return "saved size " + savedW + "x" + savedH + " does not match image size " + size.width + "x" + size.height;
+
+      int count = Integer.parseInt(lines.get(2).trim());
+      if (count != end-3)
+        return "saved " + count + " rectangles but lists " + (end-3);
+      for (int i=3; i < end; i++) {
+        String[] parts = lines.get(i).split(",");
+        double x = Double.parseDouble(parts[0]);
+        double y = Double.parseDouble(parts[1]);
+        double w = Double.parseDouble(parts[2]);
+        double h = Double.parseDouble(parts[3]);
+        if (w < 0 || h < 0 || x < -AuditReport.EDGE_TOLERANCE || y < -AuditReport.EDGE_TOLERANCE ||
+            x+w > size.width+AuditReport.EDGE_TOLERANCE || y+h > size.height+AuditReport.EDGE_TOLERANCE)
+          return "rectangle " + (i-2) + " lies outside of the image";
+      }
+      return null;
+    } catch (Exception e) {
+      return "save file could not be read (" + e + ")";
+    }
+  }
+
+  /**
+   * Quotes and escapes a string for JSON
+   * @param  String str           String to quote
+   * @return        JSON string literal
+   */
+  public static String jsonString(String str) {
+    StringBuilder builder = new StringBuilder(str.length()+2);
+    builder.append('"');
+    for (int i=0; i < str.length(); i++) {
+      char c = str.charAt(i);
+      if (c == '"' || c == '\\')
+        builder.append('\\').append(c);
+      else if (c < 0x20)
+        builder.append(String.format("\\u%04x", (int)c));
+      else
+        builder.append(c);
+    }
+    return builder.append('"').toString();
+  }
+
+  /**
+   * Quotes a string for CSV if it contains any separators or quotes
+   * @param  String str           String to quote
+   * @return        CSV field
+   */
+  public static String csvString(String str) {
+    if (str.indexOf(',') < 0 && str.indexOf('"') < 0 && str.indexOf('\n') < 0 && str.indexOf('\r') < 0)
+      return str;
+    return "\"" + str.replace("\"", "\"\"") + "\"";
+  }
+}
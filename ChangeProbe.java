@@ -0,0 +1,76 @@
+import java.nio.file.*;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+
+/**
+ * Class that checks what is now at a batch of changed paths of the current directory of the list.
+ * It is made on the list loader thread, so the rows can be brought up to date on the event dispatch thread
+ * without touching the file system there
+ */
+public class ChangeProbe {
+
+  private LinkedHashMap<Path, Integer> entries;  // State of each changed path directly within the current directory
+  private LinkedHashMap<Path, Boolean> saves;    // Whether or not each changed save file of the current directory exists
+  private SaveLookup rechecked;                  // Listing of the save mirror of the current directory (null if not rechecked)
+  public static final int GONE = 0;              // State of a path that no longer exists
+  public static final int OTHER = 1;             // State of a path that is neither a directory nor an image
+  public static final int DIRECTORY = 2;         // State of a directory
+  public static final int IMAGE = 3;             // State of an image that has not been completed
+  public static final int COMPLETED_IMAGE = 4;   // State of an image that has been completed
+
+  /**
+   * Checks the given paths
+   * @param  Path             imgDir        Outermost image directory
+   * @param  Path             saveDir       Outermost save directory
+   * @param  Collection<Path> entryPaths    Changed paths directly within the current directory
+   * @param  Collection<Path> savePaths     Changed save files within the save mirror of the current directory
+   * @param  Path             recheckDir    Save mirror of the current directory to list for every image row (null to not list it)
+   */
+  public ChangeProbe(Path imgDir, Path saveDir, Collection<Path> entryPaths, Collection<Path> savePaths, Path recheckDir) {
+    this.entries = new LinkedHashMap<Path, Integer>();
+    for (Path entry : entryPaths) {
+      int state;
+      if (Files.isDirectory(entry))
+        state = ChangeProbe.DIRECTORY;
+      else if (!Files.exists(entry))
+        state = ChangeProbe.GONE;
+      else if (!ImageChecker.isImage(entry))
+        state = ChangeProbe.OTHER;
+      else if (ScrollList.checkFileCompletion(ScrollList.convertToSavePath(imgDir, saveDir, entry)))
+        state = ChangeProbe.COMPLETED_IMAGE;
+      else
+        state = ChangeProbe.IMAGE;
+      this.entries.put(entry, state);
+    }
+
+    this.saves = new LinkedHashMap<Path, Boolean>();
+    for (Path savePath : savePaths)
+      this.saves.put(savePath, ScrollList.checkFileCompletion(savePath));
+
+    this.rechecked = recheckDir == null ? null : new SaveLookup(recheckDir);
+  }
+
+  /**
+   * Returns the state of each changed path directly within the current directory, in the order they were given
+   * @return States by path
+   */
+  public LinkedHashMap<Path, Integer> getEntries() {
+    return this.entries;
+  }
+
+  /**
+   * Returns whether or not each changed save file exists, in the order they were given
+   * @return Existence by save file
+   */
+  public LinkedHashMap<Path, Boolean> getSaves() {
+    return this.saves;
+  }
+
+  /**
+   * Returns the listing of the save mirror of the current directory used to check every image row again
+   * @return Listing of the save directory, or null if the rows are not checked again
+   */
+  public SaveLookup getRechecked() {
+    return this.rechecked;
+  }
+}
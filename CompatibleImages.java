@@ -0,0 +1,67 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Class that creates images in the pixel format of the screen, which Java2D can draw without converting every pixel.
+ * Images returned by ImageIO are often in formats like 3 byte BGR or a custom layout that are drawn on slow paths,
+ * so decoded images are converted once and every scaled copy is created in the screen format.
+ * Without a screen (i.e. when headless), plain integer RGB or ARGB images are used instead
+ */
+public class CompatibleImages {
+
+  /**
+   * Returns the configuration of the default screen
+   * @return Default graphics configuration or null if there is no screen
+   */
+  public static GraphicsConfiguration getConfiguration() {
+    if (GraphicsEnvironment.isHeadless())
+      return null;
+    try {
+      return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  /**
+   * Creates an empty image in the screen format
+   * @param  int           w             Width of the image
+   * @param  int           h             Height of the image
+   * @param  int           transparency  Transparency of the image, from the Transparency constants
+   * @return               New image
+   */
+  public static BufferedImage createImage(int w, int h, int transparency) {
+    GraphicsConfiguration config = CompatibleImages.getConfiguration();
+    if (config != null)
+      return config.createCompatibleImage(w, h, transparency);
+    return new BufferedImage(w, h, transparency == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+  }
+
+  /**
+   * Returns whether or not the image is already in the format images are created in
+   * @param  BufferedImage img           Image to check
+   * @return               Whether or not the image can be drawn without converting it
+   */
+  public static boolean isCompatible(BufferedImage img) {
+    GraphicsConfiguration config = CompatibleImages.getConfiguration();
+    if (config != null)
+      return img.getColorModel().equals(config.getColorModel(img.getTransparency()));
+    int type = img.getTransparency() == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+    return img.getType() == type;
+  }
+
+  /**
+   * Converts an image to the screen format, keeping whether or not it is opaque
+   * @param  BufferedImage img           Image to convert
+   * @return               Converted image, or the same image if it was already in the screen format
+   */
+  public static BufferedImage toCompatible(BufferedImage img) {
+    if (img == null || CompatibleImages.isCompatible(img))
+      return img;
+    BufferedImage converted = CompatibleImages.createImage(img.getWidth(), img.getHeight(), img.getTransparency());
+    Graphics2D g2d = converted.createGraphics();
+    g2d.drawImage(img, 0, 0, null);
+    g2d.dispose();
+    return converted;
+  }
+}
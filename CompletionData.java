@@ -19,6 +19,15 @@ public class CompletionData {
     this.completed = (complete == total);
   }
 
+  /**
+   * Combines the completion data with another set of completion data, i.e. the data of a subdirectory
+   * @param  CompletionData other         Completion data to combine with
+   * @return                New completion data with the counts of both
+   */
+  public CompletionData merge(CompletionData other) {
+    return new CompletionData(this.completeNum+other.getCompleteNum(), this.fileNum+other.getFileNum());
+  }
+
   /**
    * Returns the number of completed images within the directory
    * @return Number of completed images
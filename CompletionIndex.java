@@ -0,0 +1,327 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Class that keeps a persistent index of the completion counts of every directory in the image directory.
+ * Each directory is stored with the modification times of itself and its matching save directory, and it
+ * is only rescanned when one of those times has changed. The index is saved as a text file next to the save folder
+ */
+public class CompletionIndex {
+
+  private Path imgDir;                                        // Outermost image directory
+  private Path saveDir;                                       // Outermost save directory
+  private Path indexFile;                                     // File the index is stored in
+  private ConcurrentHashMap<String, DirCompletionEntry> entries;  // Entries for each directory keyed by the path relative to the image directory
+  private volatile boolean changed;                           // Whether or not the index has changed since it was last loaded or saved
+  private ForkJoinPool pool;                                  // Pool that directory walks are run on
+  public static final String INDEX_FILE_NAME = "completion_index.txt";  // Name of the index file
+  public static final String LISTING_CACHE_DIR_NAME = "listing_cache";  // Name of the directory that sorted listings of large directories are cached in
+  private static final String INDEX_HEADER = "FrameIt completion index 1";  // First line of the index file
+  public static final String PARALLELISM_PROPERTY = "frameit.parallelism";  // System property to set the number of threads used to walk directories
+
+  /**
+   * Initializes an empty completion index for the given image and save directories.
+   * Directories are walked with the number of threads given by the "frameit.parallelism"
+   * system property, or one thread per processor if it is not set
+   * @param  Path imgPath       Outermost image directory
+   * @param  Path savePath      Outermost save directory. The index file is stored next to it
+   */
+  public CompletionIndex(Path imgPath, Path savePath) {
+    this(imgPath, savePath, Integer.getInteger(CompletionIndex.PARALLELISM_PROPERTY,
+        Runtime.getRuntime().availableProcessors()));
+  }
+
+  /**
+   * Initializes an empty completion index for the given image and save directories
+   * @param  Path imgPath       Outermost image directory
+   * @param  Path savePath      Outermost save directory. The index file is stored next to it
+   * @param  int  parallelism   Number of threads to walk directories with
+   */
+  public CompletionIndex(Path imgPath, Path savePath, int parallelism) {
+    this.imgDir = imgPath;
+    this.saveDir = savePath;
+    this.indexFile = savePath.resolveSibling(CompletionIndex.INDEX_FILE_NAME);
+    this.entries = new ConcurrentHashMap<String, DirCompletionEntry>();
+    this.changed = false;
+    this.pool = new ForkJoinPool(Math.max(1, parallelism));
+  }
+
+  /**
+   * Returns the recursive completion data of the given directory, rescanning only the
+   * directories that have been modified since they were last indexed.
+   * Subdirectories are walked in parallel on the index's fork-join pool
+   * @param  Path dirPath       Path of the directory within the image directory
+   * @return      Completion data of all images within the directory and its subdirectories
+   */
+  public CompletionData getCompletion(Path dirPath) {
+    return this.pool.invoke(new CompletionWalker(this, dirPath));
+  }
+
+  /**
+   * Counts the recursive completion of the directory on the index's pool without waiting for it.
+   * The callback is run on a pool thread once the count is done, even if the count was cancelled
+   * @param Path                     dirPath   Path of the directory
+   * @param AtomicBoolean            cancelled Flag to cancel the count, or null if it cannot be cancelled
+   * @param Consumer<CompletionData> callback  Function given the completion data once it is counted
+   */
+  public void countLater(final Path dirPath, final AtomicBoolean cancelled, final Consumer<CompletionData> callback) {
+    this.pool.execute(new Runnable() {
+      @Override
+      public void run() {
+        callback.accept(new CompletionWalker(CompletionIndex.this, dirPath, cancelled).invoke());
+      }
+    });
+  }
+
+  /**
+   * Returns the entry of the directory from the index alone, without checking for any changes
+   * @param  Path dirPath       Path of the directory
+   * @return      Previously indexed entry, or null if the directory has not been indexed
+   */
+  public DirCompletionEntry getIndexedEntry(Path dirPath) {
+    return this.entries.get(getKey(dirPath));
+  }
+
+  /**
+   * Returns the recursive completion data of the directory from the index alone, without checking for any changes
+   * @param  Path dirPath       Path of the directory
+   * @return      Previously indexed completion data, or null if any directory within it has not been indexed
+   */
+  public CompletionData getCachedCompletion(Path dirPath) {
+    DirCompletionEntry entry = getIndexedEntry(dirPath);
+    if (entry == null)
+      return null;
+
+    CompletionData data = new CompletionData(entry.getCompleteNum(), entry.getFileNum());
+    for (String subdir : entry.getSubdirs()) {
+      CompletionData subData = getCachedCompletion(dirPath.resolve(subdir));
+      if (subData == null)
+        return null;
+      data = data.merge(subData);
+    }
+    return data;
+  }
+
+  /**
+   * Returns the recursive completion data of each of the given directories, walking all of them in parallel
+   * @param  ArrayList<Path> dirPaths      Paths of the directories
+   * @return                 Completion data of each directory in the same order as the paths
+   */
+  public CompletionData[] getCompletions(ArrayList<Path> dirPaths) {
+    ArrayList<ForkJoinTask<CompletionData>> tasks = new ArrayList<ForkJoinTask<CompletionData>>(dirPaths.size());
+    for (Path dirPath : dirPaths)
+      tasks.add(this.pool.submit(new CompletionWalker(this, dirPath)));
+
+    CompletionData[] completions = new CompletionData[dirPaths.size()];
+    for (int i=0; i < completions.length; i++)
+      completions[i] = tasks.get(i).join();
+    return completions;
+  }
+
+  /**
+   * Returns the up to date entry of a single directory, scanning the directory if it is
+   * not yet indexed or if it has been modified since it was indexed
+   * @param  Path dirPath       Path of the directory
+   * @return      Entry of the directory or null if the directory no longer exists
+   */
+  public DirCompletionEntry getEntry(Path dirPath) {
+    String key = getKey(dirPath);
+    long imgModified = lastModified(dirPath);
+    if (imgModified < 0) {
+      if (this.entries.remove(key) != null)
+        this.changed = true;
+      return null;
+    }
+    long saveModified = lastModified(getSaveDir(dirPath));
+
+    DirCompletionEntry entry = this.entries.get(key);
+    if (entry == null || !entry.matches(imgModified, saveModified)) {
+      entry = scanDirectory(dirPath, imgModified, saveModified);
+      this.entries.put(key, entry);
+      this.changed = true;
+    }
+    return entry;
+  }
+
+  /**
+   * Counts a newly completed image in the entry of its directory without rescanning it.
+   * The entry takes the new modification time of the save directory since the save file was just written to it.
+   * If the entry is missing or already out of date, including when the save directory had changed since the
+   * entry was scanned, it is left to be rescanned the next time it is used
+   * @param Path imgPath      Path of the image that was just completed
+   * @param long saveModified Modification time of the save directory from before the save file was written
+   */
+  public void markCompleted(Path imgPath, long saveModified) {
+    Path dirPath = imgPath.getParent();
+    String key = getKey(dirPath);
+    DirCompletionEntry entry = this.entries.get(key);
+    // Counting up an entry that missed other changes to the save directory would hide those changes for good
+    if (entry == null || entry.getImgModified() != lastModified(dirPath) || entry.getSaveModified() != saveModified)
+      return;
+
+    this.entries.put(key, new DirCompletionEntry(entry.getImgModified(), lastModified(getSaveDir(dirPath)),
+        entry.getCompleteNum()+1, entry.getFileNum(), entry.getSubdirs()));
+    this.changed = true;
+  }
+
+  /**
+   * Scans only the files directly in the directory for images and their completion
+   * @param  Path dirPath       Path of the directory to scan
+   * @param  long imgModified   Modification time of the directory before the scan
+   * @param  long saveModified  Modification time of the save directory before the scan
+   * @return      New entry for the directory
+   */
+  public DirCompletionEntry scanDirectory(Path dirPath, long imgModified, long saveModified) {
+    return DirectoryScanner.scan(this.imgDir, this.saveDir, dirPath, false).toEntry(imgModified, saveModified);
+  }
+
+  /**
+   * Lists the directory and stores its counts in the index from the same scan
+   * @param  Path dirPath       Path of the directory to list
+   * @return      Listing of the directory
+   */
+  public DirectoryListing scanListing(Path dirPath) {
+    long imgModified = lastModified(dirPath);
+    long saveModified = lastModified(getSaveDir(dirPath));
+    DirectoryListing listing = DirectoryScanner.scan(this.imgDir, this.saveDir, dirPath, true);
+    if (imgModified >= 0) {
+      this.entries.put(getKey(dirPath), listing.toEntry(imgModified, saveModified));
+      this.changed = true;
+    }
+    return listing;
+  }
+
+  /**
+   * Returns the directory within the save folder that mirrors the given image directory
+   * @param  Path dirPath       Path of the image directory
+   * @return      Path of the matching save directory
+   */
+  public Path getSaveDir(Path dirPath) {
+    return this.saveDir.resolve(this.imgDir.relativize(dirPath));
+  }
+
+  /**
+   * Returns the file that the sorted listing of the directory is cached in. The cache directory is stored next to the index file
+   * @param  Path dirPath       Path of the image directory
+   * @return      Path of the listing cache file
+   */
+  public Path getListingCacheFile(Path dirPath) {
+    String key = getKey(dirPath);
+    return this.indexFile.resolveSibling(CompletionIndex.LISTING_CACHE_DIR_NAME)
+        .resolve(String.format("%08x.txt", key.hashCode()));
+  }
+
+  /**
+   * Returns the key used to store the directory in the index
+   * @param  Path dirPath       Path of the directory
+   * @return      Path of the directory relative to the image directory
+   */
+  public String getKey(Path dirPath) {
+    return this.imgDir.relativize(dirPath).toString();
+  }
+
+  /**
+   * Returns the modification time of the path in milliseconds
+   * @param  Path path          Path to check
+   * @return      Modification time or -1 if the path does not exist
+   */
+  public static long lastModified(Path path) {
+    try {
+      return Files.getLastModifiedTime(path).toMillis();
+    } catch (IOException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Loads the index from the index file if there is one. Any unreadable index is ignored and rebuilt
+   */
+  public void load() {
+    if (!Files.exists(this.indexFile))
+      return;
+    HashMap<String, DirCompletionEntry> loaded = new HashMap<String, DirCompletionEntry>();
+    try (BufferedReader reader = Files.newBufferedReader(this.indexFile)) {
+      if (!CompletionIndex.INDEX_HEADER.equals(reader.readLine()))
+        return;
+
+      String line;
+      while ((line = reader.readLine()) != null) {
+        // Each directory line is "key, image mod time, save mod time, total, completed, subdirectory count"
+        String[] parts = line.split("\t", -1);
+        int subdirNum = Integer.parseInt(parts[5]);
+        ArrayList<String> subdirs = new ArrayList<String>(subdirNum);
+        // Followed by one line for each subdirectory name
+        for (int i=0; i < subdirNum; i++)
+          subdirs.add(reader.readLine());
+        loaded.put(parts[0], new DirCompletionEntry(Long.parseLong(parts[1]), Long.parseLong(parts[2]),
+            Integer.parseInt(parts[4]), Integer.parseInt(parts[3]), subdirs));
+      }
+      this.entries.putAll(loaded);
+    } catch (Exception e) {
+      System.out.println("Error when loading completion index! " + e);
+    }
+  }
+
+  /**
+   * Saves the index to the index file if it has changed. Entries of directories that can no longer
+   * be reached from the image directory are dropped. The index can be saved from the list loader and the search index,
+   * so only one save runs at a time
+   */
+  public synchronized void save() {
+    if (!this.changed)
+      return;
+    this.changed = false;
+
+    Path tempFile = this.indexFile.resolveSibling(CompletionIndex.INDEX_FILE_NAME + ".tmp");
+    try (PrintWriter pw = new PrintWriter(Files.newBufferedWriter(tempFile))) {
+      pw.println(CompletionIndex.INDEX_HEADER);
+      for (Map.Entry<String, DirCompletionEntry> mapEntry : reachableEntries().entrySet()) {
+        DirCompletionEntry entry = mapEntry.getValue();
+        pw.println(mapEntry.getKey() + "\t" + entry.getImgModified() + "\t" + entry.getSaveModified() +
+            "\t" + entry.getFileNum() + "\t" + entry.getCompleteNum() + "\t" + entry.getSubdirs().size());
+        for (String subdir : entry.getSubdirs())
+          pw.println(subdir);
+      }
+    } catch (Exception e) {
+      System.out.println("Error when saving completion index! " + e);
+      this.changed = true;
+      return;
+    }
+
+    try {
+      Files.move(tempFile, this.indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (Exception e) {
+      System.out.println("Error when saving completion index! " + e);
+      this.changed = true;
+    }
+  }
+
+  /**
+   * Collects all entries that can be reached from the image directory through the subdirectory names
+   * @return Map of all reachable entries
+   */
+  public HashMap<String, DirCompletionEntry> reachableEntries() {
+    HashMap<String, DirCompletionEntry> reachable = new HashMap<String, DirCompletionEntry>();
+    ArrayList<Path> toVisit = new ArrayList<Path>();
+    toVisit.add(this.imgDir);
+    while (!toVisit.isEmpty()) {
+      Path dirPath = toVisit.remove(toVisit.size()-1);
+      String key = getKey(dirPath);
+      DirCompletionEntry entry = this.entries.get(key);
+      if (entry == null)
+        continue;
+      reachable.put(key, entry);
+      for (String subdir : entry.getSubdirs())
+        toVisit.add(dirPath.resolve(subdir));
+    }
+    return reachable;
+  }
+}
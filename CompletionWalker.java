@@ -0,0 +1,63 @@
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fork-join task that counts the completion of a directory and all of its subdirectories.
+ * Each subdirectory is counted by its own forked task so the walk is spread across the threads of the pool
+ */
+public class CompletionWalker extends RecursiveTask<CompletionData> {
+
+  private CompletionIndex index;  // Completion index that the entries of each directory are taken from
+  private Path dirPath;           // Directory counted by the task
+  private AtomicBoolean cancelled;  // Flag that stops the walk once it is set (null if the walk cannot be cancelled)
+
+  /**
+   * Initializes a task to count the completion of the given directory
+   * @param  CompletionIndex compIndex     Completion index to take the directory entries from
+   * @param  Path            dir           Directory to count
+   */
+  public CompletionWalker(CompletionIndex compIndex, Path dir) {
+    this(compIndex, dir, null);
+  }
+
+  /**
+   * Initializes a task to count the completion of the given directory that stops early once the flag is set
+   * @param  CompletionIndex compIndex     Completion index to take the directory entries from
+   * @param  Path            dir           Directory to count
+   * @param  AtomicBoolean   cancel        Flag to cancel the walk, or null if it cannot be cancelled
+   */
+  public CompletionWalker(CompletionIndex compIndex, Path dir, AtomicBoolean cancel) {
+    this.index = compIndex;
+    this.dirPath = dir;
+    this.cancelled = cancel;
+  }
+
+  /**
+   * Counts the images directly in the directory and merges them with the results of a forked task for each subdirectory
+   * @return Completion data of the directory and all of its subdirectories. Incomplete if the walk was cancelled
+   */
+  @Override
+  protected CompletionData compute() {
+    if (this.cancelled != null && this.cancelled.get())
+      return new CompletionData(0, 0);
+
+    DirCompletionEntry entry = this.index.getEntry(this.dirPath);
+    if (entry == null)
+      return new CompletionData(0, 0);
+
+    ArrayList<CompletionWalker> subtasks = new ArrayList<CompletionWalker>(entry.getSubdirs().size());
+    for (String subdir : entry.getSubdirs()) {
+      CompletionWalker subtask = new CompletionWalker(this.index, this.dirPath.resolve(subdir), this.cancelled);
+      subtask.fork();
+      subtasks.add(subtask);
+    }
+
+    CompletionData data = new CompletionData(entry.getCompleteNum(), entry.getFileNum());
+    // Joins in the opposite order of forking so the most recently forked tasks can run on this thread
+    for (int i=subtasks.size()-1; i >= 0; i--)
+      data = data.merge(subtasks.get(i).join());
+    return data;
+  }
+}
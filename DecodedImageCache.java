@@ -0,0 +1,144 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class that keeps recently decoded images, along with their copies scaled to fit the image container, so going back
+ * to an image that was just visited does not decode it again. The cache is limited by the number of bytes held in the
+ * rasters of its images, and the least recently used images are dropped once the limit is reached. Images larger than
+ * the whole limit are never kept. The modification time of each image file is kept as well, so images changed on disk
+ * are decoded again. The cache is used by both the decoding threads and the event dispatch thread
+ */
+public class DecodedImageCache {
+
+  private LinkedHashMap<Path, CachedImage> images;  // Cached images by path, from least to most recently used
+  private long budget;                              // Maximum number of bytes of raster data to keep
+  private long usedBytes;                           // Number of bytes of raster data currently kept
+  public static final String BUDGET_PROPERTY = "frameit.cache.bytes";   // System property to set the budget in bytes
+  public static final double DEFAULT_BUDGET_FRACTION = 0.25;            // Fraction of the maximum heap used by default
+
+  /**
+   * Class to represent a single cached image
+   */
+  private static class CachedImage {
+
+    private ImagePrefetcher.PreparedImage image;  // Decoded and scaled image
+    private long modified;                        // Modification time of the image file when it was decoded
+    private long bytes;                           // Number of bytes held by the rasters of the image
+  }
+
+  /**
+   * Initializes an empty cache with the budget from the budget property, or a quarter of the maximum heap by default
+   */
+  public DecodedImageCache() {
+    this(Long.getLong(DecodedImageCache.BUDGET_PROPERTY,
+        (long)(Runtime.getRuntime().maxMemory()*DecodedImageCache.DEFAULT_BUDGET_FRACTION)));
+  }
+
+  /**
+   * Initializes an empty cache with the given budget
+   * @param  long bytes         Maximum number of bytes of raster data to keep
+   */
+  public DecodedImageCache(long bytes) {
+    this.images = new LinkedHashMap<Path, CachedImage>(16, 0.75f, true);
+    this.budget = Math.max(0, bytes);
+    this.usedBytes = 0;
+  }
+
+  /**
+   * Returns the cached image at the given path, marking it as the most recently used
+   * @param  Path                          path          Path of the image
+   * @return                               Cached image or null if it is not cached or the file has changed since
+   */
+  public synchronized ImagePrefetcher.PreparedImage get(Path path) {
+    CachedImage cached = this.images.get(path);
+    if (cached == null)
+      return null;
+    if (cached.modified != CompletionIndex.lastModified(path)) {
+      remove(path);
+      return null;
+    }
+    return cached.image;
+  }
+
+  /**
+   * Adds an image to the cache, dropping the least recently used images until it fits within the budget
+   * @param Path                          path  Path of the image
+   * @param ImagePrefetcher.PreparedImage image Decoded and scaled image
+   */
+  public synchronized void put(Path path, ImagePrefetcher.PreparedImage image) {
+    remove(path);
+    long bytes = DecodedImageCache.rasterBytes(image.getImage()) + DecodedImageCache.rasterBytes(image.getScaledImage());
+    if (bytes > this.budget)
+      return;
+
+    Iterator<Map.Entry<Path, CachedImage>> itr = this.images.entrySet().iterator();
+    while (this.usedBytes+bytes > this.budget && itr.hasNext()) {
+      this.usedBytes -= itr.next().getValue().bytes;
+      itr.remove();
+    }
+    CachedImage cached = new CachedImage();
+    cached.image = image;
+    cached.modified = CompletionIndex.lastModified(path);
+    cached.bytes = bytes;
+    this.images.put(path, cached);
+    this.usedBytes += bytes;
+  }
+
+  /**
+   * Removes an image from the cache
+   * @param Path path Path of the image
+   */
+  public synchronized void remove(Path path) {
+    CachedImage cached = this.images.remove(path);
+    if (cached != null)
+      this.usedBytes -= cached.bytes;
+  }
+
+  /**
+   * Removes every image from the cache
+   */
+  public synchronized void clear() {
+    this.images.clear();
+    this.usedBytes = 0;
+  }
+
+  /**
+   * Returns the number of cached images
+   * @return Number of images
+   */
+  public synchronized int size() {
+    return this.images.size();
+  }
+
+  /**
+   * Returns the number of bytes of raster data currently kept
+   * @return Number of bytes used
+   */
+  public synchronized long getUsedBytes() {
+    return this.usedBytes;
+  }
+
+  /**
+   * Returns the maximum number of bytes of raster data kept
+   * @return Budget in bytes
+   */
+  public long getBudget() {
+    return this.budget;
+  }
+
+  /**
+   * Returns the number of bytes held by the raster of an image
+   * @param  BufferedImage img           Image to measure
+   * @return               Number of bytes in the image's data buffer
+   */
+  public static long rasterBytes(BufferedImage img) {
+    if (img == null)
+      return 0;
+    DataBuffer buffer = img.getRaster().getDataBuffer();
+    return ((long)buffer.getSize())*buffer.getNumBanks()*DataBuffer.getDataTypeSize(buffer.getDataType())/8;
+  }
+}
@@ -0,0 +1,80 @@
+import java.util.ArrayList;
+
+/**
+ * Class to represent a single directory within the completion index.
+ * The counts only include the images found directly inside of the directory, the counts of
+ * nested directories are kept in their own entries and are found through the subdirectory names
+ */
+public class DirCompletionEntry {
+  private long imgModified;             // Modification time of the image directory when it was scanned
+  private long saveModified;            // Modification time of the matching save directory when it was scanned (-1 if it did not exist)
+  private int completeNum;              // Number of completed images directly within the directory
+  private int fileNum;                  // Number of images directly within the directory
+  private ArrayList<String> subdirs;    // Names of all subdirectories directly within the directory
+
+  /**
+   * Initializes a new index entry for a single directory
+   * @param  long              imgMod        Modification time of the image directory
+   * @param  long              saveMod       Modification time of the save directory
+   * @param  int               complete      Number of completed images directly in the directory
+   * @param  int               total         Number of images directly in the directory
+   * @param  ArrayList<String> dirs          Names of the subdirectories directly in the directory
+   */
+  public DirCompletionEntry(long imgMod, long saveMod, int complete, int total, ArrayList<String> dirs) {
+    this.imgModified = imgMod;
+    this.saveModified = saveMod;
+    this.completeNum = complete;
+    this.fileNum = total;
+    this.subdirs = dirs;
+  }
+
+  /**
+   * Checks whether or not the entry was made from directories with the given modification times
+   * @param  long imgMod        Current modification time of the image directory
+   * @param  long saveMod       Current modification time of the save directory
+   * @return      Whether or not the entry is still valid
+   */
+  public boolean matches(long imgMod, long saveMod) {
+    return this.imgModified == imgMod && this.saveModified == saveMod;
+  }
+
+  /**
+   * Returns the modification time of the image directory when it was scanned
+   * @return Modification time of the image directory
+   */
+  public long getImgModified() {
+    return this.imgModified;
+  }
+
+  /**
+   * Returns the modification time of the save directory when it was scanned
+   * @return Modification time of the save directory
+   */
+  public long getSaveModified() {
+    return this.saveModified;
+  }
+
+  /**
+   * Returns the number of completed images directly within the directory
+   * @return Number of completed images
+   */
+  public int getCompleteNum() {
+    return this.completeNum;
+  }
+
+  /**
+   * Returns the number of images directly within the directory
+   * @return Number of images
+   */
+  public int getFileNum() {
+    return this.fileNum;
+  }
+
+  /**
+   * Returns the names of all subdirectories directly within the directory
+   * @return List of subdirectory names
+   */
+  public ArrayList<String> getSubdirs() {
+    return this.subdirs;
+  }
+}
@@ -0,0 +1,110 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+
+/**
+ * Class to represent the contents of a single directory as found by the directory scanner.
+ * It holds the names of all subdirectories and images directly in the directory along with the completion of each image
+ */
+public class DirectoryListing {
+  private ArrayList<String> subdirs;  // Names of the subdirectories in the directory
+  private ArrayList<String> images;   // Names of the images in the directory
+  private BitSet completed;           // Completion of each image, by the image's index in the images list
+  private int completeNum;            // Number of completed images in the directory
+  private int fileNum;                // Number of images in the directory
+  private boolean keepImages;         // Whether or not the names and completion of each image are kept, rather than only the counts
+
+  /**
+   * Initializes an empty listing that keeps every image
+   */
+  public DirectoryListing() {
+    this(true);
+  }
+
+  /**
+   * Initializes an empty listing
+   * @param  boolean keep          Whether or not to keep the name and completion of each image or only count them
+   */
+  public DirectoryListing(boolean keep) {
+    this.subdirs = new ArrayList<String>();
+    this.images = new ArrayList<String>();
+    this.completed = new BitSet();
+    this.completeNum = 0;
+    this.fileNum = 0;
+    this.keepImages = keep;
+  }
+
+  /**
+   * Adds a subdirectory to the listing
+   * @param String name Name of the subdirectory
+   */
+  public void addSubdir(String name) {
+    this.subdirs.add(name);
+  }
+
+  /**
+   * Adds an image to the listing
+   * @param String  name Name of the image file
+   * @param boolean comp Whether or not the image has been completed
+   */
+  public void addImage(String name, boolean comp) {
+    if (comp)
+      this.completeNum++;
+    this.fileNum++;
+    if (this.keepImages) {
+      if (comp)
+        this.completed.set(this.images.size());
+      this.images.add(name);
+    }
+  }
+
+  /**
+   * Returns the names of all subdirectories in the listing
+   * @return List of subdirectory names
+   */
+  public ArrayList<String> getSubdirs() {
+    return this.subdirs;
+  }
+
+  /**
+   * Returns the names of all images in the listing. Empty if the listing only counts its images
+   * @return List of image names
+   */
+  public ArrayList<String> getImages() {
+    return this.images;
+  }
+
+  /**
+   * Returns whether or not the image at the given index of the images list has been completed
+   * @param  int idx           Index of the image
+   * @return     Whether or not the image has been completed
+   */
+  public boolean isCompleted(int idx) {
+    return this.completed.get(idx);
+  }
+
+  /**
+   * Returns the number of completed images in the listing
+   * @return Number of completed images
+   */
+  public int getCompleteNum() {
+    return this.completeNum;
+  }
+
+  /**
+   * Returns the number of images in the listing
+   * @return Number of images
+   */
+  public int getFileNum() {
+    return this.fileNum;
+  }
+
+  /**
+   * Creates a completion index entry from the listing
+   * @param  long imgModified   Modification time of the directory before it was scanned
+   * @param  long saveModified  Modification time of the save directory before it was scanned
+   * @return      Index entry holding the counts and subdirectories of the listing
+   */
+  public DirCompletionEntry toEntry(long imgModified, long saveModified) {
+    return new DirCompletionEntry(imgModified, saveModified, this.completeNum, this.fileNum, this.subdirs);
+  }
+}
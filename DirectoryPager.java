@@ -0,0 +1,231 @@
+import java.io.BufferedReader;
+import java.io.PrintWriter;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Class that provides the sorted rows of a single directory a page at a time, so the first rows of
+ * a very large directory can be shown before the rest of it has been read.
+ * The rows come from one of three sources, from fastest to slowest:
+ *  1. A sorted listing cached on disk, which is used as long as the directory has not been modified since it was written.
+ *     The cache is read one page at a time and only stores names, so nothing in the directory has to be looked at.
+ *  2. A listing of only the names in the directory, used for directories that the completion index knows to be large.
+ *     Entries are classified by their extension and only entries without a known extension are looked at.
+ *     The listing is then written to the cache for the next time the directory is opened.
+ *  3. The regular directory scan, used for every other directory, which also brings the completion index up to date
+ * Pages are read on the list loader thread, so a pager should only be used by one thread at a time
+ */
+public class DirectoryPager {
+
+  private Path dirPath;               // Directory being listed
+  private String key;                 // Key of the directory in the completion index, stored in the cache to tell directories apart
+  private Path cacheFile;             // File that the sorted listing of the directory is cached in
+  private long modified;              // Modification time of the directory when it was listed
+  private Path saveDirPath;           // Save directory that mirrors the directory
+  private SaveLookup saves;           // Save files of the directory, listed once the completion of an image is first needed
+  private BufferedReader reader;      // Reader of the cached listing (null if the rows were listed in memory)
+  private ExplorerModel rows;         // Sorted rows of the directory when they were listed in memory
+  private int total;                  // Total number of rows in the directory
+  private int nextRow;                // Index of the next row to read
+  private boolean writeCache;         // Whether or not the listing should be written to the cache
+  public static final int PAGE_SIZE = 2000;       // Number of rows read for each page
+  public static final int CACHE_THRESHOLD = 10000;  // Number of entries in a directory above which its listing is cached
+  private static final String CACHE_HEADER = "FrameIt listing cache 1";  // First line of each cache file
+
+  /**
+   * Opens the directory for paging, choosing the fastest available source for its rows
+   * @param  CompletionIndex index         Completion index of the image directory
+   * @param  Path            dir           Directory to list
+   */
+  public DirectoryPager(CompletionIndex index, Path dir) {
+    this.dirPath = dir;
+    this.key = index.getKey(dir);
+    this.cacheFile = index.getListingCacheFile(dir);
+    this.modified = CompletionIndex.lastModified(dir);
+    this.saveDirPath = index.getSaveDir(dir);
+    this.saves = null;
+    this.reader = null;
+    this.rows = null;
+    this.total = 0;
+    this.nextRow = 0;
+    this.writeCache = false;
+
+    if (openCache())
+      return;
+
+    DirCompletionEntry entry = index.getIndexedEntry(dir);
+    if (entry != null && entry.getFileNum()+entry.getSubdirs().size() >= DirectoryPager.CACHE_THRESHOLD) {
+      listNames();
+      this.writeCache = this.modified >= 0;
+    } else {
+      listScanned(index.scanListing(dir));
+    }
+  }
+
+  /**
+   * Opens the cached listing of the directory if it was written after the last modification of the directory
+   * @return Whether or not the cache could be used
+   */
+  private boolean openCache() {
+    if (this.modified < 0 || !Files.exists(this.cacheFile))
+      return false;
+    try {
+      this.reader = Files.newBufferedReader(this.cacheFile);
+      // The cache starts with the header, the directory's key, its modification time and the number of rows
+      if (DirectoryPager.CACHE_HEADER.equals(this.reader.readLine()) && this.key.equals(this.reader.readLine()) &&
+          Long.toString(this.modified).equals(this.reader.readLine())) {
+        this.total = Integer.parseInt(this.reader.readLine());
+        return true;
+      }
+    } catch (Exception e) {
+      System.out.println("Error when reading listing cache! " + e);
+    }
+    close();
+    return false;
+  }
+
+  /**
+   * Lists only the names within the directory and classifies each entry by its extension
+   */
+  private void listNames() {
+    this.rows = new ExplorerModel();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.dirPath)) {
+      for (Path entry : stream) {
+        String name = entry.getFileName().toString();
+        String ext = ImageChecker.getExtension(entry);
+        if (ImageChecker.hasImageExtension(ext)) {
+          this.rows.add(name, imageFlag(name), 0, 0);
+        } else if (!ImageChecker.hasOtherExtension(ext)) {
+          // Only entries without a known extension are looked at to find directories and extensionless images
+          try {
+            BasicFileAttributes attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+            if (attrs.isDirectory())
+              this.rows.add(name, (byte)(ExplorerModel.DIR | ExplorerModel.PENDING), 0, 0);
+            else if (attrs.isRegularFile() && ImageChecker.isImage(entry, attrs))
+              this.rows.add(name, imageFlag(name), 0, 0);
+          } catch (Exception e) {
+            // The entry was removed while listing
+          }
+        }
+      }
+    } catch (Exception e) {
+      System.out.println("Error when listing directory! " + e);
+    }
+    this.rows.sort();
+    this.total = this.rows.size();
+  }
+
+  /**
+   * Takes the rows from a regular scan of the directory
+   * @param DirectoryListing listing Listing of the directory
+   */
+  private void listScanned(DirectoryListing listing) {
+    this.rows = new ExplorerModel();
+    for (String subdir : listing.getSubdirs())
+      this.rows.add(subdir, (byte)(ExplorerModel.DIR | ExplorerModel.PENDING), 0, 0);
+    for (int i=0; i < listing.getImages().size(); i++)
+      this.rows.add(listing.getImages().get(i), listing.isCompleted(i) ? ExplorerModel.COMPLETED : 0, 0, 0);
+    this.rows.sort();
+    this.total = this.rows.size();
+  }
+
+  /**
+   * Returns the flags of an image row with the completion of the image
+   * @param  String name          Name of the image
+   * @return        Flags of the image row
+   */
+  private byte imageFlag(String name) {
+    if (this.saves == null)
+      this.saves = new SaveLookup(this.saveDirPath);
+    return this.saves.contains(ScrollList.convertToSaveName(name)) ? ExplorerModel.COMPLETED : 0;
+  }
+
+  /**
+   * Reads the next page of sorted rows. Directory rows are marked as pending, since their completion is counted separately
+   * @param  int           max           Maximum number of rows to read
+   * @return               Rows of the page, which come after every row of the previous pages
+   */
+  public ExplorerModel nextPage(int max) {
+    ExplorerModel page = new ExplorerModel();
+    try {
+      while (page.size() < max && hasNext()) {
+        if (this.rows != null) {
+          page.add(this.rows.getName(this.nextRow), this.rows.getFlags(this.nextRow), 0, 0);
+        } else {
+          // Each cached row is "D" for a directory or "I" for an image, followed by a tab and the name
+          String line = this.reader.readLine();
+          if (line == null) {
+            this.total = this.nextRow;
+            break;
+          }
+          String name = line.substring(2);
+          if (line.charAt(0) == 'D')
+            page.add(name, (byte)(ExplorerModel.DIR | ExplorerModel.PENDING), 0, 0);
+          else
+            page.add(name, imageFlag(name), 0, 0);
+        }
+        this.nextRow++;
+      }
+    } catch (Exception e) {
+      System.out.println("Error when reading listing cache! " + e);
+      this.total = this.nextRow;
+    }
+    if (!hasNext())
+      close();
+    return page;
+  }
+
+  /**
+   * Returns whether or not there are rows left to read
+   * @return Whether or not there is another page
+   */
+  public boolean hasNext() {
+    return this.nextRow < this.total;
+  }
+
+  /**
+   * Returns the number of rows that have not been read yet
+   * @return Number of remaining rows
+   */
+  public int getRemaining() {
+    return this.total-this.nextRow;
+  }
+
+  /**
+   * Writes the sorted listing to the cache if the directory was listed by name because it is large
+   */
+  public void writeCache() {
+    if (!this.writeCache)
+      return;
+    this.writeCache = false;
+
+    Path tempFile = this.cacheFile.resolveSibling(this.cacheFile.getFileName() + ".tmp");
+    try {
+      Files.createDirectories(this.cacheFile.getParent());
+      try (PrintWriter pw = new PrintWriter(Files.newBufferedWriter(tempFile))) {
+        pw.println(DirectoryPager.CACHE_HEADER);
+        pw.println(this.key);
+        pw.println(this.modified);
+        pw.println(this.rows.size());
+        for (int i=0; i < this.rows.size(); i++)
+          pw.println((this.rows.isDirectory(i) ? "D\t" : "I\t") + this.rows.getName(i));
+      }
+      Files.move(tempFile, this.cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (Exception e) {
+      System.out.println("Error when writing listing cache! " + e);
+    }
+  }
+
+  /**
+   * Closes the cached listing if it is open
+   */
+  public void close() {
+    try {
+      if (this.reader != null)
+        this.reader.close();
+    } catch (Exception e) {
+      System.out.println("Error when closing listing cache! " + e);
+    }
+    this.reader = null;
+  }
+}
@@ -0,0 +1,52 @@
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
+
+/**
+ * Class containing a static method to list a single directory along with the completion of its images.
+ * The type of every entry is taken from the attributes read while walking the directory, so each
+ * entry is only looked up once and the directory stream is always closed
+ */
+public abstract class DirectoryScanner {
+
+  /**
+   * Lists all subdirectories and images directly within the directory and checks the completion of each image
+   * against a single listing of the matching save directory
+   * @param  Path    imgDir        Outermost image directory
+   * @param  Path    saveDir       Outermost save directory
+   * @param  Path    dirPath       Directory to scan
+   * @param  boolean keepImages    Whether or not to keep the name of each image in the listing, or only count the images
+   * @return         Listing of the directory
+   */
+  public static DirectoryListing scan(final Path imgDir, final Path saveDir, final Path dirPath, boolean keepImages) {
+    final DirectoryListing listing = new DirectoryListing(keepImages);
+    // Lists the matching save directory once so each image's completion is found in memory
+    final SaveLookup saves = new SaveLookup(saveDir.resolve(imgDir.relativize(dirPath)));
+    try {
+      // Links are followed so linked directories and images are listed the same as real ones
+      Files.walkFileTree(dirPath, EnumSet.of(FileVisitOption.FOLLOW_LINKS), 1, new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+          if (attrs.isDirectory()) {
+            listing.addSubdir(file.getFileName().toString());
+          } else if (attrs.isRegularFile() && ImageChecker.isImage(file, attrs)) {
+            String name = file.getFileName().toString();
+            listing.addImage(name, saves.contains(ScrollList.convertToSaveName(name)));
+          }
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException e) {
+          if (file.equals(dirPath))
+            System.out.println("Error when scanning directory! " + e);
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    } catch (Exception e) {
+      System.out.println("Error when scanning directory! " + e);
+    }
+    return listing;
+  }
+}
@@ -0,0 +1,309 @@
+import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Class that watches the image and save directories in the background and passes any changes to the scroll list.
+ * Every directory in both trees is registered with a watch service. Events are collected until the
+ * directories have been quiet for a short time and are then sent to the list together as a single batch.
+ * Directories that cannot be registered, such as once the system watch limit is reached, are remembered
+ * so the list can check them for changes itself while they are shown
+ */
+public class DirectoryWatcher implements Runnable {
+
+  private ScrollList list;                    // Scroll list to send the changes to
+  private CompletionIndex index;              // Completion index used to find the directories of the image tree
+  private Path imgDir;                        // Outermost image directory
+  private Path saveDir;                       // Outermost save directory
+  private WatchService watchService;          // Watch service that all directories are registered with
+  private HashMap<WatchKey, Path> watched;    // All registered directories keyed by their watch key
+  private HashSet<Path> watchedDirs;          // All registered directories
+  private boolean registerFailed;             // Whether or not a directory has failed to register (i.e. the system watch limit was reached)
+  private Set<Path> unwatchedDirs;            // Directories that failed to register, which is also read from the event dispatch thread
+  private WatchKey saveParentKey;             // Key for the parent of the save directory while the save directory does not exist
+  private HashSet<Path> changedImgPaths;      // Paths within the image directory changed since the last batch
+  private HashSet<Path> changedSavePaths;     // Paths within the save directory changed since the last batch
+  private boolean overflowed;                 // Whether or not any events were lost since the last batch
+  private Thread thread;                      // Background thread that the watcher runs on
+  public static final int QUIET_DELAY = 500;  // Milliseconds without events before a batch is sent
+  public static final int MAX_DELAY = 2000;   // Maximum milliseconds to hold a batch while events keep arriving
+
+  /**
+   * Initializes a watcher for the given image and save directories. The watcher does not start until start() is called
+   * @param  ScrollList      aList         Scroll list to send changes to
+   * @param  CompletionIndex compIndex     Completion index of the image directory
+   * @param  Path            imgPath       Outermost image directory
+   * @param  Path            savePath      Outermost save directory
+   */
+  public DirectoryWatcher(ScrollList aList, CompletionIndex compIndex, Path imgPath, Path savePath) {
+    this.list = aList;
+    this.index = compIndex;
+    this.imgDir = imgPath;
+    this.saveDir = savePath;
+    this.watched = new HashMap<WatchKey, Path>();
+    this.watchedDirs = new HashSet<Path>();
+    this.registerFailed = false;
+    this.unwatchedDirs = ConcurrentHashMap.newKeySet();
+    this.saveParentKey = null;
+    this.changedImgPaths = new HashSet<Path>();
+    this.changedSavePaths = new HashSet<Path>();
+    this.overflowed = false;
+  }
+
+  /**
+   * Starts watching both directory trees on a background thread
+   */
+  public void start() {
+    try {
+      this.watchService = FileSystems.getDefault().newWatchService();
+    } catch (Exception e) {
+      System.out.println("Error when starting the directory watcher! " + e);
+      return;
+    }
+
+    this.thread = new Thread(this, "FrameIt directory watcher");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  /**
+   * Registers both directory trees and then waits for events and sends them to the scroll list in batches
+   */
+  public void run() {
+    // Nested save directories are registered along with their image directories
+    if (Files.isDirectory(this.saveDir))
+      register(this.saveDir);
+    else
+      registerSaveDir();
+    registerTree(this.imgDir);
+
+    try {
+      while (true) {
+        // Blocks until the first event of a new batch
+        handleKey(this.watchService.take());
+
+        // Keeps collecting events until there is a quiet period or the batch has been held too long
+        long batchStart = System.currentTimeMillis();
+        WatchKey key;
+        while (System.currentTimeMillis()-batchStart < DirectoryWatcher.MAX_DELAY &&
+            (key = this.watchService.poll(DirectoryWatcher.QUIET_DELAY, TimeUnit.MILLISECONDS)) != null)
+          handleKey(key);
+
+        sendBatch();
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      // The watcher was stopped
+    }
+  }
+
+  /**
+   * Stops the watcher and closes the watch service
+   */
+  public void stop() {
+    try {
+      if (this.watchService != null)
+        this.watchService.close();
+    } catch (IOException e) {
+      System.out.println("Error when stopping the directory watcher! " + e);
+    }
+  }
+
+  /**
+   * Collects all events of a single watch key and registers any newly created directories
+   * @param WatchKey key Signalled watch key
+   */
+  public void handleKey(WatchKey key) {
+    if (key == this.saveParentKey) {
+      for (WatchEvent<?> event : key.pollEvents()) {
+        if (this.saveDir.getFileName().equals(event.context()) || event.kind() == OVERFLOW)
+          registerSaveDir();
+      }
+      if (!key.reset() || this.saveParentKey != key)
+        key.cancel();
+      return;
+    }
+
+    Path dir = this.watched.get(key);
+    if (dir == null) {
+      key.cancel();
+      return;
+    }
+
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == OVERFLOW) {
+        // Directories created during the lost events are found by walking the directory again
+        this.overflowed = true;
+        if (dir.startsWith(this.imgDir))
+          registerTree(dir);
+        else
+          registerAll(dir);
+        continue;
+      }
+      Path child = dir.resolve((Path)event.context());
+      addChange(child);
+      if (event.kind() == ENTRY_CREATE && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+        if (child.startsWith(this.imgDir))
+          registerTree(child);
+        else
+          registerAll(child);
+      }
+    }
+
+    // Removes the directory once it can no longer be watched (i.e. it was deleted)
+    if (!key.reset()) {
+      this.watched.remove(key);
+      this.watchedDirs.remove(dir);
+      this.unwatchedDirs.remove(dir);
+    }
+  }
+
+  /**
+   * Adds a changed path to the current batch
+   * @param Path path Changed path within either directory tree
+   */
+  public void addChange(Path path) {
+    if (path.startsWith(this.imgDir))
+      this.changedImgPaths.add(path);
+    else
+      this.changedSavePaths.add(path);
+  }
+
+  /**
+   * Hands the current batch over to the scroll list on the event dispatch thread and starts a new batch
+   */
+  public void sendBatch() {
+    final HashSet<Path> imgPaths = this.changedImgPaths;
+    final HashSet<Path> savePaths = this.changedSavePaths;
+    final boolean overflow = this.overflowed;
+    this.changedImgPaths = new HashSet<Path>();
+    this.changedSavePaths = new HashSet<Path>();
+    this.overflowed = false;
+    if (imgPaths.isEmpty() && savePaths.isEmpty() && !overflow)
+      return;
+
+    SwingUtilities.invokeLater(new Runnable() {
+      @Override
+      public void run() {
+        list.applyChanges(imgPaths, savePaths, overflow);
+      }
+    });
+  }
+
+  /**
+   * Registers the save directory and everything in it if it exists. Otherwise, watches its parent until it is created
+   */
+  public void registerSaveDir() {
+    if (Files.isDirectory(this.saveDir)) {
+      if (this.saveParentKey != null) {
+        this.saveParentKey.cancel();
+        this.saveParentKey = null;
+      }
+      registerAll(this.saveDir);
+    } else if (this.saveParentKey == null) {
+      try {
+        this.saveParentKey = this.saveDir.getParent().register(this.watchService, ENTRY_CREATE);
+      } catch (Exception e) {
+        System.out.println("Error when watching for the save directory! " + e);
+      }
+    }
+  }
+
+  /**
+   * Registers a single directory with the watch service
+   * @param  Path    dir           Directory to register
+   * @return         Whether or not the directory was newly registered
+   */
+  public boolean register(Path dir) {
+    if (this.watchedDirs.contains(dir))
+      return false;
+    try {
+      WatchKey key = dir.register(this.watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+      this.watched.put(key, dir);
+      this.watchedDirs.add(dir);
+      this.unwatchedDirs.remove(dir);
+      return true;
+    } catch (Exception e) {
+      // Only reports the first failure, since a full watch limit fails every following directory
+      if (!this.registerFailed)
+        System.out.println("Error when registering directories with the watcher! Unwatched directories are checked while shown instead. " + e);
+      this.registerFailed = true;
+      this.unwatchedDirs.add(dir);
+      return false;
+    }
+  }
+
+  /**
+   * Returns whether or not every directory within the given image directory and its save directory is watched,
+   * so the changes made within them are sure to be sent to the list. Can be called from any thread
+   * @param  Path    dirPath       Image directory to check
+   * @return         Whether or not all changes within the directory are watched
+   */
+  public boolean isFullyWatched(Path dirPath) {
+    if (this.unwatchedDirs.isEmpty())
+      return true;
+    Path saveMirror = this.index.getSaveDir(dirPath);
+    for (Path dir : this.unwatchedDirs) {
+      if (dir.startsWith(dirPath) || dir.startsWith(saveMirror))
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * Registers an image directory and all directories within it, along with their matching save directories.
+   * The directories are found through the completion index so that no files have to be visited.
+   * Each directory is registered before it is looked up, so nothing created in between goes unreported
+   * @param Path start Image directory to register
+   */
+  public void registerTree(Path start) {
+    if (!Files.isDirectory(start))
+      return;
+    register(start);
+    Path saveMirror = this.index.getSaveDir(start);
+    if (Files.isDirectory(saveMirror))
+      register(saveMirror);
+    DirCompletionEntry entry = this.index.getEntry(start);
+    if (entry == null)
+      return;
+    for (String subdir : entry.getSubdirs())
+      registerTree(start.resolve(subdir));
+  }
+
+  /**
+   * Registers a newly created directory within the save directory and all directories within it.
+   * Everything found inside is added to the batch, since it may have been created before the directory was registered
+   * @param Path start Directory to register
+   */
+  public void registerAll(Path start) {
+    try {
+      Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+          register(dir);
+          addChange(dir);
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+          addChange(file);
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException e) {
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    } catch (Exception e) {
+      System.out.println("Error when registering directories with the watcher! " + e);
+    }
+  }
+}
@@ -0,0 +1,333 @@
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Data-only model of the entries of the directory currently shown in the scroll list.
+ * Each entry is a row in a set of parallel arrays holding its name, its state flags and, for directories,
+ * its completion counts. No objects are kept per entry other than its name, so very large directories only
+ * cost a few bytes per entry on top of the names. The first row is always the ".." entry of the parent directory,
+ * and every row after it is kept sorted by name
+ */
+public class ExplorerModel {
+
+  private String[] names;       // Display name of each row
+  private String[] labels;      // Text drawn for each directory row, built once its completion is known (null until first drawn)
+  private byte[] flags;         // State flags of each row
+  private int[] completeNums;   // Number of completed images within each directory row
+  private int[] fileNums;       // Total number of images within each directory row
+  private int size;             // Number of rows in the model
+
+  public static final byte DIR = 1;         // Flag for a row that is a directory
+  public static final byte COMPLETED = 2;   // Flag for a row that is completed
+  public static final byte PENDING = 4;     // Flag for a directory row whose completion is still being counted
+  public static final byte PARENT = 8;      // Flag for the ".." row of the parent directory
+
+  /**
+   * Initializes an empty model
+   */
+  public ExplorerModel() {
+    this.names = new String[16];
+    this.labels = new String[16];
+    this.flags = new byte[16];
+    this.completeNums = new int[16];
+    this.fileNums = new int[16];
+    this.size = 0;
+  }
+
+  /**
+   * Removes every row from the model
+   */
+  public void clear() {
+    Arrays.fill(this.names, 0, this.size, null);
+    Arrays.fill(this.labels, 0, this.size, null);
+    this.size = 0;
+  }
+
+  /**
+   * Returns the number of rows in the model
+   * @return Number of rows
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Adds a row to the end of the model without keeping the rows sorted. sort() should be called once all rows are added
+   * @param  String name          Display name of the row
+   * @param  byte   flag          State flags of the row
+   * @param  int    complete      Number of completed images (directories only)
+   * @param  int    total         Total number of images (directories only)
+   * @return        Index of the new row
+   */
+  public int add(String name, byte flag, int complete, int total) {
+    ensureCapacity(this.size+1);
+    setRow(this.size, name, flag, complete, total);
+    return this.size++;
+  }
+
+  /**
+   * Adds a row in its sorted position
+   * @param  String name          Display name of the row
+   * @param  byte   flag          State flags of the row
+   * @param  int    complete      Number of completed images (directories only)
+   * @param  int    total         Total number of images (directories only)
+   * @return        Index of the new row
+   */
+  public int insert(String name, byte flag, int complete, int total) {
+    int idx = lowerBound(name);
+    ensureCapacity(this.size+1);
+    int moved = this.size-idx;
+    System.arraycopy(this.names, idx, this.names, idx+1, moved);
+    System.arraycopy(this.labels, idx, this.labels, idx+1, moved);
+    System.arraycopy(this.flags, idx, this.flags, idx+1, moved);
+    System.arraycopy(this.completeNums, idx, this.completeNums, idx+1, moved);
+    System.arraycopy(this.fileNums, idx, this.fileNums, idx+1, moved);
+    setRow(idx, name, flag, complete, total);
+    this.size++;
+    return idx;
+  }
+
+  /**
+   * Removes the row at the given index
+   * @param int idx Index of the row to remove
+   */
+  public void remove(int idx) {
+    int moved = this.size-idx-1;
+    System.arraycopy(this.names, idx+1, this.names, idx, moved);
+    System.arraycopy(this.labels, idx+1, this.labels, idx, moved);
+    System.arraycopy(this.flags, idx+1, this.flags, idx, moved);
+    System.arraycopy(this.completeNums, idx+1, this.completeNums, idx, moved);
+    System.arraycopy(this.fileNums, idx+1, this.fileNums, idx, moved);
+    this.size--;
+    this.names[this.size] = null;
+    this.labels[this.size] = null;
+  }
+
+  /**
+   * Alphanumerically sorts every row after the parent row by name
+   */
+  public void sort() {
+    int first = firstSortedRow();
+    Integer[] order = new Integer[this.size-first];
+    for (int i=0; i < order.length; i++)
+      order[i] = first+i;
+    final String[] sortNames = this.names;
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        return sortNames[a].compareTo(sortNames[b]);
+      }
+    });
+
+    // Rebuilds each array in the sorted order
+    String[] newNames = new String[this.names.length];
+    String[] newLabels = new String[this.labels.length];
+    byte[] newFlags = new byte[this.flags.length];
+    int[] newCompleteNums = new int[this.completeNums.length];
+    int[] newFileNums = new int[this.fileNums.length];
+    for (int i=0; i < first; i++) {
+      newNames[i] = this.names[i];
+      newLabels[i] = this.labels[i];
+    }
+    System.arraycopy(this.flags, 0, newFlags, 0, first);
+    System.arraycopy(this.completeNums, 0, newCompleteNums, 0, first);
+    System.arraycopy(this.fileNums, 0, newFileNums, 0, first);
+    for (int i=0; i < order.length; i++) {
+      int row = order[i];
+      newNames[first+i] = this.names[row];
+      newLabels[first+i] = this.labels[row];
+      newFlags[first+i] = this.flags[row];
+      newCompleteNums[first+i] = this.completeNums[row];
+      newFileNums[first+i] = this.fileNums[row];
+    }
+    this.names = newNames;
+    this.labels = newLabels;
+    this.flags = newFlags;
+    this.completeNums = newCompleteNums;
+    this.fileNums = newFileNums;
+  }
+
+  /**
+   * Finds the row with the given name
+   * @param  String name          Name to search for
+   * @return        Index of the row or -1 if there is none
+   */
+  public int indexOf(String name) {
+    int idx = lowerBound(name);
+    if (idx < this.size && this.names[idx].equals(name))
+      return idx;
+    else
+      return -1;
+  }
+
+  /**
+   * Finds the first sorted row with a name greater than or equal to the given name
+   * @param  String name          Name to search for
+   * @return        Index of the first row not before the name
+   */
+  public int lowerBound(String name) {
+    int low = firstSortedRow();
+    int high = this.size;
+    while (low < high) {
+      int mid = (low+high) >>> 1;
+      if (this.names[mid].compareTo(name) < 0)
+        low = mid+1;
+      else
+        high = mid;
+    }
+    return low;
+  }
+
+  /**
+   * Returns the display name of the row
+   * @param  int idx           Index of the row
+   * @return     Name of the row
+   */
+  public String getName(int idx) {
+    return this.names[idx];
+  }
+
+  /**
+   * Returns the text drawn for the row, which is its name followed by the completion of directory rows
+   * @param  int idx           Index of the row
+   * @return     Text of the row
+   */
+  public String getLabel(int idx) {
+    if (!isDirectory(idx) || isParent(idx))
+      return this.names[idx];
+    // The label is kept until the completion of the row changes, so drawing the row again does not build a new string
+    if (this.labels[idx] == null) {
+      if (isPending(idx))
+        this.labels[idx] = this.names[idx] + "  ...";
+      else
+        this.labels[idx] = this.names[idx] + "  " + this.completeNums[idx] + "/" + this.fileNums[idx];
+    }
+    return this.labels[idx];
+  }
+
+  /**
+   * Returns whether or not the row is a directory (including the parent row)
+   * @param  int idx           Index of the row
+   * @return     Whether or not the row is a directory
+   */
+  public boolean isDirectory(int idx) {
+    return (this.flags[idx] & (ExplorerModel.DIR | ExplorerModel.PARENT)) != 0;
+  }
+
+  /**
+   * Returns whether or not the row is the ".." row of the parent directory
+   * @param  int idx           Index of the row
+   * @return     Whether or not the row is the parent row
+   */
+  public boolean isParent(int idx) {
+    return (this.flags[idx] & ExplorerModel.PARENT) != 0;
+  }
+
+  /**
+   * Returns whether or not the row has been completed
+   * @param  int idx           Index of the row
+   * @return     Whether or not the row is completed
+   */
+  public boolean isCompleted(int idx) {
+    return (this.flags[idx] & ExplorerModel.COMPLETED) != 0;
+  }
+
+  /**
+   * Returns whether or not the completion of the directory row is still being counted
+   * @param  int idx           Index of the row
+   * @return     Whether or not the row is pending
+   */
+  public boolean isPending(int idx) {
+    return (this.flags[idx] & ExplorerModel.PENDING) != 0;
+  }
+
+  /**
+   * Returns the state flags of the row
+   * @param  int idx           Index of the row
+   * @return     Flags of the row
+   */
+  public byte getFlags(int idx) {
+    return this.flags[idx];
+  }
+
+  /**
+   * Returns the number of completed images within the directory row
+   * @param  int idx           Index of the row
+   * @return     Number of completed images
+   */
+  public int getCompleteNum(int idx) {
+    return this.completeNums[idx];
+  }
+
+  /**
+   * Returns the total number of images within the directory row
+   * @param  int idx           Index of the row
+   * @return     Number of images
+   */
+  public int getFileNum(int idx) {
+    return this.fileNums[idx];
+  }
+
+  /**
+   * Sets the completion of an image row
+   * @param int     idx  Index of the row
+   * @param boolean comp Whether or not the image is completed
+   */
+  public void setCompleted(int idx, boolean comp) {
+    if (comp)
+      this.flags[idx] |= ExplorerModel.COMPLETED;
+    else
+      this.flags[idx] &= ~ExplorerModel.COMPLETED;
+  }
+
+  /**
+   * Sets the completion counts of a directory row, which is no longer pending afterwards
+   * @param int idx      Index of the row
+   * @param int complete Number of completed images within the directory
+   * @param int total    Total number of images within the directory
+   */
+  public void setCompletion(int idx, int complete, int total) {
+    this.completeNums[idx] = complete;
+    this.fileNums[idx] = total;
+    this.labels[idx] = null;
+    this.flags[idx] &= ~ExplorerModel.PENDING;
+    setCompleted(idx, complete == total);
+  }
+
+  /**
+   * Returns the index of the first row that is kept sorted (the row after the parent row)
+   * @return Index of the first sorted row
+   */
+  private int firstSortedRow() {
+    if (this.size > 0 && isParent(0))
+      return 1;
+    else
+      return 0;
+  }
+
+  /**
+   * Sets every value of a row
+   */
+  private void setRow(int idx, String name, byte flag, int complete, int total) {
+    this.names[idx] = name;
+    this.labels[idx] = null;
+    this.flags[idx] = flag;
+    this.completeNums[idx] = complete;
+    this.fileNums[idx] = total;
+  }
+
+  /**
+   * Grows the arrays to hold at least the given number of rows
+   * @param int capacity Number of rows needed
+   */
+  private void ensureCapacity(int capacity) {
+    if (capacity <= this.names.length)
+      return;
+    int newLength = Math.max(capacity, this.names.length*2);
+    this.names = Arrays.copyOf(this.names, newLength);
+    this.labels = Arrays.copyOf(this.labels, newLength);
+    this.flags = Arrays.copyOf(this.flags, newLength);
+    this.completeNums = Arrays.copyOf(this.completeNums, newLength);
+    this.fileNums = Arrays.copyOf(this.fileNums, newLength);
+  }
+}
@@ -1,6 +1,11 @@
 import java.awt.*;
+import java.awt.event.*;
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.function.Consumer;
 
 /**
  * Class that allows the navigation of the image directory and all image files within
@@ -13,6 +18,13 @@ public class FileExplorer extends JPanel {
   private ScrollBox scrollBox;    // The scroll box containing the list of all files and scroll bar
   private AppButton openButton;   // The open button at the top of the file explorer
   private ImageMarker imgEditor;  // The image editor of the application (used in class to send image paths to open)
+  private Path imgDir;            // Path to the outermost image directory
+  private Path saveDir;           // Path to the folder save files are stored in
+  private JTextField searchField; // Search box at the bottom of the file explorer to find images by name
+  private ArrayList<Path> searchMatches;  // Images matching the current search
+  private int searchMatchIdx;     // Index of the currently shown match in the search matches
+  private int searchGeneration;   // Number of the current search, used to ignore results of previous searches
+  public static final int MAX_SEARCH_MATCHES = 1000;  // Maximum number of matches kept for a search
 
   /**
    * Initializes a file explorer with the given size and starting from the given directory
@@ -30,9 +42,11 @@ public class FileExplorer extends JPanel {
     this.openButtonHeight = h/25;
 
     this.imgEditor = editor;
+    this.imgDir = imgDir;
+    this.saveDir = saveDir;
 
     // Initializes the scroll box and adds it to the file explorer JPanel
-    this.scrollBox = new ScrollBox(this, this.imgEditor, imgDir, saveDir, this.width, this.height-this.openButtonHeight);
+    this.scrollBox = new ScrollBox(this, this.imgEditor, imgDir, saveDir, this.width, this.height-2*this.openButtonHeight);
     add(scrollBox, BorderLayout.CENTER);
 
     // Initializes the open button with its function and adds it to the JPanel
@@ -51,6 +65,75 @@ public class FileExplorer extends JPanel {
       }
     });
     add(openButton, BorderLayout.NORTH);
+
+    // Initializes the search box, which jumps to the first match while typing and to the next match on enter
+    this.searchMatches = new ArrayList<Path>();
+    this.searchMatchIdx = 0;
+    this.searchGeneration = 0;
+    this.searchField = new JTextField();
+    this.searchField.setToolTipText("Search images by name (enter shows the next match)");
+    this.searchField.setPreferredSize(new Dimension(this.width, this.openButtonHeight));
+    this.searchField.getDocument().addDocumentListener(new DocumentListener() {
+      @Override
+      public void insertUpdate(DocumentEvent e) {
+        search(searchField.getText());
+      }
+
+      @Override
+      public void removeUpdate(DocumentEvent e) {
+        search(searchField.getText());
+      }
+
+      @Override
+      public void changedUpdate(DocumentEvent e) {
+      }
+    });
+    this.searchField.addActionListener(new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        showNextMatch();
+      }
+    });
+    add(this.searchField, BorderLayout.SOUTH);
+  }
+
+  /**
+   * Searches every image by name and shows the first match
+   * @param String query Text to search for, ignoring case
+   */
+  public void search(String query) {
+    final int generation = ++this.searchGeneration;
+    this.searchMatches = new ArrayList<Path>();
+    this.searchMatchIdx = 0;
+    if (query.trim().isEmpty()) {
+      this.searchField.setBackground(Color.WHITE);
+      return;
+    }
+
+    this.scrollBox.searchImages(query, FileExplorer.MAX_SEARCH_MATCHES, new Consumer<ArrayList<Path>>() {
+      @Override
+      public void accept(ArrayList<Path> matches) {
+        // Ignores the results of a search that has since been replaced
+        if (generation != searchGeneration)
+          return;
+        searchMatches = matches;
+        searchMatchIdx = 0;
+        // Highlights the search box when nothing matches
+        searchField.setBackground(matches.isEmpty() ? Palette.NO_MATCH : Color.WHITE);
+        if (!matches.isEmpty())
+          scrollBox.showPath(matches.get(0));
+      }
+    });
+  }
+
+  /**
+   * Shows the match after the currently shown match of the search, going back to the first after the last
+   */
+  public void showNextMatch() {
+    if (this.searchMatches.isEmpty())
+      return;
+    this.searchMatchIdx = (this.searchMatchIdx+1) % this.searchMatches.size();
+    this.scrollBox.showPath(this.searchMatches.get(this.searchMatchIdx));
   }
 
   /**
@@ -78,26 +161,77 @@ public class FileExplorer extends JPanel {
     setPreferredSize(new Dimension(this.width, this.height));
 
     // Resizes the inner components
-    this.scrollBox.resizeBox(this.width, this.height-this.openButtonHeight);
+    this.scrollBox.resizeBox(this.width, this.height-2*this.openButtonHeight);
     this.openButton.resizeButton(this.width, this.openButtonHeight);
+    this.searchField.setPreferredSize(new Dimension(this.width, this.openButtonHeight));
 
     repaint();
   }
 
   /**
-   * Opens the list item that is after the currently selected item as an image
-   * in the image editor
+   * Attaches a film strip that shows the rows of the file explorer with thumbnails
+   * @param FilmStrip strip Film strip to attach
+   */
+  public void setFilmStrip(FilmStrip strip) {
+    this.scrollBox.setFilmStrip(strip);
+  }
+
+  /**
+   * Opens the next image that has not been completed after the currently opened image in the image editor.
+   * The search goes on into the following directories and back to the first image after the last one,
+   * and the list moves to the directory of the image so it is shown and selected
    */
   public void openNext() {
-    ListItem selected = this.scrollBox.getNextSelected();
-    if (selected == null)
-      return;
+    Path from = this.imgEditor.getOpenedPath();
+    if (from == null) {
+      ListItem selected = this.scrollBox.getSelected();
+      from = selected != null ? selected.getPath() : null;
+    }
+    openNextAfter(from);
+  }
 
-    if (!selected.isCompleted())
-      imgEditor.openImage(selected);
-    else
-      imgEditor.openCompletedImage(selected);
-    repaint();
+  /**
+   * Opens the next image that has not been completed after the given path. The save file of the found image is
+   * checked again, since the index may not know of a save yet, and an image that turns out to be completed is
+   * marked as completed and skipped so the search goes on after it
+   * @param Path from Path of the image or directory to start after (null to start at the beginning)
+   */
+  public void openNextAfter(Path from) {
+    this.scrollBox.findNextIncomplete(from, new Consumer<Path>() {
+      @Override
+      public void accept(Path next) {
+        if (next == null) {
+          System.out.println("Every image has been completed!");
+          return;
+        }
+        if (ScrollList.checkFileCompletion(ScrollList.convertToSavePath(imgDir, saveDir, next))) {
+          // Each skipped image is marked first, so the search cannot find it again
+          scrollBox.noteCompleted(next);
+          openNextAfter(next);
+          return;
+        }
+        scrollBox.showPath(next);
+        openImage(new ListItem(next, next.getFileName().toString(), false, false));
+        repaint();
+      }
+    });
+  }
+
+  /**
+   * Finds the images that would be opened next after the given image, so they can be decoded ahead of time
+   * @param Path                     from     Path of the image to start after
+   * @param int                      max      Maximum number of images to find
+   * @param Consumer<ArrayList<Path>> callback Function that receives the paths of the images on the event dispatch thread
+   */
+  public void findUpcomingImages(Path from, int max, Consumer<ArrayList<Path>> callback) {
+    this.scrollBox.findUpcomingImages(from, max, callback);
+  }
+
+  /**
+   * Stops the contained list from watching the image and save directories, which is done before the program exits
+   */
+  public void stopWatching() {
+    this.scrollBox.stopWatching();
   }
 
   /**
@@ -108,6 +242,16 @@ public class FileExplorer extends JPanel {
     this.scrollBox.reloadList();
   }
 
+  /**
+   * Passes a newly completed image to the contained list so it can update the image
+   * and the directories above it without reloading the list
+   * @param Path imgPath      Path of the image that was just completed
+   * @param long saveModified Modification time of the save directory from before the save file was written
+   */
+  public void markCompleted(Path imgPath, long saveModified) {
+    this.scrollBox.markCompleted(imgPath, saveModified);
+  }
+
   @Override
   public Dimension getPreferredSize() {
     return new Dimension(this.width, this.height);
@@ -0,0 +1,221 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+/**
+ * Class that shows the rows of the scroll list side by side with a thumbnail of each image, below the image marker.
+ * Like the list, the strip has no component for each entry and only draws the cells that are visible,
+ * so only the thumbnails of those cells are ever read or made. Each cell has the same colored label as its row in the list.
+ * Clicking a cell selects its row in the list, and double clicking opens it
+ */
+public class FilmStrip extends JComponent implements MouseListener, MouseWheelListener {
+
+  private int width;                  // Total width of the strip
+  private int height;                 // Total height of the strip
+  private ImageMarker imgEditor;      // Image marker that images open in
+  private ScrollList list;            // Scroll list whose rows are shown (null until the list is attached)
+  private ThumbnailCache thumbnails;  // Cache that the thumbnails are read from
+  private ListItemPainter painter;    // Painter that draws the label of each cell
+  private int startIdx;               // Index in the list's model of the first displayed cell
+  private Runnable repaintTask;       // Function that repaints the strip once a thumbnail is loaded
+  public static final int PADDING = 4;       // Space around each thumbnail
+  public static final int LABEL_HEIGHT = 18; // Height of the label below each thumbnail
+  public static final int CELL_WIDTH = ThumbnailCache.THUMB_SIZE+2*FilmStrip.PADDING;  // Width of each cell
+  public static final int STRIP_HEIGHT = ThumbnailCache.THUMB_SIZE+2*FilmStrip.PADDING+FilmStrip.LABEL_HEIGHT;  // Height of the strip
+  public static final int WHEEL_CELLS = 2;   // Number of cells scrolled by each notch of the mouse wheel
+
+  /**
+   * Initializes an empty film strip
+   * @param  ImageMarker editor        Image marker that images open in
+   * @param  Path        saveDir       Directory to save files in, next to which the thumbnails are stored
+   * @param  int         w             Pixel width of the strip
+   */
+  public FilmStrip(ImageMarker editor, Path saveDir, int w) {
+    this.width = w;
+    this.height = FilmStrip.STRIP_HEIGHT;
+    setPreferredSize(new Dimension(this.width, this.height));
+    this.imgEditor = editor;
+    this.list = null;
+    this.thumbnails = new ThumbnailCache(saveDir);
+    this.painter = new ListItemPainter();
+    this.startIdx = 0;
+    this.repaintTask = new Runnable() {
+      @Override
+      public void run() {
+        repaint();
+      }
+    };
+
+    addMouseListener(this);
+    addMouseWheelListener(this);
+  }
+
+  /**
+   * Resizes the strip to the given width
+   * @param int w New width of the strip
+   */
+  public void resizeStrip(int w) {
+    this.width = w;
+    setPreferredSize(new Dimension(this.width, this.height));
+    showFrom(this.startIdx);
+  }
+
+  /**
+   * Attaches the scroll list whose rows are shown
+   * @param ScrollList rows Scroll list to show
+   */
+  public void setList(ScrollList rows) {
+    this.list = rows;
+    this.startIdx = 0;
+    repaint();
+  }
+
+  /**
+   * Returns the number of cells that fit within the strip, including one that is only partly shown
+   * @return Number of displayed cells
+   */
+  public int visibleCells() {
+    return this.width/FilmStrip.CELL_WIDTH+1;
+  }
+
+  /**
+   * Shows the cells starting from the given index
+   * @param int idx Index in the list's model of the first cell to show
+   */
+  public void showFrom(int idx) {
+    int rows = this.list == null ? 0 : this.list.rowCount();
+    this.startIdx = Math.max(0, Math.min(idx, rows-this.width/FilmStrip.CELL_WIDTH));
+    repaint();
+  }
+
+  /**
+   * Scrolls the strip so the cell at the given index is displayed near the middle, unless it is already fully displayed
+   * @param int idx Index in the list's model to show
+   */
+  public void showIndex(int idx) {
+    int full = this.width/FilmStrip.CELL_WIDTH;
+    if (idx < this.startIdx || idx >= this.startIdx+full)
+      showFrom(idx-full/2);
+    else
+      repaint();
+  }
+
+  /**
+   * Returns the index of the cell displayed at the given X coordinate
+   * @param  int x             X coordinate to find the cell at
+   * @return     Index in the list's model of the cell, or -1 if there is no loaded row there
+   */
+  public int cellDisplayedAt(int x) {
+    if (this.list == null || x < 0)
+      return -1;
+    int idx = this.startIdx+x/FilmStrip.CELL_WIDTH;
+    return idx < this.list.getModel().size() ? idx : -1;
+  }
+
+  /**
+   * Selects the row of the cell under the mouse when the mouse is pressed
+   * @param MouseEvent e Current mouse event
+   */
+  public void mousePressed(MouseEvent e) {
+    int idx = cellDisplayedAt(e.getX());
+    if (idx >= 0) {
+      this.list.selectIndex(idx);
+      this.list.scrollToShow(idx);
+    }
+  }
+
+  /**
+   * Opens the directory or image under the mouse when double-clicked
+   * @param MouseEvent e Current mouse event
+   */
+  public void mouseClicked(MouseEvent e) {
+    if (e.getClickCount() == 2) {
+      int idx = cellDisplayedAt(e.getX());
+      if (idx >= 0)
+        this.list.openIndex(idx);
+    }
+  }
+
+  public void mouseReleased(MouseEvent e) {
+  }
+
+  public void mouseEntered(MouseEvent e) {
+  }
+
+  public void mouseExited(MouseEvent e) {
+  }
+
+  /**
+   * Scrolls the strip a fixed number of cells per notch of the mouse wheel
+   * @param MouseWheelEvent e Current mouse wheel event
+   */
+  public void mouseWheelMoved(MouseWheelEvent e) {
+    showFrom(this.startIdx+e.getWheelRotation()*FilmStrip.WHEEL_CELLS);
+  }
+
+  /**
+   * Returns the cache the thumbnails are read from
+   * @return Thumbnail cache of the strip
+   */
+  public ThumbnailCache getThumbnails() {
+    return this.thumbnails;
+  }
+
+  @Override
+  public void paintComponent(Graphics g) {
+    g.setColor(Palette.BACKGROUND);
+    g.fillRect(0, 0, this.width, this.height);
+    if (this.list == null)
+      return;
+
+    ExplorerModel model = this.list.getModel();
+    int endIdx = Math.min(this.startIdx+visibleCells(), this.list.rowCount());
+    int selectedIdx = this.list.getSelectedIndex();
+    Path openPath = this.imgEditor.getOpenedPath();
+    int thumbSize = ThumbnailCache.THUMB_SIZE;
+
+    // Only the thumbnails of the displayed cells are read, and any that scrolled out of view are skipped
+    ArrayList<Path> missing = new ArrayList<Path>();
+    ArrayList<Path> visible = new ArrayList<Path>();
+    for (int i=this.startIdx; i < endIdx; i++) {
+      int cellX = (i-this.startIdx)*FilmStrip.CELL_WIDTH;
+      int labelY = thumbSize+2*FilmStrip.PADDING;
+      // Rows that have not been added yet are drawn as placeholders until their page arrives
+      if (i >= model.size()) {
+        this.painter.paintPlaceholder(g, cellX, labelY, FilmStrip.CELL_WIDTH, FilmStrip.LABEL_HEIGHT);
+        continue;
+      }
+
+      Path path = this.list.getPath(i);
+      boolean open = !model.isDirectory(i) && path.equals(openPath);
+      if (!model.isDirectory(i)) {
+        visible.add(path);
+        BufferedImage thumb = this.thumbnails.get(path);
+        if (thumb == null) {
+          missing.add(path);
+          g.setColor(Palette.IMAGE_BACKGROUND);
+          g.fillRect(cellX+FilmStrip.PADDING, FilmStrip.PADDING, thumbSize, thumbSize);
+        } else {
+          // Thumbnails are centered within their square
+          g.drawImage(thumb, cellX+FilmStrip.PADDING+(thumbSize-thumb.getWidth())/2,
+              FilmStrip.PADDING+(thumbSize-thumb.getHeight())/2, null);
+        }
+      }
+      this.painter.paintItem(g, model, i, cellX, labelY, FilmStrip.CELL_WIDTH, FilmStrip.LABEL_HEIGHT, i == selectedIdx, open);
+    }
+
+    this.thumbnails.setWanted(visible);
+    for (Path path : missing)
+      this.thumbnails.request(path, this.repaintTask);
+    // Reads the next page of the directory before the strip reaches the end of the added rows
+    this.list.loadRowsTo(endIdx);
+  }
+
+  @Override
+  public Dimension getPreferredSize() {
+    return new Dimension(this.width, this.height);
+  }
+}
@@ -1,28 +1,195 @@
-import javax.activation.MimetypesFileTypeMap;
-import java.io.File;
+import java.io.InputStream;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
 
 /**
- * Class containing a static method to check if the given path is an image or not
+ * Class containing static methods to check if the given path is an image or not.
+ * The file extension is checked first, and only files with unknown extensions have their
+ * first few bytes read and compared to the headers of the common image formats
  */
 public abstract class ImageChecker {
 
+  // Extensions that are always treated as images
+  private static final HashSet<String> IMAGE_EXTENSIONS = new HashSet<String>(Arrays.asList(
+      "jpg", "jpeg", "jpe", "jfif", "png", "gif", "bmp", "dib", "wbmp", "tif", "tiff", "webp"));
+  // Extensions that are never treated as images, so common files next to images are not opened
+  private static final HashSet<String> OTHER_EXTENSIONS = new HashSet<String>(Arrays.asList(
+      "txt", "csv", "json", "xml", "html", "htm", "md", "log", "ini", "db", "pdf", "zip", "gz", "tar",
+      "mp4", "mov", "avi", "mkv", "wav", "mp3", "java", "jar", "class"));
+  // Sizes of the BMP info headers, from the OS/2 core header to the version 5 header
+  private static final int[] BMP_INFO_SIZES = {12, 40, 52, 56, 64, 108, 124};
+  private static final int HEADER_LENGTH = 18;  // Number of bytes needed to recognize every supported header
+  public static final int CHECKED_HEADERS = 16384;  // Number of header checks remembered
+
+  // Recent header checks of files with unknown extensions keyed by path, from least to most recently used.
+  // Each value holds the modification time of the file shifted left by one, with the lowest bit set if the file was an image
+  private static final LinkedHashMap<Path, Long> checkedHeaders = new LinkedHashMap<Path, Long>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Path, Long> eldest) {
+      return size() > ImageChecker.CHECKED_HEADERS;
+    }
+  };
+
   /**
    * Returns whether or not the path is an image
    * @param  Path path          Path to the file to type check
    * @return      Whether or not the file type is an image
    */
   public static boolean isImage(Path path) {
-    try {
-      String mimetype = Files.probeContentType(path);
-      String type = mimetype.split("/")[0];
-      if (type.equals("image"))
-        return true;
-      else
-        return false;
+    String ext = getExtension(path);
+    if (ImageChecker.IMAGE_EXTENSIONS.contains(ext))
+      return true;
+    else if (ImageChecker.OTHER_EXTENSIONS.contains(ext))
+      return false;
+    else
+      return checkHeader(path, CompletionIndex.lastModified(path));
+  }
+
+  /**
+   * Returns whether or not the path is an image, using already read attributes of the file
+   * @param  Path                path          Path to the file to type check
+   * @param  BasicFileAttributes attrs         Attributes of the file
+   * @return                     Whether or not the file type is an image
+   */
+  public static boolean isImage(Path path, BasicFileAttributes attrs) {
+    String ext = getExtension(path);
+    if (ImageChecker.IMAGE_EXTENSIONS.contains(ext))
+      return true;
+    else if (ImageChecker.OTHER_EXTENSIONS.contains(ext))
+      return false;
+    else
+      return checkHeader(path, attrs.lastModifiedTime().toMillis());
+  }
+
+  /**
+   * Returns whether or not files with the given extension are always treated as images
+   * @param  String ext           Lower case extension without the dot
+   * @return        Whether or not the extension is an image extension
+   */
+  public static boolean hasImageExtension(String ext) {
+    return ImageChecker.IMAGE_EXTENSIONS.contains(ext);
+  }
+
+  /**
+   * Returns whether or not files with the given extension are never treated as images
+   * @param  String ext           Lower case extension without the dot
+   * @return        Whether or not the extension is a known extension of other files
+   */
+  public static boolean hasOtherExtension(String ext) {
+    return ImageChecker.OTHER_EXTENSIONS.contains(ext);
+  }
+
+  /**
+   * Returns the lower case extension of the file at the path
+   * @param  Path path          Path to the file
+   * @return      Extension of the file without the dot, or an empty string if there is none
+   */
+  public static String getExtension(Path path) {
+    String name = path.getFileName().toString();
+    int extIdx = name.lastIndexOf('.');
+    if (extIdx < 0)
+      return "";
+    else
+      return name.substring(extIdx+1).toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Checks the header of the file at the path, reusing the previous check if the file has not been modified since
+   * @param  Path path          Path to the file
+   * @param  long modified      Current modification time of the file
+   * @return      Whether or not the file starts with a known image header
+   */
+  public static boolean checkHeader(Path path, long modified) {
+    if (modified < 0)
+      return false;
+
+    Long checked;
+    synchronized (ImageChecker.checkedHeaders) {
+      checked = ImageChecker.checkedHeaders.get(path);
+    }
+    if (checked != null && (checked >> 1) == modified)
+      return (checked & 1) == 1;
+
+    boolean image = false;
+    try (InputStream in = Files.newInputStream(path)) {
+      byte[] header = new byte[ImageChecker.HEADER_LENGTH];
+      // Reads until the header is full or the file ends, since a single read may return fewer bytes
+      int length = 0;
+      int count;
+      while (length < header.length && (count = in.read(header, length, header.length-length)) > 0)
+        length += count;
+      image = isImageHeader(header, length);
     } catch (Exception e) {
       System.out.println("Error checking file type! " + e);
+    }
+    synchronized (ImageChecker.checkedHeaders) {
+      ImageChecker.checkedHeaders.put(path, (modified << 1) | (image ? 1 : 0));
+    }
+    return image;
+  }
+
+  /**
+   * Compares the given bytes to the headers of JPEG, PNG, GIF, BMP, TIFF and WebP images
+   * @param  byte[] header        First bytes of the file
+   * @param  int    length        Number of bytes that were read
+   * @return        Whether or not the bytes are the start of an image
+   */
+  public static boolean isImageHeader(byte[] header, int length) {
+    // JPEG
+    if (startsWith(header, length, 0xFF, 0xD8, 0xFF))
+      return true;
+    // PNG
+    if (startsWith(header, length, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A))
+      return true;
+    // GIF87a and GIF89a
+    if (startsWith(header, length, 'G', 'I', 'F', '8') && length >= 6 && header[5] == 'a')
+      return true;
+    // BMP, whose info header size is checked since many other files start with "BM"
+    if (startsWith(header, length, 'B', 'M') && length >= 18 && isBmpInfoSize(header))
+      return true;
+    // Little and big endian TIFF
+    if (startsWith(header, length, 'I', 'I', 42, 0) || startsWith(header, length, 'M', 'M', 0, 42))
+      return true;
+    // WebP, which is a RIFF container with "WEBP" after the chunk size
+    if (startsWith(header, length, 'R', 'I', 'F', 'F') && length >= 12 &&
+        header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P')
+      return true;
+    return false;
+  }
+
+  /**
+   * Checks whether or not the little endian size at bytes 14 to 17 of a BMP header is the size of one of the known info headers
+   * @param  byte[] header        First bytes of the file, at least 18 of them
+   * @return        Whether or not the info header size is known
+   */
+  private static boolean isBmpInfoSize(byte[] header) {
+    int size = (header[14] & 0xFF) | (header[15] & 0xFF) << 8 | (header[16] & 0xFF) << 16 | (header[17] & 0xFF) << 24;
+    for (int known : ImageChecker.BMP_INFO_SIZES) {
+      if (size == known)
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * Checks whether or not the header starts with the given bytes
+   * @param  byte[] header        First bytes of the file
+   * @param  int    length        Number of bytes that were read
+   * @param  int... magic         Bytes to compare against
+   * @return        Whether or not the header starts with the bytes
+   */
+  private static boolean startsWith(byte[] header, int length, int... magic) {
+    if (length < magic.length)
       return false;
+    for (int i=0; i < magic.length; i++) {
+      if ((header[i] & 0xFF) != magic[i])
+        return false;
     }
+    return true;
   }
 }
@@ -1,26 +1,52 @@
 import javax.swing.*;
 import java.awt.event.*;
 import java.awt.*;
-import javax.imageio.ImageIO;
-import java.io.File;
 import java.awt.image.*;
 import java.util.LinkedList;
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.nio.file.*;
 
 /**
- * Class that holds the image within a container as well as keeping and operating the drawn boxes
+ * Class that holds the image within a container as well as keeping and operating the drawn boxes.
+ * The image can be zoomed with the mouse wheel and panned by dragging with the right or middle mouse button.
+ * Zooming and panning only change the scale and position the full image is displayed at, so the drawn boxes
+ * are mapped to the full image the same way at any zoom
  */
-public class ImageContainer extends JComponent implements MouseListener, MouseMotionListener {
+public class ImageContainer extends JComponent implements MouseListener, MouseMotionListener, MouseWheelListener {
 
   private int width;                            // Total width of the image container
   private int height;                           // Total height of the image container
   private int imgXPos;                          // Starting X coordinate of the image
   private int imgYPos;                          // Starting Y coordinate of the image
-  private ListItem openedItem;                  // The list item currently opened in the container
-  private BufferedImage orgImg;                 // Buffered image of the unedited image
+  private BufferedImage orgImg;                 // Buffered image of the unedited image, decoded at no more than the displayed resolution
+  private int orgWidth;                         // Width of the full image in its file
+  private int orgHeight;                        // Height of the full image in its file
+  private int subsampling;                      // Number of pixels of the full image for each pixel of the decoded image in each direction
   private BufferedImage scaledImg;              // Buffered image of the full rescaled image
+  private boolean scaledFiltered;               // Whether or not the scaled image was filtered rather than drawn as a preview
+  private VolatileImage surface;                // Copy of the scaled image in video memory that the container is drawn from
+  private BufferedImage surfaceImg;             // Scaled image last copied into the surface
   private float imgScale;                       // Current scale that the full image is being displayed at
+  private float fitScale;                       // Scale that fits the full image within the container, which is the smallest zoom
+  private Path imgPath;                         // Path of the opened image
+  private TilePyramid tiles;                    // Tiles of the opened image decoded at full detail while zoomed in (null until needed)
+  private ExecutorService tileWorker;           // Thread that decodes the tiles of the opened image
+  private boolean panning;                      // Whether or not the image is currently being dragged to pan it
+  private int panX;                             // X coordinate of the mouse when the image was last panned
+  private int panY;                             // Y coordinate of the mouse when the image was last panned
   private MarkerControlPanel controlPanel;      // Control panel associated with the image
+  private ImagePrefetcher prefetcher;           // Decodes the opened image and the upcoming images in the background
+  private Path loadingPath;                     // Path of the image being decoded to open (null if none is being decoded)
+  private int openGeneration;                   // Number of the latest opened image, used to ignore images that finish decoding after another was opened
+  private LinkedList<RectFrame> pendingRects;   // Saved rectangles to load once the image being decoded is shown
+  private Timer resizeTimer;                    // Timer that fits the image to the container once it stops being resized
+  private boolean resizing;                     // Whether or not the container was resized since the image was last fit to it
+  private int scaleGeneration;                  // Number of the latest scaling of the image, used to ignore scaled images that finish after another was requested
 
   private LinkedList<RectFrame> bboxes;         // List of currently displayed rectangles
   private LinkedList<RectFrame> redoList;       // List of rectangles that have been deleted or undone
@@ -35,6 +61,9 @@ public class ImageContainer extends JComponent implements MouseListener, MouseMo
   private float rectHeight;                     // The height of the rectangle currently being drawn
   private int rectType;                         // Type of the rect frame currenly being drawn (in the current state 0 is an easy face, and 1 is a hard face)
   public static final int MIN_RECT_AREA = 15;   // The minimum area allowed for a saved rectangle at the current viewing scale
+  public static final float ZOOM_STEP = 1.25f;  // Factor the zoom changes by for each notch of the mouse wheel
+  public static final float MAX_PIXEL_SCALE = 8;  // Largest number of screen pixels shown for each pixel of the full image
+  public static final int RESIZE_DELAY = 150;   // Milliseconds without a resize before the image is scaled to the new size
 
   /**
    * Initializes an empty image container
@@ -47,10 +76,42 @@ public class ImageContainer extends JComponent implements MouseListener, MouseMo
     this.imgXPos = 0;
     this.imgYPos = 0;
     setPreferredSize(new Dimension(this.width, this.height));
-    this.openedItem = null;
     this.orgImg = null;
+    this.orgWidth = 0;
+    this.orgHeight = 0;
+    this.subsampling = 1;
     this.scaledImg = null;
+    this.scaledFiltered = false;
+    this.surface = null;
+    this.surfaceImg = null;
     this.imgScale = 1;
+    this.fitScale = 1;
+    this.imgPath = null;
+    this.tiles = null;
+    this.tileWorker = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "FrameIt tile decoder");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    this.panning = false;
+    this.panX = 0;
+    this.panY = 0;
+    this.prefetcher = new ImagePrefetcher(this);
+    this.loadingPath = null;
+    this.openGeneration = 0;
+    this.pendingRects = null;
+    this.resizeTimer = new Timer(ImageContainer.RESIZE_DELAY, new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        finishResize();
+      }
+    });
+    this.resizeTimer.setRepeats(false);
+    this.resizing = false;
+    this.scaleGeneration = 0;
 
     this.bboxes = new LinkedList<RectFrame>();
     this.redoList = new LinkedList<RectFrame>();
@@ -67,107 +128,369 @@ public class ImageContainer extends JComponent implements MouseListener, MouseMo
 
     addMouseListener(this);
     addMouseMotionListener(this);
+    addMouseWheelListener(this);
   }
 
   /**
-   * Resizes the image container to fit the new width and height
+   * Resizes the image container to fit the new width and height. While the container keeps being resized,
+   * the current scaled image is only stretched to the new size, and the image and rectangles are fit to the
+   * container once when the resizing stops
    * @param int w New width of the container
    * @param int h New height of the container
    */
   public void resizeContainer(int w, int h) {
+    if (w == this.width && h == this.height)
+      return;
     this.width = w;
     this.height = h;
     setPreferredSize(new Dimension(this.width, this.height));
-    if (this.orgImg != null) {
-      updateRectangleScale();
-    }
+    this.resizing = true;
+    this.resizeTimer.restart();
   }
 
   /**
-   * Updates the scale of all rectangles to fit the current width and height
+   * Fits the image and rectangles to the container if it was resized since they were last fit,
+   * scaling the image to the new size in the background, or decoding it again if the container grew
+   * beyond the size it was decoded for
    */
-  public void updateRectangleScale() {
-    if (this.orgImg != null) {
-      LinkedList<RectFrame> orgBoxes = getRescaledRectangles(this.bboxes);
-      LinkedList<RectFrame> orgRedos = getRescaledRectangles(this.redoList);
-      updateImageScale();
-      this.bboxes = getScaledRectangles(orgBoxes);
-      this.redoList = getScaledRectangles(orgRedos);
-    }
+  public void finishResize() {
+    this.resizeTimer.stop();
+    if (!this.resizing)
+      return;
+    this.resizing = false;
+    if (this.orgImg == null)
+      return;
+
+    LinkedList<RectFrame> orgBoxes = getRescaledRectangles(this.bboxes);
+    LinkedList<RectFrame> orgRedos = getRescaledRectangles(this.redoList);
+    updateImageScale();
+    this.bboxes = getScaledRectangles(orgBoxes);
+    this.redoList = getScaledRectangles(orgRedos);
+    repaint();
   }
 
   /**
-   * Updates the scale of the image and rectangles to fit the current size of the conatainer
+   * Filters the scaled image in the background if it is only a preview, once the container is no longer being resized,
+   * so the slower filter runs once for the final size rather than for every size the container passes through
    */
-  public void updateImageScale() {
+  private void filterLater() {
+    if (this.scaledFiltered || this.orgImg == null || this.resizing)
+      return;
+    scaleLater(true);
+  }
+
+  /**
+   * Scales the opened image to fit the container in the background and shows it once it is ready,
+   * unless the image or the size of the container has changed by then
+   * @param boolean filtered Whether or not to filter the image even if a preview would be drawn
+   */
+  private void scaleLater(boolean filtered) {
+    final int generation = ++this.scaleGeneration;
+    final Path path = this.imgPath;
+    this.prefetcher.scaleLater(path, this.orgImg, this.orgWidth, this.orgHeight, this.subsampling, this.width, this.height, filtered)
+        .thenAccept(new Consumer<ImagePrefetcher.PreparedImage>() {
+      @Override
+      public void accept(final ImagePrefetcher.PreparedImage prepared) {
+        SwingUtilities.invokeLater(new Runnable() {
+          @Override
+          public void run() {
+            if (generation == scaleGeneration && path.equals(imgPath) && prepared.isScaledFor(width, height)) {
+              scaledImg = prepared.getScaledImage();
+              scaledFiltered = prepared.isFiltered();
+              filterLater();
+              repaint();
+            }
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Updates the scale of the image to fit the current size of the container, which also resets the zoom.
+   * The current scaled image is stretched until the image scaled to the new size is ready
+   */
+  private void updateImageScale() {
     if (this.orgImg != null) {
-      this.imgScale = rescaleRatio(this.orgImg, this.width, this.height);
-      this.scaledImg = rescaleImg(this.orgImg, this.imgScale);
-      int xDif = this.width - this.scaledImg.getWidth();
-      int yDif = this.height - this.scaledImg.getHeight();
-      this.imgXPos = xDif/2;
-      this.imgYPos = yDif/2;
+      // The scale is relative to the full image, even if fewer of its pixels were decoded
+      this.imgScale = rescaleRatio(this.orgWidth, this.orgHeight, this.width, this.height);
+      this.fitScale = this.imgScale;
+      centerImage();
+      // An image decoded for a smaller container keeps being stretched until it is decoded again
+      if (!decodeAgainIfCoarse())
+        scaleLater(false);
     }
   }
 
+  /**
+   * Decodes the opened image again in the background if it was decoded with fewer pixels than the container
+   * now displays, such as after the container was enlarged. The current scaled image is stretched as a preview
+   * until the image decoded for the new size replaces it
+   * @return Whether or not the image is being decoded again
+   */
+  private boolean decodeAgainIfCoarse() {
+    if (this.subsampling <= ImageDecoder.subsamplingFor(this.orgWidth, this.orgHeight, this.width, this.height))
+      return false;
+    final int generation = ++this.scaleGeneration;
+    final Path path = this.imgPath;
+    this.prefetcher.decodeAgain(path, this.width, this.height).thenAccept(new Consumer<ImagePrefetcher.PreparedImage>() {
+      @Override
+      public void accept(final ImagePrefetcher.PreparedImage prepared) {
+        SwingUtilities.invokeLater(new Runnable() {
+          @Override
+          public void run() {
+            // The scale and rectangles already fit the container, so only the pixels are replaced
+            if (prepared != null && generation == scaleGeneration && path.equals(imgPath) && orgImg != null
+                && prepared.isScaledFor(width, height)) {
+              orgImg = prepared.getImage();
+              subsampling = prepared.getSubsampling();
+              scaledImg = prepared.getScaledImage();
+              scaledFiltered = prepared.isFiltered();
+              filterLater();
+              repaint();
+            }
+          }
+        });
+      }
+    });
+    return true;
+  }
+
+  /**
+   * Centers the scaled image within the container
+   */
+  private void centerImage() {
+    int xDif = this.width - displayedWidth();
+    int yDif = this.height - displayedHeight();
+    this.imgXPos = xDif/2;
+    this.imgYPos = yDif/2;
+  }
+
+  /**
+   * Returns whether or not the image is zoomed in past the scale that fits the container
+   * @return Whether or not the image is zoomed in
+   */
+  public boolean isZoomed() {
+    return this.imgScale > this.fitScale;
+  }
+
+  /**
+   * Zooms the image by the given factor, keeping the pixel of the image under the given point in place
+   * @param float factor Factor to multiply the zoom by
+   * @param int   x      X coordinate to zoom around
+   * @param int   y      Y coordinate to zoom around
+   */
+  public void zoom(float factor, int x, int y) {
+    if (this.orgImg == null || this.drawStarted)
+      return;
+    finishResize();
+    float maxScale = Math.max(this.fitScale, ImageContainer.MAX_PIXEL_SCALE);
+    float newScale = Math.max(this.fitScale, Math.min(maxScale, this.imgScale*factor));
+    if (newScale == this.imgScale)
+      return;
+    // Pixel of the full image under the point
+    float orgX = (x-this.imgXPos)/this.imgScale;
+    float orgY = (y-this.imgYPos)/this.imgScale;
+    setView(newScale, Math.round(x-orgX*newScale), Math.round(y-orgY*newScale));
+  }
+
+  /**
+   * Moves the zoomed image by the given distance
+   * @param int dx Distance to move the image to the right
+   * @param int dy Distance to move the image down
+   */
+  public void pan(int dx, int dy) {
+    if (this.orgImg == null || !isZoomed())
+      return;
+    setView(this.imgScale, this.imgXPos+dx, this.imgYPos+dy);
+  }
+
+  /**
+   * Displays the image at the given scale and position, keeping the image covering the container where it can
+   * and moving the rectangles along with the image
+   * @param float scale Scale to display the full image at
+   * @param int   x     X coordinate of the left edge of the image
+   * @param int   y     Y coordinate of the top edge of the image
+   */
+  private void setView(float scale, int x, int y) {
+    LinkedList<RectFrame> orgBoxes = getRescaledRectangles(this.bboxes);
+    LinkedList<RectFrame> orgRedos = getRescaledRectangles(this.redoList);
+    this.imgScale = scale;
+    this.imgXPos = clampPosition(x, displayedWidth(), this.width);
+    this.imgYPos = clampPosition(y, displayedHeight(), this.height);
+    this.bboxes = getScaledRectangles(orgBoxes);
+    this.redoList = getScaledRectangles(orgRedos);
+    repaint();
+  }
+
+  /**
+   * Keeps an image edge position within the range that leaves no empty space, or centers the image if it is smaller
+   * @param  int pos           Position of the image edge
+   * @param  int size          Displayed size of the image
+   * @param  int bound         Size of the container
+   * @return     Clamped position
+   */
+  private static int clampPosition(int pos, int size, int bound) {
+    if (size <= bound)
+      return (bound-size)/2;
+    return Math.max(bound-size, Math.min(0, pos));
+  }
+
+  /**
+   * Returns the width the full image is displayed at
+   * @return Displayed width in pixels
+   */
+  private int displayedWidth() {
+    return (int)(this.orgWidth*this.imgScale);
+  }
+
+  /**
+   * Returns the height the full image is displayed at
+   * @return Displayed height in pixels
+   */
+  private int displayedHeight() {
+    return (int)(this.orgHeight*this.imgScale);
+  }
+
   /**
    * Sets the given list of rectangles to be the current displayed list
    * @param LinkedList<RectFrame> rects List of rectangles to set as the displayed set
    */
   public void loadRectangles(LinkedList<RectFrame> rects) {
-    this.bboxes = getScaledRectangles(rects);
+    // The rectangles can only be scaled once the image being opened has been decoded
+    if (this.loadingPath != null)
+      this.pendingRects = rects;
+    else
+      this.bboxes = getScaledRectangles(rects);
   }
 
   /**
-   * Opens the list item as an image in the image container
+   * Opens the list item as an image in the image container. The image is decoded in the background
+   * and shown once it is ready, unless another image has been opened by then
    * @param ListItem item List item to open as an image
    */
   public void openImage(ListItem item) {
     Path path = item.getPath();
     if (ImageChecker.isImage(path)) {
-      try {
-        this.orgImg = ImageIO.read(path.toFile());
-        updateImageScale();
-
-        this.bboxes = new LinkedList<RectFrame>();
-        this.redoList = new LinkedList<RectFrame>();
-        this.mousePressed = false;
-        this.rectStartX = 0;
-        this.rectStartY = 0;
-        this.rectWidth = 0;
-        this.rectHeight = 0;
-
-        if (this.openedItem != null)
-          this.openedItem.setOpen(false);
-
-        this.openedItem = item;
-        this.openedItem.setOpen(true);
-
-        repaint();
-      } catch (Exception e) {
-        System.out.println("Error!--" + e);
+      final int generation = ++this.openGeneration;
+      this.loadingPath = path;
+      this.imgPath = path;
+      if (this.tiles != null) {
+        this.tiles.close();
+        this.tiles = null;
       }
+      this.pendingRects = null;
+      this.orgImg = null;
+      this.subsampling = 1;
+      this.scaledImg = null;
+      this.scaledFiltered = false;
+
+      this.bboxes = new LinkedList<RectFrame>();
+      this.redoList = new LinkedList<RectFrame>();
+      this.mousePressed = false;
+      this.drawStarted = false;
+      this.rectStartX = 0;
+      this.rectStartY = 0;
+      this.rectWidth = 0;
+      this.rectHeight = 0;
+      // Nothing can be saved until the image is shown
+      if (this.controlPanel != null)
+        this.controlPanel.setSaveEnabled(false);
+      repaint();
+
+      // Also runs if the decode failed outright, in which case the image is shown as not decodable
+      this.prefetcher.open(path, this.width, this.height).whenComplete(new BiConsumer<ImagePrefetcher.PreparedImage, Throwable>() {
+        @Override
+        public void accept(final ImagePrefetcher.PreparedImage prepared, final Throwable error) {
+          if (error != null)
+            System.out.println("Error when decoding image! " + error);
+          SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+              if (generation == openGeneration)
+                showImage(prepared);
+            }
+          });
+        }
+      });
+    }
+  }
+
+  /**
+   * Shows a decoded image that was opened, along with any saved rectangles waiting for it
+   * @param ImagePrefetcher.PreparedImage prepared Decoded image (null if it could not be decoded)
+   */
+  private void showImage(ImagePrefetcher.PreparedImage prepared) {
+    Path path = this.loadingPath;
+    this.loadingPath = null;
+    // An image that could not be decoded can still be skipped with Save and Proceed, which saves nothing for it
+    if (this.controlPanel != null)
+      this.controlPanel.setSaveEnabled(true);
+    if (prepared == null) {
+      System.out.println("Error when opening image! " + path);
+      this.pendingRects = null;
+      repaint();
+      return;
+    }
+
+    this.orgImg = prepared.getImage();
+    this.orgWidth = prepared.getOrgWidth();
+    this.orgHeight = prepared.getOrgHeight();
+    this.subsampling = prepared.getSubsampling();
+    // The image is fit to the current size here, so a resize in progress has nothing left to do
+    this.resizing = false;
+    this.resizeTimer.stop();
+    // The image only has to be scaled again if the container was resized while it was decoded
+    if (prepared.isScaledFor(this.width, this.height)) {
+      this.imgScale = prepared.getScale();
+      this.fitScale = this.imgScale;
+      this.scaledImg = prepared.getScaledImage();
+      this.scaledFiltered = prepared.isFiltered();
+      centerImage();
+      filterLater();
+    } else {
+      // Scaled for another size, so it is stretched as a preview until the image is scaled or decoded again for this size
+      this.scaledImg = prepared.getScaledImage();
+      this.scaledFiltered = false;
+      updateImageScale();
+    }
+    if (this.pendingRects != null) {
+      this.bboxes = getScaledRectangles(this.pendingRects);
+      this.pendingRects = null;
     }
+    repaint();
   }
 
   /**
-   * Rescales the original by the given ratio
-   * @param  BufferedImage org           Original image to rescale
-   * @param  float         scaleRatio    Ratio to scale the image by
-   * @return               New image with the same aspect ratio but scaled by the scale ratio
+   * Decodes the images expected to be opened next in the background
+   * @param Collection<Path> upcoming Paths of the upcoming images, in the order they are expected to be opened
    */
-  public BufferedImage rescaleImg(BufferedImage org, float scaleRatio) {
-    int orgW = org.getWidth();
-    int orgH = org.getHeight();
-    int newW = (int)(orgW*scaleRatio);
-    int newH = (int)(orgH*scaleRatio);
+  public void prefetch(Collection<Path> upcoming) {
+    this.prefetcher.prefetch(upcoming, this.width, this.height);
+  }
 
-    BufferedImage scaled = new BufferedImage(newW, newH, BufferedImage.TYPE_INT_ARGB);
-    Graphics2D g2d = scaled.createGraphics();
-    g2d.drawImage(org, 0, 0, newW, newH, null);
-    g2d.dispose();
+  /**
+   * Returns the prefetcher that decodes the images of the container, which keeps the hit rate and decode time counters
+   * @return Image prefetcher of the container
+   */
+  public ImagePrefetcher getPrefetcher() {
+    return this.prefetcher;
+  }
 
-    return scaled;
+  /**
+   * Rescales the image to the given size, drawing only a preview if there are too few processors to filter it quickly.
+   * Filtering runs across every processor, so this is only called from the decoding threads and never on the event dispatch thread
+   * @param  BufferedImage org           Image to rescale
+   * @param  int           newW          Width of the rescaled image
+   * @param  int           newH          Height of the rescaled image
+   * @param  boolean       filtered      Whether or not to filter the image even if a preview would be drawn
+   * @return               New image of the given size
+   */
+  public BufferedImage rescaleImg(BufferedImage org, int newW, int newH, boolean filtered) {
+    // Filtered across every processor rather than drawn, and the copy is in the screen format so drawing it is a plain copy
+    if (filtered || !Resampler.PREVIEW_FIRST)
+      return Resampler.resize(org, newW, newH);
+    return Resampler.preview(org, newW, newH);
   }
 
   /**
@@ -178,9 +501,18 @@ public class ImageContainer extends JComponent implements MouseListener, MouseMo
    * @return               Returns the scale that the image should be multiplied by
    */
   public float rescaleRatio(BufferedImage img, int maxX, int maxY) {
-    int orgX = img.getWidth();
-    int orgY = img.getHeight();
+    return rescaleRatio(img.getWidth(), img.getHeight(), maxX, maxY);
+  }
 
+  /**
+   * Finds the correct scale to size an image of the given dimensions by in order for it to fit within its given bounds
+   * @param  int orgX          Width of the unscaled image
+   * @param  int orgY          Height of the unscaled image
+   * @param  int maxX          Max width allowed for the image
+   * @param  int maxY          Max height allowed for the image
+   * @return     Returns the scale that the image should be multiplied by
+   */
+  public float rescaleRatio(int orgX, int orgY, int maxX, int maxY) {
     float scalar = 1;
     if (orgX == maxX || orgY == maxY)
       scalar = 1;
@@ -324,8 +656,9 @@ public class ImageContainer extends JComponent implements MouseListener, MouseMo
   public boolean containsImage(int x, int y) {
     if (this.scaledImg == null)
       return false;
-    else if (x >= this.imgXPos && x <= this.imgXPos+this.scaledImg.getWidth() &&
-        y >= this.imgYPos && y <= this.imgYPos+this.scaledImg.getHeight())
+    // Only the part of a zoomed image within the container can be drawn on
+    else if (x >= Math.max(this.imgXPos, 0) && x <= Math.min(this.imgXPos+displayedWidth(), this.width) &&
+        y >= Math.max(this.imgYPos, 0) && y <= Math.min(this.imgYPos+displayedHeight(), this.height))
       return true;
     else
       return false;
@@ -359,6 +692,22 @@ public class ImageContainer extends JComponent implements MouseListener, MouseMo
     return this.orgImg;
   }
 
+  /**
+   * Returns the width of the full image, which the decoded image may be smaller than
+   * @return Width in pixels of the full image
+   */
+  public int getOrgWidth() {
+    return this.orgWidth;
+  }
+
+  /**
+   * Returns the height of the full image, which the decoded image may be smaller than
+   * @return Height in pixels of the full image
+   */
+  public int getOrgHeight() {
+    return this.orgHeight;
+  }
+
   /**
    * Begins the drawing of a rectangle given the mouse event
    * @param MouseEvent e Current mouse event
@@ -422,6 +771,12 @@ public class ImageContainer extends JComponent implements MouseListener, MouseMo
    * @param MouseEvent e Current mouse event
    */
   public void mouseDragged(MouseEvent e) {
+    if (this.panning) {
+      pan(e.getX()-this.panX, e.getY()-this.panY);
+      this.panX = e.getX();
+      this.panY = e.getY();
+      return;
+    }
     // If the mouse is currently within the image, updates or starts the drawn rectangle
     if (containsImage(e.getX(), e.getY())) {
       if (this.controlPanel.getMode() != null && this.controlPanel.getMode().equals("draw")) {
@@ -447,6 +802,15 @@ public class ImageContainer extends JComponent implements MouseListener, MouseMo
    * @param MouseEvent e Current mouse event
    */
   public void mousePressed(MouseEvent e) {
+    // The rectangles have to be fit to the container before they can be drawn on
+    finishResize();
+    // The right and middle buttons drag the image instead of drawing on it
+    if (SwingUtilities.isRightMouseButton(e) || SwingUtilities.isMiddleMouseButton(e)) {
+      this.panning = true;
+      this.panX = e.getX();
+      this.panY = e.getY();
+      return;
+    }
     if (containsImage(e.getX(), e.getY())) {
       // Starts drawing a new rectangle if in draw mode
       if (this.controlPanel.getMode() != null && this.controlPanel.getMode().equals("draw")) {
@@ -464,6 +828,10 @@ public class ImageContainer extends JComponent implements MouseListener, MouseMo
    * @param MouseEvent e Current mouse event
    */
   public void mouseReleased(MouseEvent e) {
+    if (this.panning) {
+      this.panning = false;
+      return;
+    }
     if (this.drawStarted) {
       if (this.controlPanel.getMode() != null && this.controlPanel.getMode().equals("draw")) {
         endDrawing(e);
@@ -474,6 +842,14 @@ public class ImageContainer extends JComponent implements MouseListener, MouseMo
   public void mouseMoved(MouseEvent e) {
   }
 
+  /**
+   * Zooms in or out around the mouse when the mouse wheel is turned
+   * @param MouseWheelEvent e Current mouse wheel event
+   */
+  public void mouseWheelMoved(MouseWheelEvent e) {
+    zoom((float)Math.pow(ImageContainer.ZOOM_STEP, -e.getPreciseWheelRotation()), e.getX(), e.getY());
+  }
+
   public void mouseEntered(MouseEvent e) {
   }
 
@@ -483,36 +859,120 @@ public class ImageContainer extends JComponent implements MouseListener, MouseMo
   public void mouseClicked(MouseEvent e) {
   }
 
+  /**
+   * Draws the scaled image from its copy in video memory, copying it there again whenever the scaled image
+   * changes or the copy is lost. Without a screen the scaled image is drawn directly
+   * @param Graphics2D g2d Graphics to draw with
+   */
+  private void drawScaledImage(Graphics2D g2d) {
+    GraphicsConfiguration config = getGraphicsConfiguration();
+    if (this.scaledImg == null || config == null || GraphicsEnvironment.isHeadless()) {
+      g2d.drawImage(this.scaledImg, null, this.imgXPos, this.imgYPos);
+      return;
+    }
+
+    int w = this.scaledImg.getWidth();
+    int h = this.scaledImg.getHeight();
+    // Until the image scaled to a new size is ready, the previous one is stretched
+    if (w != displayedWidth() || h != displayedHeight()) {
+      g2d.drawImage(this.scaledImg, this.imgXPos, this.imgYPos, displayedWidth(), displayedHeight(), null);
+      return;
+    }
+    do {
+      int state = this.surface == null ? VolatileImage.IMAGE_INCOMPATIBLE : this.surface.validate(config);
+      if (state == VolatileImage.IMAGE_INCOMPATIBLE || this.surface.getWidth() != w || this.surface.getHeight() != h) {
+        if (this.surface != null)
+          this.surface.flush();
+        this.surface = config.createCompatibleVolatileImage(w, h, this.scaledImg.getTransparency());
+        this.surfaceImg = null;
+      } else if (state == VolatileImage.IMAGE_RESTORED) {
+        this.surfaceImg = null;
+      }
+      if (this.surfaceImg != this.scaledImg) {
+        Graphics2D surfaceG = this.surface.createGraphics();
+        surfaceG.setComposite(AlphaComposite.Src);
+        surfaceG.drawImage(this.scaledImg, 0, 0, null);
+        surfaceG.dispose();
+        this.surfaceImg = this.scaledImg;
+      }
+      g2d.drawImage(this.surface, this.imgXPos, this.imgYPos, null);
+    } while (this.surface.contentsLost());
+  }
+
   @Override
   public void paintComponent(Graphics g) {
     Graphics2D g2d = (Graphics2D)g;
-    g2d.setColor(new Color(0, 0, 0));
+    g2d.setColor(Palette.IMAGE_BACKGROUND);
     g2d.fillRect(0, 0, this.width, this.height);
-    g2d.drawImage(this.scaledImg, null, this.imgXPos, this.imgYPos);
-
-    if (mousePressed) {
-      // Easy faces
-      if (this.rectType == 0)
-        g2d.setColor(new Color(0, 255, 0));
-      // Hard faces
-      else
-        g2d.setColor(new Color(0, 0, 255));
-      g2d.drawRect((int)this.rectStartX-1, (int)this.rectStartY-1, (int)this.rectWidth+2, (int)this.rectHeight+2);
-      g2d.setColor(new Color(255, 0, 0));
-      g2d.drawRect((int)this.rectStartX, (int)this.rectStartY, (int)this.rectWidth, (int)this.rectHeight);
+    if (this.resizing && this.orgImg != null) {
+      paintResizing(g2d);
+      return;
     }
-
-    for (RectFrame rect : this.bboxes) {
-      // Easy faces
-      if (rect.getType() == 0)
-        g2d.setColor(new Color(0, 255, 0));
-      // Hard faces
-      else
-        g2d.setColor(new Color(0, 0, 255));
-      g2d.drawRect((int)rect.getX()-1, (int)rect.getY()-1, (int)rect.getWidth()+2, (int)rect.getHeight()+2);
-      g2d.setColor(new Color(255, 0, 0));
-      g2d.drawRect((int)rect.getX(), (int)rect.getY(), (int)rect.getWidth(), (int)rect.getHeight());
+    if (!isZoomed() || this.orgImg == null) {
+      drawScaledImage(g2d);
+    } else {
+      // The decoded image is stretched underneath as a preview, and the tiles are drawn over it once decoded
+      g2d.drawImage(this.orgImg, this.imgXPos, this.imgYPos, displayedWidth(), displayedHeight(), null);
+      if (this.imgScale*this.orgWidth > this.orgImg.getWidth()) {
+        if (this.tiles == null) {
+          this.tiles = new TilePyramid(this.imgPath, this.orgWidth, this.orgHeight, this.tileWorker, new Runnable() {
+            @Override
+            public void run() {
+              repaint();
+            }
+          });
+        }
+        this.tiles.paint(g2d, this.imgScale, this.imgXPos, this.imgYPos, this.width, this.height);
+      }
     }
+
+    if (mousePressed)
+      drawRectangle(g2d, this.rectType, this.rectStartX, this.rectStartY, this.rectWidth, this.rectHeight);
+
+    for (RectFrame rect : this.bboxes)
+      drawRectangle(g2d, rect.getType(), rect.getX(), rect.getY(), rect.getWidth(), rect.getHeight());
+  }
+
+  /**
+   * Draws the image and rectangles while the container is being resized. The scaled image is stretched to
+   * where the image will be once it is fit to the new size, and the rectangles are moved along with it
+   * without changing the rectangles themselves
+   * @param Graphics2D g2d Graphics to draw with
+   */
+  private void paintResizing(Graphics2D g2d) {
+    float scale = rescaleRatio(this.orgWidth, this.orgHeight, this.width, this.height);
+    int w = (int)(this.orgWidth*scale);
+    int h = (int)(this.orgHeight*scale);
+    int x = (this.width-w)/2;
+    int y = (this.height-h)/2;
+    g2d.drawImage(this.scaledImg, x, y, w, h, null);
+
+    // Maps the rectangles from the current view of the image to the resized one
+    float ratio = scale/this.imgScale;
+    for (RectFrame rect : this.bboxes)
+      drawRectangle(g2d, rect.getType(), x+(rect.getX()-this.imgXPos)*ratio, y+(rect.getY()-this.imgYPos)*ratio,
+          rect.getWidth()*ratio, rect.getHeight()*ratio);
+  }
+
+  /**
+   * Draws a rectangle outlined in the color of its type
+   * @param Graphics2D g2d  Graphics to draw with
+   * @param int        type Type of the rectangle (in the current state 0 is an easy face, and 1 is a hard face)
+   * @param double     x    X coordinate of the rectangle
+   * @param double     y    Y coordinate of the rectangle
+   * @param double     w    Width of the rectangle
+   * @param double     h    Height of the rectangle
+   */
+  private void drawRectangle(Graphics2D g2d, int type, double x, double y, double w, double h) {
+    // Easy faces
+    if (type == 0)
+      g2d.setColor(Palette.EASY_FACE);
+    // Hard faces
+    else
+      g2d.setColor(Palette.HARD_FACE);
+    g2d.drawRect((int)x-1, (int)y-1, (int)w+2, (int)h+2);
+    g2d.setColor(Palette.RECT_INNER);
+    g2d.drawRect((int)x, (int)y, (int)w, (int)h);
   }
 
   @Override
@@ -0,0 +1,123 @@
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * Class that decodes images at no more than the resolution they are displayed at.
+ * The dimensions of the image are read from its header first, and only every n-th pixel of every n-th row
+ * is decoded when the image is at least n times larger than the area it is displayed in,
+ * which saves most of the decoding time and memory of images much larger than the screen
+ */
+public class ImageDecoder {
+
+  /**
+   * Class to represent a decoded image along with the dimensions of the full image
+   */
+  public static class DecodedImage {
+
+    private BufferedImage image;  // Decoded pixels, which may be smaller than the full image
+    private int orgWidth;         // Width of the full image
+    private int orgHeight;        // Height of the full image
+    private int subsampling;      // Number of pixels of the full image for each decoded pixel in each direction
+
+    /**
+     * Initializes a decoded image
+     * @param  BufferedImage img           Decoded pixels
+     * @param  int           w             Width of the full image
+     * @param  int           h             Height of the full image
+     * @param  int           step          Number of pixels of the full image for each decoded pixel in each direction
+     */
+    public DecodedImage(BufferedImage img, int w, int h, int step) {
+      this.image = img;
+      this.orgWidth = w;
+      this.orgHeight = h;
+      this.subsampling = step;
+    }
+
+    /**
+     * Returns the decoded pixels
+     * @return Decoded image
+     */
+    public BufferedImage getImage() {
+      return this.image;
+    }
+
+    /**
+     * Returns the width of the full image
+     * @return Width in pixels of the full image
+     */
+    public int getOrgWidth() {
+      return this.orgWidth;
+    }
+
+    /**
+     * Returns the height of the full image
+     * @return Height in pixels of the full image
+     */
+    public int getOrgHeight() {
+      return this.orgHeight;
+    }
+
+    /**
+     * Returns the number of pixels of the full image for each decoded pixel in each direction
+     * @return Subsampling step (1 if the full image was decoded)
+     */
+    public int getSubsampling() {
+      return this.subsampling;
+    }
+  }
+
+  /**
+   * Decodes the image with the largest subsampling that still leaves at least as many pixels as fit within the given area
+   * @param  Path         path          Path of the image
+   * @param  int          maxW          Width of the area the image is displayed in (0 or less to decode the full image)
+   * @param  int          maxH          Height of the area the image is displayed in (0 or less to decode the full image)
+   * @return              Decoded image or null if no reader could decode it
+   * @throws Exception    If the image could not be read
+   */
+  public static DecodedImage decode(Path path, int maxW, int maxH) throws Exception {
+    long modified = CompletionIndex.lastModified(path);
+    try (ImageInputStream input = MappedImageInputStream.open(path)) {
+      Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+      // Reading the image whole would find no other readers, so a format without one cannot be decoded
+      if (readers == null || !readers.hasNext())
+        return null;
+
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(input, true, true);
+        int w = reader.getWidth(0);
+        int h = reader.getHeight(0);
+        // Saving the image later only needs its dimensions, which are already known from here
+        ImageDimensions.remember(path, modified, w, h);
+        int step = ImageDecoder.subsamplingFor(w, h, maxW, maxH);
+        ImageReadParam param = reader.getDefaultReadParam();
+        if (step > 1)
+          param.setSourceSubsampling(step, step, 0, 0);
+        return new DecodedImage(reader.read(0, param), w, h, step);
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+  /**
+   * Finds the largest subsampling step that keeps the decoded image at least as large as it is displayed
+   * @param  int w             Width of the full image
+   * @param  int h             Height of the full image
+   * @param  int maxW          Width of the area the image is displayed in
+   * @param  int maxH          Height of the area the image is displayed in
+   * @return     Subsampling step (1 to decode every pixel)
+   */
+  public static int subsamplingFor(int w, int h, int maxW, int maxH) {
+    if (maxW <= 0 || maxH <= 0)
+      return 1;
+    // The image is displayed at the smaller of the two scales, so the larger ratio decides how many pixels are shown
+    double ratio = Math.max(((double)w)/maxW, ((double)h)/maxH);
+    return Math.max(1, (int)Math.floor(ratio));
+  }
+}
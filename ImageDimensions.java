@@ -0,0 +1,97 @@
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Dimension;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class that finds the width and height of images from their headers without decoding any of their pixels.
+ * The dimensions of every probed or decoded image are kept along with the modification time of its file,
+ * so asking again for an image that has not changed does not even read its header.
+ * The cache is shared by the whole program and is used by the event dispatch thread and background threads alike
+ */
+public class ImageDimensions {
+
+  public static final int CACHED_IMAGES = 65536;  // Number of images whose dimensions are remembered
+  private static final LinkedHashMap<Path, ProbedSize> SIZES = new LinkedHashMap<Path, ProbedSize>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Path, ProbedSize> eldest) {
+      return size() > ImageDimensions.CACHED_IMAGES;
+    }
+  };  // Dimensions of recently probed images, from least to most recently used
+
+  /**
+   * Class to represent the dimensions of a single image when its header was read
+   */
+  private static class ProbedSize {
+
+    private int width;      // Width of the full image
+    private int height;     // Height of the full image
+    private long modified;  // Modification time of the image file when its header was read
+  }
+
+  /**
+   * Returns the dimensions of an image, reading only its header unless they are already known
+   * @param  Path      path          Path of the image
+   * @return           Width and height of the full image, or null if it could not be read
+   */
+  public static Dimension probe(Path path) {
+    long modified = CompletionIndex.lastModified(path);
+    synchronized (ImageDimensions.SIZES) {
+      ProbedSize cached = ImageDimensions.SIZES.get(path);
+      if (cached != null && cached.modified == modified)
+        return new Dimension(cached.width, cached.height);
+    }
+
+    try (ImageInputStream input = MappedImageInputStream.open(path)) {
+      Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+      // Reading the image whole would find no other readers, so a format without one cannot be measured
+      if (readers == null || !readers.hasNext())
+        return null;
+      int w;
+      int h;
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(input, true, true);
+        w = reader.getWidth(0);
+        h = reader.getHeight(0);
+      } finally {
+        reader.dispose();
+      }
+      ImageDimensions.remember(path, modified, w, h);
+      return new Dimension(w, h);
+    } catch (Exception e) {
+      System.out.println("Error when reading image dimensions! " + e);
+      return null;
+    }
+  }
+
+  /**
+   * Remembers the dimensions of an image whose header was just read elsewhere, such as when it was decoded
+   * @param Path path     Path of the image
+   * @param long modified Modification time of the image file when its header was read
+   * @param int  w        Width of the full image
+   * @param int  h        Height of the full image
+   */
+  public static void remember(Path path, long modified, int w, int h) {
+    ProbedSize size = new ProbedSize();
+    size.width = w;
+    size.height = h;
+    size.modified = modified;
+    synchronized (ImageDimensions.SIZES) {
+      ImageDimensions.SIZES.put(path, size);
+    }
+  }
+
+  /**
+   * Forgets the dimensions of every image
+   */
+  public static void clear() {
+    synchronized (ImageDimensions.SIZES) {
+      ImageDimensions.SIZES.clear();
+    }
+  }
+}
@@ -1,10 +1,12 @@
 import javax.swing.*;
 import java.awt.*;
 import java.io.*;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.awt.image.*;
 import java.nio.file.*;
 import java.util.Scanner;
+import java.util.function.Consumer;
 
 /**
  * Component class to allow for the marking of an image with bounding boxes
@@ -20,6 +22,7 @@ public class ImageMarker extends JPanel {
   private ImageContainer imageContainer;    // Container for the opened image
   private MarkerControlPanel controlPanel;  // Control panel for the image marker
   private FileExplorer imgList;             // The file explorer connected to the image marker
+  private FilmStrip filmStrip;              // Strip of thumbnails below the image and control panel
 
   /**
    * Intitializes the image marker with no opened image
@@ -37,10 +40,13 @@ public class ImageMarker extends JPanel {
     this.imgDirPath = imgDir;
     this.saveDirPath = saveDir;
     this.openedItem = null;
-    this.imageContainer = new ImageContainer(this.width-controlWidth-1, this.height);
+    int editorHeight = this.height-FilmStrip.STRIP_HEIGHT;
+    this.imageContainer = new ImageContainer(this.width-controlWidth-1, editorHeight);
     add(imageContainer, BorderLayout.WEST);
-    this.controlPanel = new MarkerControlPanel(this, this.imageContainer, controlWidth, this.height);
+    this.controlPanel = new MarkerControlPanel(this, this.imageContainer, controlWidth, editorHeight);
     add(controlPanel, BorderLayout.EAST);
+    this.filmStrip = new FilmStrip(this, this.saveDirPath, this.width);
+    add(filmStrip, BorderLayout.SOUTH);
     this.imageContainer.addControls(this.controlPanel);
     this.imgList = null;
   }
@@ -55,8 +61,10 @@ public class ImageMarker extends JPanel {
     this.width = w;
     this.height = h;
     setPreferredSize(new Dimension(this.width, this.height));
-    this.imageContainer.resizeContainer(this.width-controlWidth-1, this.height);
-    this.controlPanel.resizePanel(controlWidth, this.height);
+    int editorHeight = this.height-FilmStrip.STRIP_HEIGHT;
+    this.imageContainer.resizeContainer(this.width-controlWidth-1, editorHeight);
+    this.controlPanel.resizePanel(controlWidth, editorHeight);
+    this.filmStrip.resizeStrip(this.width);
     repaint();
   }
 
@@ -76,6 +84,22 @@ public class ImageMarker extends JPanel {
     return this.imgList;
   }
 
+  /**
+   * Returns the strip of thumbnails below the image marker
+   * @return Film strip of the image marker
+   */
+  public FilmStrip getFilmStrip() {
+    return this.filmStrip;
+  }
+
+  /**
+   * Returns the container that displays the opened image
+   * @return Image container of the image marker
+   */
+  public ImageContainer getImageContainer() {
+    return this.imageContainer;
+  }
+
   /**
    * Checks to see if an image with the given path is currently opened in the editor
    * @param  Path itemPath      Path to compare to
@@ -88,6 +112,16 @@ public class ImageMarker extends JPanel {
       return false;
   }
 
+  /**
+   * Returns the path of the image currently opened in the editor
+   * @return Path of the opened image or null if no image is open
+   */
+  public Path getOpenedPath() {
+    if (this.openedItem == null)
+      return null;
+    return this.openedItem.getPath();
+  }
+
   /**
    * Opens the given image item in the editor
    * @param ListItem item Item to open in the editor
@@ -100,6 +134,18 @@ public class ImageMarker extends JPanel {
 
     this.openedItem = item;
     this.imageContainer.openImage(item);
+    // Highlights the opened image in the film strip
+    this.filmStrip.repaint();
+
+    // Decodes the images that Save and Proceed would open next while this one is being worked on
+    if (this.imgList != null && ImagePrefetcher.AHEAD > 0) {
+      this.imgList.findUpcomingImages(item.getPath(), ImagePrefetcher.AHEAD, new Consumer<ArrayList<Path>>() {
+        @Override
+        public void accept(ArrayList<Path> upcoming) {
+          imageContainer.prefetch(upcoming);
+        }
+      });
+    }
   }
 
   /**
@@ -154,7 +200,8 @@ public class ImageMarker extends JPanel {
    * Saves the progress of the currently opened image to its save path
    */
   public void save() {
-    if (this.openedItem == null)
+    // Nothing can be saved until the opened image has been decoded
+    if (this.openedItem == null || this.imageContainer.getOrgImg() == null)
       return;
 
     File saveDir = this.saveDirPath.toFile();
@@ -171,22 +218,29 @@ public class ImageMarker extends JPanel {
     Path endImgPath = this.imgDirPath.relativize(this.openedItem.getPath());
     String firstTextLine = endImgPath.toString();
 
-    printSave(savePath, firstTextLine);
-    this.imgList.reloadList();
+    // Only a first save changes any completion counts
+    boolean newlyCompleted = !savePath.toFile().exists();
+    long saveModified = CompletionIndex.lastModified(saveDirPath);
+    if (printSave(savePath, firstTextLine) && newlyCompleted)
+      this.imgList.markCompleted(this.openedItem.getPath(), saveModified);
   }
 
   /**
    * Prints the image's save information to the save path
    * @param Path   savePath  Save path for the file
    * @param String firstLine First line of the save file i.e. "parentFolder/imgName"
+   * @return Whether or not the save file was successfully written
    */
-  public void printSave(Path savePath, String firstLine) {
+  public boolean printSave(Path savePath, String firstLine) {
     PrintWriter pw = null;
     try {
       pw = new PrintWriter(savePath.toFile());
       pw.println(firstLine);
-      BufferedImage orgImg = this.imageContainer.getOrgImg();
-      pw.println(orgImg.getWidth() + "," + orgImg.getHeight());
+      // The dimensions of the full image are saved from its header, even though fewer of its pixels may have been decoded
+      Dimension size = ImageDimensions.probe(this.openedItem.getPath());
+      if (size == null)
+        size = new Dimension(this.imageContainer.getOrgWidth(), this.imageContainer.getOrgHeight());
+      pw.println(size.width + "," + size.height);
       LinkedList<RectFrame> rects = this.imageContainer.getRescaledRectangles();
       pw.println(rects.size());
       for (RectFrame rect : rects) {
@@ -194,11 +248,13 @@ public class ImageMarker extends JPanel {
             rect.getWidth() + "," + rect.getHeight() + "," + rect.getType();
           pw.println(rectLine);
       }
-
+      return true;
     } catch (Exception e) {
       System.out.println("Error!--" + e);
+      return false;
     } finally {
-      pw.close();
+      if (pw != null)
+        pw.close();
     }
   }
 
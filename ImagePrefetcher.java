@@ -0,0 +1,393 @@
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Class that decodes images and scales them to fit the image container on a pool of background threads.
+ * Besides the image being opened, the next few images that still need to be completed are decoded ahead of time
+ * while the current image is being worked on, so opening the next image usually finds it already decoded.
+ * Every decoded image is also kept in a cache limited by memory, so going back to a recent image is instant.
+ * The number of opens that found their image already decoded or requested and the time spent decoding are counted
+ */
+public class ImagePrefetcher {
+
+  private ImageContainer container;   // Container the images are scaled for
+  private ExecutorService pool;       // Threads that decode and scale the images
+  private LinkedHashMap<Path, CompletableFuture<PreparedImage>> images;  // Opened and upcoming images, in the order they were requested
+  private DecodedImageCache cache;    // Recently decoded images
+  private Path openedPath;            // Path of the image last opened
+  private AtomicLong hits;            // Number of opened images that had already been requested ahead of time
+  private AtomicLong misses;          // Number of opened images that had to be decoded when opened
+  private AtomicLong decodes;         // Number of images decoded
+  private AtomicLong decodeNanos;     // Total time spent decoding and scaling images
+  public static final String THREADS_PROPERTY = "frameit.prefetch.threads";  // System property to set the number of decoding threads
+  public static final String AHEAD_PROPERTY = "frameit.prefetch.ahead";      // System property to set the number of images decoded ahead
+  public static final int AHEAD = Math.max(0, Integer.getInteger(ImagePrefetcher.AHEAD_PROPERTY, 3));  // Number of upcoming images decoded ahead
+
+  /**
+   * Class to represent a decoded image along with a copy of it scaled to fit the container
+   */
+  public static class PreparedImage {
+
+    private BufferedImage image;        // Decoded image, which may be subsampled from the full image
+    private int orgWidth;               // Width of the full image
+    private int orgHeight;              // Height of the full image
+    private int subsampling;            // Number of pixels of the full image for each decoded pixel in each direction
+    private BufferedImage scaledImage;  // Image scaled to fit the container
+    private float scale;                // Scale of the scaled image compared to the original
+    private int fitWidth;               // Width of the container the image was scaled for
+    private int fitHeight;              // Height of the container the image was scaled for
+    private boolean filtered;           // Whether or not the scaled image was filtered rather than drawn as a preview
+
+    /**
+     * Returns the decoded image, which is no larger than needed to display it in the container it was decoded for
+     * @return Decoded image
+     */
+    public BufferedImage getImage() {
+      return this.image;
+    }
+
+    /**
+     * Returns the width of the full image
+     * @return Width in pixels of the full image
+     */
+    public int getOrgWidth() {
+      return this.orgWidth;
+    }
+
+    /**
+     * Returns the height of the full image
+     * @return Height in pixels of the full image
+     */
+    public int getOrgHeight() {
+      return this.orgHeight;
+    }
+
+    /**
+     * Returns the number of pixels of the full image for each decoded pixel in each direction
+     * @return Subsampling step (1 if the full image was decoded)
+     */
+    public int getSubsampling() {
+      return this.subsampling;
+    }
+
+    /**
+     * Returns whether or not enough pixels were decoded to display the image in a container of the given size.
+     * An image decoded for a smaller container would only be blurry if it was scaled up to fit a larger one
+     * @param  int w             Width of the container
+     * @param  int h             Height of the container
+     * @return     Whether or not the decoded image is detailed enough for the container
+     */
+    public boolean isDetailedFor(int w, int h) {
+      return this.subsampling <= ImageDecoder.subsamplingFor(this.orgWidth, this.orgHeight, w, h);
+    }
+
+    /**
+     * Returns the image scaled to fit the container
+     * @return Scaled image
+     */
+    public BufferedImage getScaledImage() {
+      return this.scaledImage;
+    }
+
+    /**
+     * Returns the scale of the scaled image compared to the full image
+     * @return Scale of the scaled image
+     */
+    public float getScale() {
+      return this.scale;
+    }
+
+    /**
+     * Returns whether or not the image was scaled for a container of the given size
+     * @param  int w             Width of the container
+     * @param  int h             Height of the container
+     * @return     Whether or not the scaled image fits the container
+     */
+    public boolean isScaledFor(int w, int h) {
+      return this.fitWidth == w && this.fitHeight == h;
+    }
+
+    /**
+     * Returns whether or not the scaled image was filtered, rather than drawn as a preview to be filtered later
+     * @return Whether or not the scaled image was filtered
+     */
+    public boolean isFiltered() {
+      return this.filtered;
+    }
+  }
+
+  /**
+   * Initializes the prefetcher with one decoding thread per two processors unless set by the threads property
+   * @param  ImageContainer imgContainer  Container that the images are scaled for
+   */
+  public ImagePrefetcher(ImageContainer imgContainer) {
+    this.container = imgContainer;
+    int threads = Integer.getInteger(ImagePrefetcher.THREADS_PROPERTY,
+        Math.max(1, Runtime.getRuntime().availableProcessors()/2));
+    this.pool = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "FrameIt image decoder");
+        thread.setDaemon(true);
+        // Decoding ahead should not slow down the interface
+        thread.setPriority(Thread.NORM_PRIORITY-1);
+        return thread;
+      }
+    });
+    this.images = new LinkedHashMap<Path, CompletableFuture<PreparedImage>>();
+    this.cache = new DecodedImageCache();
+    this.openedPath = null;
+    this.hits = new AtomicLong();
+    this.misses = new AtomicLong();
+    this.decodes = new AtomicLong();
+    this.decodeNanos = new AtomicLong();
+  }
+
+  /**
+   * Returns the image to open, which is decoded now unless it is cached or was already requested ahead of time.
+   * A cached image decoded with too few pixels for the container is still returned as a preview, and is decoded again once shown
+   * @param  Path                             path          Path of the image
+   * @param  int                              w             Width of the container to scale the image for
+   * @param  int                              h             Height of the container to scale the image for
+   * @return                                  Image that completes once it is decoded (with null if it could not be decoded)
+   */
+  public synchronized CompletableFuture<PreparedImage> open(Path path, int w, int h) {
+    this.openedPath = path;
+    PreparedImage cached = this.cache.get(path);
+    if (cached != null && cached.isDetailedFor(w, h)) {
+      this.hits.incrementAndGet();
+      CompletableFuture<PreparedImage> image = CompletableFuture.completedFuture(cached);
+      this.images.put(path, image);
+      return image;
+    }
+    CompletableFuture<PreparedImage> image = this.images.get(path);
+    // Images that could not be decoded before are tried again
+    if (image != null && !image.isCancelled() && !(image.isDone() && image.join() == null)) {
+      this.hits.incrementAndGet();
+      return image;
+    }
+    this.misses.incrementAndGet();
+    if (cached != null) {
+      image = CompletableFuture.completedFuture(cached);
+      this.images.put(path, image);
+      return image;
+    }
+    image = decodeLater(path, w, h);
+    this.images.put(path, image);
+    return image;
+  }
+
+  /**
+   * Decodes the upcoming images ahead of time, dropping every other image except the opened one
+   * @param Collection<Path> upcoming Paths of the images expected to be opened next, in order
+   * @param int              w        Width of the container to scale the images for
+   * @param int              h        Height of the container to scale the images for
+   */
+  public synchronized void prefetch(Collection<Path> upcoming, int w, int h) {
+    Iterator<Map.Entry<Path, CompletableFuture<PreparedImage>>> itr = this.images.entrySet().iterator();
+    while (itr.hasNext()) {
+      Map.Entry<Path, CompletableFuture<PreparedImage>> entry = itr.next();
+      if (!entry.getKey().equals(this.openedPath) && !upcoming.contains(entry.getKey())) {
+        // Images that have not started decoding yet are never decoded
+        entry.getValue().cancel(false);
+        itr.remove();
+      }
+    }
+    for (Path path : upcoming) {
+      PreparedImage cached = this.cache.get(path);
+      if (!this.images.containsKey(path) && (cached == null || !cached.isDetailedFor(w, h)))
+        this.images.put(path, decodeLater(path, w, h));
+    }
+  }
+
+  /**
+   * Decodes an opened image again for a container of the given size, such as after the container was enlarged
+   * beyond the size the image was decoded for
+   * @param  Path                             path          Path of the image
+   * @param  int                              w             Width of the container to decode and scale the image for
+   * @param  int                              h             Height of the container to decode and scale the image for
+   * @return                                  Image that completes once it is decoded (with null if it could not be decoded)
+   */
+  public synchronized CompletableFuture<PreparedImage> decodeAgain(Path path, int w, int h) {
+    CompletableFuture<PreparedImage> image = decodeLater(path, w, h);
+    this.images.put(path, image);
+    return image;
+  }
+
+  /**
+   * Starts decoding and scaling an image on the decoding threads
+   * @param  Path                             path          Path of the image
+   * @param  int                              w             Width of the container to scale the image for
+   * @param  int                              h             Height of the container to scale the image for
+   * @return                                  Image that completes once it is decoded
+   */
+  private CompletableFuture<PreparedImage> decodeLater(final Path path, final int w, final int h) {
+    return CompletableFuture.supplyAsync(new Supplier<PreparedImage>() {
+      @Override
+      public PreparedImage get() {
+        return decode(path, w, h);
+      }
+    }, this.pool);
+  }
+
+  /**
+   * Decodes an image at the resolution it is displayed at and scales it to fit a container of the given size
+   * @param  Path          path          Path of the image
+   * @param  int           w             Width of the container
+   * @param  int           h             Height of the container
+   * @return               Decoded image or null if it could not be decoded
+   */
+  private PreparedImage decode(Path path, int w, int h) {
+    long start = System.nanoTime();
+    try {
+      ImageDecoder.DecodedImage decoded = ImageDecoder.decode(path, w, h);
+      if (decoded == null) {
+        System.out.println("Error when decoding image! No reader for " + path);
+        return null;
+      }
+      PreparedImage prepared = new PreparedImage();
+      // Converted once so the image is never drawn from a slow format, such as the 3 byte BGR images of JPEG
+      prepared.image = CompatibleImages.toCompatible(decoded.getImage());
+      prepared.orgWidth = decoded.getOrgWidth();
+      prepared.orgHeight = decoded.getOrgHeight();
+      prepared.subsampling = decoded.getSubsampling();
+      // The scale is always relative to the full image, so rectangles map to the coordinates of the full image
+      prepared.scale = this.container.rescaleRatio(prepared.orgWidth, prepared.orgHeight, w, h);
+      prepared.scaledImage = this.container.rescaleImg(prepared.image,
+          (int)(prepared.orgWidth*prepared.scale), (int)(prepared.orgHeight*prepared.scale), false);
+      prepared.fitWidth = w;
+      prepared.fitHeight = h;
+      prepared.filtered = !Resampler.PREVIEW_FIRST;
+      this.cache.put(path, prepared);
+      return prepared;
+    } catch (Throwable e) {
+      // Errors such as running out of memory on a huge image are reported like any other failure,
+      // so the image being opened is never left waiting for a result that will not come
+      System.out.println("Error when decoding image! " + e);
+      return null;
+    } finally {
+      this.decodes.incrementAndGet();
+      this.decodeNanos.addAndGet(System.nanoTime()-start);
+    }
+  }
+
+  /**
+   * Scales an already decoded image to fit a container of the given size on the decoding threads, caching the result
+   * @param  Path                             path          Path of the image
+   * @param  BufferedImage                    img           Decoded image
+   * @param  int                              orgWidth      Width of the full image
+   * @param  int                              orgHeight     Height of the full image
+   * @param  int                              step          Subsampling step the image was decoded with
+   * @param  int                              w             Width of the container
+   * @param  int                              h             Height of the container
+   * @param  boolean                          filtered      Whether or not to filter the image even if a preview would be drawn
+   * @return                                  Image that completes once it is scaled
+   */
+  public CompletableFuture<PreparedImage> scaleLater(final Path path, final BufferedImage img, final int orgWidth,
+      final int orgHeight, final int step, final int w, final int h, final boolean filtered) {
+    return CompletableFuture.supplyAsync(new Supplier<PreparedImage>() {
+      @Override
+      public PreparedImage get() {
+        float scale = container.rescaleRatio(orgWidth, orgHeight, w, h);
+        BufferedImage scaled = container.rescaleImg(img, (int)(orgWidth*scale), (int)(orgHeight*scale), filtered);
+        return cacheScaled(path, img, orgWidth, orgHeight, step, scaled, scale, w, h, filtered || !Resampler.PREVIEW_FIRST);
+      }
+    }, this.pool);
+  }
+
+  /**
+   * Caches an opened image again after it was scaled for a container of a different size
+   * @param Path          path   Path of the image
+   * @param BufferedImage img       Decoded image
+   * @param int           orgWidth  Width of the full image
+   * @param int           orgHeight Height of the full image
+   * @param int           step      Subsampling step the image was decoded with
+   * @param BufferedImage scaled    Image scaled to fit the container
+   * @param float         scale     Scale of the scaled image compared to the full image
+   * @param int           w         Width of the container
+   * @param int           h         Height of the container
+   * @param boolean       filtered  Whether or not the scaled image was filtered rather than drawn as a preview
+   * @return              Cached image
+   */
+  public PreparedImage cacheScaled(Path path, BufferedImage img, int orgWidth, int orgHeight, int step,
+      BufferedImage scaled, float scale, int w, int h, boolean filtered) {
+    PreparedImage prepared = new PreparedImage();
+    prepared.image = img;
+    prepared.orgWidth = orgWidth;
+    prepared.orgHeight = orgHeight;
+    prepared.subsampling = step;
+    prepared.scaledImage = scaled;
+    prepared.scale = scale;
+    prepared.fitWidth = w;
+    prepared.fitHeight = h;
+    prepared.filtered = filtered;
+    this.cache.put(path, prepared);
+    return prepared;
+  }
+
+  /**
+   * Returns the cache of recently decoded images
+   * @return Decoded image cache
+   */
+  public DecodedImageCache getCache() {
+    return this.cache;
+  }
+
+  /**
+   * Returns the number of opened images that had already been requested ahead of time
+   * @return Number of hits
+   */
+  public long getHits() {
+    return this.hits.get();
+  }
+
+  /**
+   * Returns the number of opened images that had to be decoded when they were opened
+   * @return Number of misses
+   */
+  public long getMisses() {
+    return this.misses.get();
+  }
+
+  /**
+   * Returns the fraction of opened images that had already been requested ahead of time
+   * @return Hit rate between 0 and 1
+   */
+  public double getHitRate() {
+    long total = getHits()+getMisses();
+    return total == 0 ? 0 : ((double)getHits())/total;
+  }
+
+  /**
+   * Returns the number of images that have been decoded
+   * @return Number of decodes
+   */
+  public long getDecodes() {
+    return this.decodes.get();
+  }
+
+  /**
+   * Returns the average time spent decoding and scaling an image
+   * @return Average decode time in milliseconds
+   */
+  public double getAverageDecodeMillis() {
+    long count = getDecodes();
+    return count == 0 ? 0 : this.decodeNanos.get()/1000000.0/count;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d hits, %d misses (%.0f%% hit rate), %d decodes averaging %.1f ms",
+        getHits(), getMisses(), getHitRate()*100, getDecodes(), getAverageDecodeMillis());
+  }
+}
@@ -0,0 +1,759 @@
+import java.io.BufferedReader;
+import java.io.PrintWriter;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
+
+/**
+ * Class that indexes the relative path of every image in the image directory so images can be searched by name.
+ * The index is built once in the background and then kept up to date with the changes found by the directory watcher.
+ * All paths are kept in a sorted array in the order they would be visited when walking the directories, along with
+ * the lower case file names sorted on their own for prefix searches and all lower case paths joined into a single
+ * string for substring searches. Changes are kept in small added and removed sets on top of the sorted arrays,
+ * which are rebuilt once the sets grow large. The completion of every image is kept as well, so the next image
+ * that still needs to be completed can be found across directories. The directories are found through the entries of the
+ * completion index, and the images of each directory are stored in a file of their own next to the save folder along with
+ * the modification times of the completion entry they were listed with. A build only lists the directories whose entries
+ * have changed since, so only the search index ever holds the name of every image. The index is only ever used from its own background thread
+ */
+public class ImageTreeIndex {
+
+  private Path imgDir;                    // Outermost image directory
+  private Path saveDir;                   // Outermost save directory
+  private CompletionIndex completionIndex;  // Completion index that the directories of the tree are taken from
+  private Path indexFile;                 // File the images of every directory are stored in between builds
+  private String[] paths;                 // Relative path of every image, in walking order
+  private String[] lowerNames;            // Lower case file name of every image, sorted
+  private int[] nameRows;                 // Index in the paths array of each sorted file name
+  private String lowerText;               // Lower case paths joined by new lines, for substring searches
+  private int[] textStarts;               // Index in the joined text where each path starts
+  private SummaryBitSet incomplete;       // Rows of the paths array that have not been completed and have not been removed
+  private HashMap<String, Boolean> added; // Relative paths and completion of images added since the arrays were built
+  private TreeSet<String> addedIncomplete;  // Relative paths of the added images that have not been completed, in walking order
+  private HashSet<String> removed;        // Relative paths of images removed since the arrays were built
+  private HashSet<String> removedDirs;    // Relative paths of directories removed since the arrays were built
+  private volatile boolean built;         // Whether or not the index has finished its first build
+  private ExecutorService worker;         // Background thread that builds, updates and searches the index
+  public static final int REBUILD_THRESHOLD = 50000;  // Number of added and removed paths above which the arrays are rebuilt
+  public static final String INDEX_FILE_NAME = "image_index.txt";  // Name of the file the directory listings are stored in
+  private static final String INDEX_HEADER = "FrameIt image index 1";  // First line of the index file
+
+  /**
+   * Class to represent the listing of a single directory along with the modification times of the completion entry it was listed with
+   */
+  private static class StoredListing {
+
+    private long imgModified;          // Modification time of the directory when it was listed
+    private long saveModified;         // Modification time of the matching save directory when it was listed
+    private DirectoryListing listing;  // Subdirectories and images of the directory
+  }
+
+  // Compares relative paths one name at a time, so the contents of a directory come right after it
+  public static final Comparator<String> WALK_ORDER = new Comparator<String>() {
+    @Override
+    public int compare(String a, String b) {
+      int length = Math.min(a.length(), b.length());
+      for (int i=0; i < length; i++) {
+        char charA = a.charAt(i);
+        char charB = b.charAt(i);
+        if (charA != charB) {
+          // The separator comes before every other character
+          if (charA == '/')
+            return -1;
+          else if (charB == '/')
+            return 1;
+          return charA-charB;
+        }
+      }
+      return a.length()-b.length();
+    }
+  };
+
+  /**
+   * Initializes an empty index for the given image and save directories. The index is empty until build() is called
+   * @param  Path            imgPath       Outermost image directory
+   * @param  Path            savePath      Outermost save directory
+   * @param  CompletionIndex compIndex     Completion index to find the directories through
+   */
+  public ImageTreeIndex(Path imgPath, Path savePath, CompletionIndex compIndex) {
+    this.imgDir = imgPath;
+    this.saveDir = savePath;
+    this.completionIndex = compIndex;
+    this.indexFile = savePath.resolveSibling(ImageTreeIndex.INDEX_FILE_NAME);
+    this.added = new HashMap<String, Boolean>();
+    this.addedIncomplete = new TreeSet<String>(ImageTreeIndex.WALK_ORDER);
+    this.removed = new HashSet<String>();
+    this.removedDirs = new HashSet<String>();
+    this.built = false;
+    setPaths(new String[0], new BitSet());
+    this.worker = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "FrameIt search index");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
+  /**
+   * Starts building the index by walking every directory in the background. Building again replaces the whole index.
+   * Only the directories whose completion entries changed since the last build are listed again, and the rest are taken from the index file
+   */
+  public void build() {
+    this.worker.execute(new Runnable() {
+      @Override
+      public void run() {
+        ArrayList<String> found = new ArrayList<String>();
+        BitSet foundCompleted = new BitSet();
+        HashMap<String, StoredListing> listings = new HashMap<String, StoredListing>();
+        collectImages(imgDir, found, foundCompleted, loadListings(), listings);
+        saveListings(listings);
+        // Stores any completion entries that were listed again for the next start
+        completionIndex.save();
+        added.clear();
+        addedIncomplete.clear();
+        removed.clear();
+        removedDirs.clear();
+        sortPaths(found, foundCompleted);
+        built = true;
+      }
+    });
+  }
+
+  /**
+   * Searches the index in the background and hands the matches to the callback.
+   * File names starting with the query are matched first, followed by paths containing the query anywhere
+   * @param String                  query    Text to search for, ignoring case
+   * @param int                     max      Maximum number of matches to return
+   * @param Consumer<ArrayList<Path>> callback Function that receives the full paths of the matches on the index thread
+   */
+  public void searchLater(final String query, final int max, final Consumer<ArrayList<Path>> callback) {
+    this.worker.execute(new Runnable() {
+      @Override
+      public void run() {
+        ArrayList<Path> matches = new ArrayList<Path>();
+        for (String relPath : search(query, max))
+          matches.add(imgDir.resolve(relPath));
+        callback.accept(matches);
+      }
+    });
+  }
+
+  /**
+   * Searches the index for images matching the query. Should only be called from the index thread
+   * @param  String query         Text to search for, ignoring case
+   * @param  int    max           Maximum number of matches to return
+   * @return        Relative paths of the matches
+   */
+  public ArrayList<String> search(String query, int max) {
+    ArrayList<String> matches = new ArrayList<String>();
+    String lowerQuery = query.trim().toLowerCase(Locale.ROOT);
+    if (lowerQuery.isEmpty())
+      return matches;
+    HashSet<String> matched = new HashSet<String>();
+
+    // File names starting with the query are next to each other in the sorted names
+    int low = 0;
+    int high = this.lowerNames.length;
+    while (low < high) {
+      int mid = (low+high) >>> 1;
+      if (this.lowerNames[mid].compareTo(lowerQuery) < 0)
+        low = mid+1;
+      else
+        high = mid;
+    }
+    for (int i=low; i < this.lowerNames.length && matches.size() < max && this.lowerNames[i].startsWith(lowerQuery); i++)
+      addMatch(this.paths[this.nameRows[i]], matches, matched);
+
+    // Any path containing the query is then found in the joined text, in walking order
+    int from = 0;
+    while (matches.size() < max) {
+      int found = this.lowerText.indexOf(lowerQuery, from);
+      if (found < 0)
+        break;
+      int row = Arrays.binarySearch(this.textStarts, found);
+      if (row < 0)
+        row = -row-2;
+      addMatch(this.paths[row], matches, matched);
+      // Skips to the next path so each path is only matched once
+      from = row+1 < this.textStarts.length ? this.textStarts[row+1] : this.lowerText.length();
+    }
+
+    // Images added since the arrays were built are checked one by one
+    ArrayList<String> addedMatches = new ArrayList<String>();
+    for (String relPath : this.added.keySet()) {
+      String lowerPath = relPath.toLowerCase(Locale.ROOT);
+      if (lowerPath.contains(lowerQuery))
+        addedMatches.add(relPath);
+    }
+    addedMatches.sort(ImageTreeIndex.WALK_ORDER);
+    for (String relPath : addedMatches) {
+      if (matches.size() >= max)
+        break;
+      addMatch(relPath, matches, matched);
+    }
+    return matches;
+  }
+
+  /**
+   * Adds a matching path to the results unless it was already matched or has been removed
+   * @param String          relPath Relative path of the match
+   * @param ArrayList<String> matches List of matches so far
+   * @param HashSet<String> matched Set of paths that have already been matched
+   */
+  private void addMatch(String relPath, ArrayList<String> matches, HashSet<String> matched) {
+    if (isRemoved(relPath) || !matched.add(relPath))
+      return;
+    matches.add(relPath);
+  }
+
+  /**
+   * Returns whether or not a path in the arrays has been removed since they were built
+   * @param  String relPath       Relative path of an image
+   * @return        Whether or not the image was removed
+   */
+  private boolean isRemoved(String relPath) {
+    if (this.removed.contains(relPath))
+      return true;
+    // Each directory above the path is looked up, so the cost does not grow with the number of removed directories
+    for (int idx = relPath.lastIndexOf('/'); idx > 0 && !this.removedDirs.isEmpty(); idx = relPath.lastIndexOf('/', idx-1)) {
+      if (this.removedDirs.contains(relPath.substring(0, idx)))
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * Applies a batch of changed paths from the directory watcher in the background
+   * @param Collection<Path> imgPaths Changed paths within the image directory
+   */
+  public void applyChangesLater(Collection<Path> imgPaths) {
+    final ArrayList<Path> changes = new ArrayList<Path>(imgPaths);
+    this.worker.execute(new Runnable() {
+      @Override
+      public void run() {
+        for (Path path : changes)
+          applyChange(path);
+        if (added.size()+removed.size()+removedDirs.size() > ImageTreeIndex.REBUILD_THRESHOLD)
+          rebuild();
+      }
+    });
+  }
+
+  /**
+   * Brings the index up to date with a single changed path. Should only be called from the index thread
+   * @param Path path Changed path within the image directory
+   */
+  public void applyChange(Path path) {
+    if (!path.startsWith(this.imgDir) || path.equals(this.imgDir))
+      return;
+    String relPath = toRelative(path);
+
+    if (Files.isDirectory(path)) {
+      // A new directory may already hold images by the time its events arrive. If a directory of the same
+      // name was removed before, its old images are removed one by one so only the ones that exist again come back
+      if (this.removedDirs.remove(relPath)) {
+        String dirPrefix = relPath + "/";
+        int row = Arrays.binarySearch(this.paths, dirPrefix, ImageTreeIndex.WALK_ORDER);
+        for (row = row < 0 ? -row-1 : row; row < this.paths.length && this.paths[row].startsWith(dirPrefix); row++)
+          this.removed.add(this.paths[row]);
+      }
+      ArrayList<String> found = new ArrayList<String>();
+      BitSet foundCompleted = new BitSet();
+      collectImages(path, found, foundCompleted, null, null);
+      for (int i=0; i < found.size(); i++)
+        addPath(found.get(i), foundCompleted.get(i));
+    } else if (Files.isRegularFile(path)) {
+      if (ImageChecker.isImage(path))
+        addPath(relPath, ScrollList.checkFileCompletion(ScrollList.convertToSavePath(this.imgDir, this.saveDir, path)));
+    } else {
+      // The path no longer exists, so it is removed as either an image or a directory
+      this.added.remove(relPath);
+      this.addedIncomplete.remove(relPath);
+      this.removed.add(relPath);
+      String dirPrefix = relPath + "/";
+      boolean wasDir = false;
+      Iterator<String> itr = this.added.keySet().iterator();
+      while (itr.hasNext()) {
+        String image = itr.next();
+        if (image.startsWith(dirPrefix)) {
+          itr.remove();
+          this.addedIncomplete.remove(image);
+        }
+      }
+      // Removed rows are no longer incomplete, so they are never chosen as the next image
+      int row = Arrays.binarySearch(this.paths, relPath, ImageTreeIndex.WALK_ORDER);
+      if (row >= 0)
+        this.incomplete.clear(row);
+      for (row = firstRowIn(relPath); row < this.paths.length && this.paths[row].startsWith(dirPrefix); row++) {
+        this.incomplete.clear(row);
+        wasDir = true;
+      }
+      // Only a directory with rows under it has to hide them, so removed images do not slow down every lookup
+      if (wasDir)
+        this.removedDirs.add(relPath);
+    }
+  }
+
+  /**
+   * Returns the first row of the paths array within the given directory
+   * @param  String relDir        Relative path of the directory
+   * @return        Index of the first row that would be within the directory
+   */
+  private int firstRowIn(String relDir) {
+    int row = Arrays.binarySearch(this.paths, relDir + "/", ImageTreeIndex.WALK_ORDER);
+    return row < 0 ? -row-1 : row;
+  }
+
+  /**
+   * Marks an image as completed in the background, such as right after it was saved
+   * @param Path imgPath Path of the completed image
+   */
+  public void markCompletedLater(final Path imgPath) {
+    this.worker.execute(new Runnable() {
+      @Override
+      public void run() {
+        if (imgPath.startsWith(imgDir) && !imgPath.equals(imgDir))
+          setCompleted(toRelative(imgPath), true);
+      }
+    });
+  }
+
+  /**
+   * Applies a batch of changed save files from the directory watcher to the completion of the images in the background
+   * @param Collection<Path> savePaths Changed paths within the save directory
+   */
+  public void applySaveChangesLater(Collection<Path> savePaths) {
+    final ArrayList<Path> changes = new ArrayList<Path>(savePaths);
+    this.worker.execute(new Runnable() {
+      @Override
+      public void run() {
+        for (Path path : changes)
+          applySaveChange(path);
+      }
+    });
+  }
+
+  /**
+   * Brings the completion of the images matching a changed save path up to date. Should only be called from the index thread
+   * @param Path savePath Changed path within the save directory
+   */
+  public void applySaveChange(Path savePath) {
+    if (!savePath.startsWith(this.saveDir) || savePath.equals(this.saveDir))
+      return;
+    String relPath = toRelative(this.imgDir.resolve(this.saveDir.relativize(savePath)));
+    boolean exists = Files.exists(savePath);
+
+    if (!relPath.endsWith(".txt")) {
+      // A removed save directory takes the completion of every image within it along with it.
+      // A new save directory is registered by the watcher, which then reports each save file within it
+      if (!exists) {
+        for (int row = firstRowIn(relPath); row < this.paths.length && this.paths[row].startsWith(relPath + "/"); row++) {
+          if (!isRemoved(this.paths[row]))
+            this.incomplete.set(row);
+        }
+        for (Map.Entry<String, Boolean> entry : this.added.entrySet()) {
+          if (entry.getKey().startsWith(relPath + "/")) {
+            entry.setValue(false);
+            this.addedIncomplete.add(entry.getKey());
+          }
+        }
+      }
+      return;
+    }
+
+    // Every image with the same name apart from its extension shares the save file
+    String saveName = relPath.substring(relPath.lastIndexOf('/')+1);
+    String stem = relPath.substring(0, relPath.length()-4);
+    ArrayList<String> matches = new ArrayList<String>();
+    int row = Arrays.binarySearch(this.paths, stem, ImageTreeIndex.WALK_ORDER);
+    if (row >= 0)
+      matches.add(stem);
+    row = Arrays.binarySearch(this.paths, stem + ".", ImageTreeIndex.WALK_ORDER);
+    for (row = row < 0 ? -row-1 : row; row < this.paths.length && this.paths[row].startsWith(stem + "."); row++)
+      matches.add(this.paths[row]);
+    for (String image : this.added.keySet()) {
+      if (image.equals(stem) || image.startsWith(stem + "."))
+        matches.add(image);
+    }
+    for (String image : matches) {
+      int nameIdx = image.lastIndexOf('/')+1;
+      if (nameIdx == stem.lastIndexOf('/')+1 && ScrollList.convertToSaveName(image.substring(nameIdx)).equals(saveName))
+        setCompleted(image, exists);
+    }
+  }
+
+  /**
+   * Sets the completion of a single image in the index
+   * @param String  relPath Relative path of the image
+   * @param boolean comp    Whether or not the image has been completed
+   */
+  private void setCompleted(String relPath, boolean comp) {
+    if (this.added.containsKey(relPath)) {
+      putAdded(relPath, comp);
+      return;
+    }
+    int row = Arrays.binarySearch(this.paths, relPath, ImageTreeIndex.WALK_ORDER);
+    if (row >= 0 && !isRemoved(relPath))
+      this.incomplete.set(row, !comp);
+  }
+
+  /**
+   * Finds the next image that has not been completed in the background, going back to the first
+   * image of the image directory after the last one
+   * @param Path           from     Path of an image or directory to start after (null to start at the beginning)
+   * @param Consumer<Path> callback Function that receives the path of the next image on the index thread (null if every image is completed)
+   */
+  public void nextIncompleteLater(final Path from, final Consumer<Path> callback) {
+    this.worker.execute(new Runnable() {
+      @Override
+      public void run() {
+        String after = from != null && from.startsWith(imgDir) ? toRelative(from) : "";
+        String next = nextIncomplete(after);
+        if (next == null && !after.isEmpty())
+          next = nextIncomplete("");
+        callback.accept(next == null ? null : imgDir.resolve(next));
+      }
+    });
+  }
+
+  /**
+   * Finds the next few images that have not been completed in the background, in the order they would be opened
+   * @param Path                     from     Path of an image or directory to start after (null to start at the beginning)
+   * @param int                      max      Maximum number of images to find
+   * @param Consumer<ArrayList<Path>> callback Function that receives the paths of the images on the index thread
+   */
+  public void upcomingIncompleteLater(final Path from, final int max, final Consumer<ArrayList<Path>> callback) {
+    this.worker.execute(new Runnable() {
+      @Override
+      public void run() {
+        ArrayList<Path> upcoming = new ArrayList<Path>();
+        String start = from != null && from.startsWith(imgDir) ? toRelative(from) : "";
+        String after = start;
+        boolean wrapped = false;
+        while (upcoming.size() < max) {
+          String next = nextIncomplete(after);
+          // Goes back to the first image once after the last one, stopping before the starting path
+          if (next == null && !wrapped && !start.isEmpty()) {
+            wrapped = true;
+            after = "";
+            continue;
+          }
+          if (next == null || (wrapped && ImageTreeIndex.WALK_ORDER.compare(next, start) >= 0))
+            break;
+          upcoming.add(imgDir.resolve(next));
+          after = next;
+        }
+        callback.accept(upcoming);
+      }
+    });
+  }
+
+  /**
+   * Finds the first image that has not been completed after the given path in walking order.
+   * Should only be called from the index thread
+   * @param  String after         Relative path to start after, where a directory starts at its first image
+   * @return        Relative path of the next incomplete image or null if there is none
+   */
+  public String nextIncomplete(String after) {
+    int row = Arrays.binarySearch(this.paths, after, ImageTreeIndex.WALK_ORDER);
+    int found = this.incomplete.nextSetBit(row < 0 ? -row-1 : row+1);
+    String next = found < 0 ? null : this.paths[found];
+
+    // The incomplete images added since the arrays were built are kept in walking order as well
+    String addedNext = this.addedIncomplete.higher(after);
+    if (addedNext != null && (next == null || ImageTreeIndex.WALK_ORDER.compare(addedNext, next) < 0))
+      next = addedNext;
+    return next;
+  }
+
+  /**
+   * Adds an image to the index unless it is already in the arrays, in which case only its completion is updated
+   * @param String  relPath Relative path of the image
+   * @param boolean comp    Whether or not the image has been completed
+   */
+  private void addPath(String relPath, boolean comp) {
+    this.removed.remove(relPath);
+    int row = Arrays.binarySearch(this.paths, relPath, ImageTreeIndex.WALK_ORDER);
+    if (row >= 0 && !isRemoved(relPath)) {
+      this.incomplete.set(row, !comp);
+      return;
+    }
+    putAdded(relPath, comp);
+  }
+
+  /**
+   * Sets the completion of an image added since the arrays were built
+   * @param String  relPath Relative path of the image
+   * @param boolean comp    Whether or not the image has been completed
+   */
+  private void putAdded(String relPath, boolean comp) {
+    this.added.put(relPath, comp);
+    if (comp)
+      this.addedIncomplete.remove(relPath);
+    else
+      this.addedIncomplete.add(relPath);
+  }
+
+  /**
+   * Rebuilds the arrays from the current arrays and the added and removed sets
+   */
+  private void rebuild() {
+    ArrayList<String> current = new ArrayList<String>(this.paths.length+this.added.size());
+    BitSet currentCompleted = new BitSet();
+    for (int i=0; i < this.paths.length; i++) {
+      if (!isRemoved(this.paths[i])) {
+        if (!this.incomplete.get(i))
+          currentCompleted.set(current.size());
+        current.add(this.paths[i]);
+      }
+    }
+    for (Map.Entry<String, Boolean> entry : this.added.entrySet()) {
+      if (entry.getValue())
+        currentCompleted.set(current.size());
+      current.add(entry.getKey());
+    }
+    this.added.clear();
+    this.addedIncomplete.clear();
+    this.removed.clear();
+    this.removedDirs.clear();
+    sortPaths(current, currentCompleted);
+  }
+
+  /**
+   * Sorts the found paths into walking order and sets them as the paths of the index
+   * @param ArrayList<String> found     Relative paths of every image in any order
+   * @param BitSet            completed Completion of each image, by its index in the found paths
+   */
+  private void sortPaths(final ArrayList<String> found, BitSet completed) {
+    Integer[] order = new Integer[found.size()];
+    for (int i=0; i < order.length; i++)
+      order[i] = i;
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        return ImageTreeIndex.WALK_ORDER.compare(found.get(a), found.get(b));
+      }
+    });
+    String[] sorted = new String[order.length];
+    BitSet sortedCompleted = new BitSet(order.length);
+    for (int i=0; i < order.length; i++) {
+      sorted[i] = found.get(order[i]);
+      if (completed.get(order[i]))
+        sortedCompleted.set(i);
+    }
+    setPaths(sorted, sortedCompleted);
+  }
+
+  /**
+   * Sets the sorted paths and builds the name and text arrays used to search them
+   * @param String[] sorted    Relative paths of every image in walking order
+   * @param BitSet   completed Completion of each image, by its row in the sorted paths
+   */
+  private void setPaths(String[] sorted, BitSet completed) {
+    this.paths = sorted;
+    this.incomplete = new SummaryBitSet(sorted.length);
+    for (int i = completed.nextClearBit(0); i < sorted.length; i = completed.nextClearBit(i+1))
+      this.incomplete.set(i);
+
+    // Sorts the row of each path by its lower case file name
+    final String[] names = new String[sorted.length];
+    Integer[] order = new Integer[sorted.length];
+    for (int i=0; i < sorted.length; i++) {
+      names[i] = sorted[i].substring(sorted[i].lastIndexOf('/')+1).toLowerCase(Locale.ROOT);
+      order[i] = i;
+    }
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        return names[a].compareTo(names[b]);
+      }
+    });
+    this.lowerNames = new String[sorted.length];
+    this.nameRows = new int[sorted.length];
+    for (int i=0; i < sorted.length; i++) {
+      this.lowerNames[i] = names[order[i]];
+      this.nameRows[i] = order[i];
+    }
+
+    // Joins every path into one string, remembering where each one starts
+    StringBuilder text = new StringBuilder();
+    this.textStarts = new int[sorted.length];
+    for (int i=0; i < sorted.length; i++) {
+      this.textStarts[i] = text.length();
+      text.append(sorted[i].toLowerCase(Locale.ROOT)).append('\n');
+    }
+    this.lowerText = text.toString();
+  }
+
+  /**
+   * Finds every image within the directory and all of its subdirectories along with their completion.
+   * The entries of the completion index are brought up to date first, which only rescans the directories modified
+   * since they were counted. A stored listing is reused while the directory's entry has the modification times it
+   * was listed with, and the completion of its images is only checked again if the save directory was modified
+   * @param Path                          start     Directory to search
+   * @param ArrayList<String>             found     List to add the relative path of each image to
+   * @param BitSet                        completed Set to mark the completed images in, by their index in the found list
+   * @param HashMap<String, StoredListing> stored    Stored listings to reuse by relative directory path (null to list every directory)
+   * @param HashMap<String, StoredListing> listings  Map to put the listing of every directory in to store it (null to not keep them)
+   */
+  private void collectImages(Path start, ArrayList<String> found, BitSet completed,
+      HashMap<String, StoredListing> stored, HashMap<String, StoredListing> listings) {
+    this.completionIndex.getCompletion(start);
+    ArrayList<Path> toVisit = new ArrayList<Path>();
+    toVisit.add(start);
+    while (!toVisit.isEmpty()) {
+      Path dirPath = toVisit.remove(toVisit.size()-1);
+      DirCompletionEntry entry = this.completionIndex.getIndexedEntry(dirPath);
+      if (entry == null)
+        continue;
+      String relDir = toRelative(dirPath);
+      StoredListing previous = stored != null ? stored.get(relDir) : null;
+      StoredListing current = new StoredListing();
+      if (previous != null && previous.imgModified == entry.getImgModified()) {
+        current.listing = previous.saveModified == entry.getSaveModified() ? previous.listing : checkCompletion(dirPath, previous.listing);
+      } else {
+        // Listing the directory also replaces its completion entry, so the stored times are taken from the new entry
+        current.listing = this.completionIndex.scanListing(dirPath);
+        DirCompletionEntry scanned = this.completionIndex.getIndexedEntry(dirPath);
+        if (scanned != null)
+          entry = scanned;
+      }
+      current.imgModified = entry.getImgModified();
+      current.saveModified = entry.getSaveModified();
+      if (listings != null)
+        listings.put(relDir, current);
+
+      DirectoryListing listing = current.listing;
+      for (int i=0; i < listing.getImages().size(); i++) {
+        if (listing.isCompleted(i))
+          completed.set(found.size());
+        found.add(toRelative(dirPath.resolve(listing.getImages().get(i))));
+      }
+      for (String subdir : listing.getSubdirs())
+        toVisit.add(dirPath.resolve(subdir));
+    }
+  }
+
+  /**
+   * Checks the completion of the images of a stored listing again against a single listing of the save directory
+   * @param  Path             dirPath       Directory the listing is of
+   * @param  DirectoryListing stored        Stored listing of the directory
+   * @return                  New listing with the same subdirectories and images and their current completion
+   */
+  private DirectoryListing checkCompletion(Path dirPath, DirectoryListing stored) {
+    SaveLookup saves = new SaveLookup(this.saveDir.resolve(this.imgDir.relativize(dirPath)));
+    DirectoryListing listing = new DirectoryListing();
+    for (String subdir : stored.getSubdirs())
+      listing.addSubdir(subdir);
+    for (String name : stored.getImages())
+      listing.addImage(name, saves.contains(ScrollList.convertToSaveName(name)));
+    return listing;
+  }
+
+  /**
+   * Loads the directory listings stored by the last build. A missing or unreadable file is treated as empty
+   * @return Stored listings by relative directory path
+   */
+  private HashMap<String, StoredListing> loadListings() {
+    HashMap<String, StoredListing> loaded = new HashMap<String, StoredListing>();
+    if (!Files.exists(this.indexFile))
+      return loaded;
+    try (BufferedReader reader = Files.newBufferedReader(this.indexFile)) {
+      if (!ImageTreeIndex.INDEX_HEADER.equals(reader.readLine()))
+        return loaded;
+
+      String line;
+      while ((line = reader.readLine()) != null) {
+        // Each directory line is "relative path, image mod time, save mod time, subdirectory count, image count"
+        String[] parts = line.split("\t", -1);
+        StoredListing stored = new StoredListing();
+        stored.imgModified = Long.parseLong(parts[1]);
+        stored.saveModified = Long.parseLong(parts[2]);
+        stored.listing = new DirectoryListing();
+        int subdirNum = Integer.parseInt(parts[3]);
+        int imageNum = Integer.parseInt(parts[4]);
+        // Followed by one line for each subdirectory name, and one line for each image as "completed flag, name"
+        for (int i=0; i < subdirNum; i++)
+          stored.listing.addSubdir(reader.readLine());
+        for (int i=0; i < imageNum; i++) {
+          String image = reader.readLine();
+          stored.listing.addImage(image.substring(2), image.charAt(0) == '1');
+        }
+        loaded.put(parts[0], stored);
+      }
+    } catch (Exception e) {
+      System.out.println("Error when loading image index! " + e);
+      loaded.clear();
+    }
+    return loaded;
+  }
+
+  /**
+   * Stores the directory listings of a build, replacing the listings of the last build
+   * @param HashMap<String, StoredListing> listings Listings by relative directory path
+   */
+  private void saveListings(HashMap<String, StoredListing> listings) {
+    Path tempFile = this.indexFile.resolveSibling(ImageTreeIndex.INDEX_FILE_NAME + ".tmp");
+    try (PrintWriter pw = new PrintWriter(Files.newBufferedWriter(tempFile))) {
+      pw.println(ImageTreeIndex.INDEX_HEADER);
+      for (Map.Entry<String, StoredListing> entry : listings.entrySet()) {
+        StoredListing stored = entry.getValue();
+        DirectoryListing listing = stored.listing;
+        pw.println(entry.getKey() + "\t" + stored.imgModified + "\t" + stored.saveModified +
+            "\t" + listing.getSubdirs().size() + "\t" + listing.getImages().size());
+        for (String subdir : listing.getSubdirs())
+          pw.println(subdir);
+        for (int i=0; i < listing.getImages().size(); i++)
+          pw.println((listing.isCompleted(i) ? "1\t" : "0\t") + listing.getImages().get(i));
+      }
+    } catch (Exception e) {
+      System.out.println("Error when saving image index! " + e);
+      return;
+    }
+
+    try {
+      Files.move(tempFile, this.indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (Exception e) {
+      System.out.println("Error when saving image index! " + e);
+    }
+  }
+
+  /**
+   * Converts a path within the image directory to the relative form used by the index
+   * @param  Path path          Path within the image directory
+   * @return      Relative path separated by "/"
+   */
+  private String toRelative(Path path) {
+    Path relative = this.imgDir.relativize(path);
+    StringBuilder relPath = new StringBuilder();
+    for (int i=0; i < relative.getNameCount(); i++) {
+      if (i > 0)
+        relPath.append('/');
+      relPath.append(relative.getName(i).toString());
+    }
+    return relPath.toString();
+  }
+
+  /**
+   * Returns whether or not the first build of the index has finished
+   * @return Whether or not the index is built
+   */
+  public boolean isBuilt() {
+    return this.built;
+  }
+}
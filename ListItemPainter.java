@@ -0,0 +1,93 @@
+import java.awt.*;
+
+/**
+ * Class that draws the rows of the scroll list. A single painter is shared by every row, so the
+ * list does not need a component for each entry and only the displayed rows are ever drawn.
+ * The fitted font of each row's text is cached, so drawing rows that have been drawn before does not create any objects
+ */
+public class ListItemPainter {
+
+  private TextFitCache textFits;  // Fitted font of the text of recently drawn rows
+  public static final int CACHED_ROWS = 4096;   // Number of row texts whose fitted font is remembered
+
+  /**
+   * Initializes the painter with an empty text cache
+   */
+  public ListItemPainter() {
+    this.textFits = new TextFitCache(ListItemPainter.CACHED_ROWS);
+  }
+
+  /**
+   * Draws an empty row for an entry that has not been read yet
+   * @param Graphics g Graphics to draw with
+   * @param int      x Starting X coordinate of the row
+   * @param int      y Starting Y coordinate of the row
+   * @param int      w Total width of the row
+   * @param int      h Total height of the row
+   */
+  public void paintPlaceholder(Graphics g, int x, int y, int w, int h) {
+    g.setColor(Palette.PENDING);
+    g.fillRect(x, y, w, h);
+    g.setColor(Palette.BORDER);
+    g.drawRect(x, y, w, h);
+  }
+
+  /**
+   * Draws a single row of the explorer model
+   * @param Graphics      g        Graphics to draw with
+   * @param ExplorerModel model    Model holding the row
+   * @param int           idx      Index of the row in the model
+   * @param int           x        Starting X coordinate of the row
+   * @param int           y        Starting Y coordinate of the row
+   * @param int           w        Total width of the row
+   * @param int           h        Total height of the row
+   * @param boolean       selected Whether or not the row is currently selected
+   * @param boolean       open     Whether or not the row is currently open in the image marker
+   */
+  public void paintItem(Graphics g, ExplorerModel model, int idx, int x, int y, int w, int h,
+      boolean selected, boolean open) {
+    // Directory rows show their completion, while images and the parent row only show their state
+    if (model.isDirectory(idx) && !model.isParent(idx)) {
+      if (selected) {
+        g.setColor(Palette.SELECTED);
+        g.fillRect(x, y, w, h);
+      } else if (model.isPending(idx)) {
+        g.setColor(Palette.PENDING);
+        g.fillRect(x, y, w, h);
+      } else if (model.isCompleted(idx)) {
+        g.setColor(Palette.COMPLETED);
+        g.fillRect(x, y, w, h);
+      } else {
+        g.setColor(Palette.INCOMPLETE);
+        g.fillRect(x, y, w, h);
+        g.setColor(Palette.COMPLETED);
+        int completionWidth = (int)(w*(((float)model.getCompleteNum(idx))/model.getFileNum(idx)));
+        g.fillRect(x, y, completionWidth, h);
+      }
+    } else {
+      // blue background if selected
+      if (selected)
+        g.setColor(Palette.SELECTED);
+      // else purple if open
+      else if (open)
+        g.setColor(Palette.OPEN);
+      // else green if completed
+      else if (model.isCompleted(idx))
+        g.setColor(Palette.COMPLETED);
+      // else red
+      else
+        g.setColor(Palette.INCOMPLETE);
+      g.fillRect(x, y, w, h);
+    }
+
+    g.setColor(Palette.BORDER);
+    g.drawRect(x, y, w, h);
+    String label = model.getLabel(idx);
+    TextFitCache.FittedText fitted = this.textFits.fit(g, label, w-10);
+    Font orgFont = g.getFont();
+    g.setFont(fitted.getFont());
+    g.drawString(label, x+10, y+fitted.getBaseline(h));
+    // Restores the font so that the next row starts from the full size again
+    g.setFont(orgFont);
+  }
+}
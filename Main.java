@@ -10,10 +10,17 @@ import java.nio.file.*;
 public class Main extends JPanel {
 
   /**
-   * Default method to run the program. No arguments neccessary for now
+   * Default method to run the program. With no arguments the GUI is opened.
+   * With "audit" as the first argument, a completion report is written without opening any windows
    * @param String[] args
    */
   public static void main(String[] args) {
+    // Runs the headless audit instead of the GUI
+    if (args.length > 0 && args[0].equals("audit")) {
+      AuditReport.run(args);
+      return;
+    }
+
     // Allows for a runnable program
     javax.swing.SwingUtilities.invokeLater(new Runnable() {
       public void run() {
@@ -27,7 +34,7 @@ public class Main extends JPanel {
    */
   public static void runGUI() {
     JFrame frame = new JFrame("FrameIt");
-    frame.setBackground(new Color(190, 190, 190));
+    frame.setBackground(Palette.WINDOW);
     frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
     // Initializes the size of the window to be 90% of the total screen width and height
@@ -67,20 +74,7 @@ public class Main extends JPanel {
     this.imageEditorScale = (float)5/6;
     this.frame = frame;
 
-    // Checks for name of operating System
-    String osName = System.getProperty("os.name").toLowerCase();
-
-    // By default, sets the working, image, and save directories based on operating system
-    if (osName.indexOf("nix") >= 0 || osName.indexOf("nux") >= 0 || osName.indexOf("aix") >= 0) {
-      this.workDir = Paths.get(Main.class.getProtectionDomain().getCodeSource().getLocation().getFile());
-      // Replaces any "%20" (representing a space) with and actual space so Java.nio.File can successfully read the file path in linux
-      if (this.workDir.toString().contains("%20"))
-        this.workDir = Paths.get(this.workDir.toString().replace("%20", " "));
-      if (!this.workDir.toFile().isDirectory())
-        this.workDir = this.workDir.getParent();
-    } else if (osName.indexOf("mac") >= 0 || osName.indexOf("win") >= 0)
-      this.workDir = Paths.get(System.getProperty("user.dir"));
-
+    this.workDir = Main.findWorkDir();
     this.imgDir = this.workDir.resolve("images");
     this.saveDir = this.workDir.resolve("saves");
 
@@ -88,6 +82,7 @@ public class Main extends JPanel {
     this.editor = new ImageMarker(this.saveDir, this.imgDir, (int)(width*this.imageEditorScale), height, (int)(width*this.sidePanelScale));
     this.fileExplorer = new FileExplorer(this.editor, this.imgDir, this.saveDir, (int)(width*this.sidePanelScale), height);
     this.editor.setFileExplorer(this.fileExplorer);
+    this.fileExplorer.setFilmStrip(this.editor.getFilmStrip());
 
     // Adds the file explorer to the west side and the editor to the east side of the JPanel
     add(fileExplorer, BorderLayout.WEST);
@@ -102,6 +97,41 @@ public class Main extends JPanel {
 
     // Adds the resizing listener to the JFrame
     this.frame.addComponentListener(resizeListener);
+
+    // Closes the thumbnail pack before the program exits, so the record being written is finished,
+    // and closes the watch service of the directory watcher along with it.
+    // The prefetch hit rate and decode time of the session are reported on the way out
+    this.frame.addWindowListener(new WindowAdapter() {
+        @Override
+        public void windowClosing(WindowEvent e) {
+          editor.getFilmStrip().getThumbnails().close();
+          fileExplorer.stopWatching();
+          System.out.println("Image prefetching: " + editor.getImageContainer().getPrefetcher());
+        }});
+  }
+
+  /**
+   * Finds the working directory of the program, which holds the images and saves folders
+   * @return Path to the working directory
+   */
+  public static Path findWorkDir() {
+    Path workDir = null;
+
+    // Checks for name of operating System
+    String osName = System.getProperty("os.name").toLowerCase();
+
+    // By default, sets the working, image, and save directories based on operating system
+    if (osName.indexOf("nix") >= 0 || osName.indexOf("nux") >= 0 || osName.indexOf("aix") >= 0) {
+      workDir = Paths.get(Main.class.getProtectionDomain().getCodeSource().getLocation().getFile());
+      // Replaces any "%20" (representing a space) with and actual space so Java.nio.File can successfully read the file path in linux
+      if (workDir.toString().contains("%20"))
+        workDir = Paths.get(workDir.toString().replace("%20", " "));
+      if (!workDir.toFile().isDirectory())
+        workDir = workDir.getParent();
+    } else if (osName.indexOf("mac") >= 0 || osName.indexOf("win") >= 0)
+      workDir = Paths.get(System.getProperty("user.dir"));
+
+    return workDir;
   }
 
   /**
@@ -0,0 +1,140 @@
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageInputStreamImpl;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * Class that reads an image file through memory mappings of the whole file instead of reading it in small buffered pieces.
+ * The image readers copy bytes straight out of the pages of the file, without a system call for each read
+ * or a copy through an intermediate buffer, and seeking back only moves the position within the mapping.
+ * Files larger than a single mapping can cover are mapped in several segments.
+ * Mapping is off unless turned on with the mapped property, since a mapping is only released once it is
+ * garbage collected, and until then the file cannot be deleted or renamed on Windows
+ */
+public class MappedImageInputStream extends ImageInputStreamImpl {
+
+  private ArrayList<MappedByteBuffer> segments;  // Memory mappings of the file, each covering SEGMENT_SIZE bytes
+  private long length;                           // Length of the file in bytes
+  public static final long SEGMENT_SIZE = 1L << 30;  // Number of bytes covered by each memory mapping of the file
+  public static final String MAPPED_PROPERTY = "frameit.input.mapped";  // System property to turn on the memory mapped reads
+  public static final boolean MAPPED = Boolean.getBoolean(MappedImageInputStream.MAPPED_PROPERTY);
+
+  /**
+   * Maps the whole file for reading
+   * @param  Path        path          Path of the file
+   * @throws IOException If the file could not be opened or mapped
+   */
+  public MappedImageInputStream(Path path) throws IOException {
+    this.segments = new ArrayList<MappedByteBuffer>();
+    // The mappings stay valid after the channel is closed, so no file handle is held while the image is read
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      this.length = channel.size();
+      for (long start = 0; start < this.length; start += MappedImageInputStream.SEGMENT_SIZE)
+        this.segments.add(channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(MappedImageInputStream.SEGMENT_SIZE, this.length-start)));
+    }
+  }
+
+  /**
+   * Opens an image file for reading, through memory mappings if they are turned on and the file can be mapped
+   * @param  Path             path          Path of the image
+   * @return                  Stream to read the image from, or null if the file could not be opened
+   * @throws IOException      If the file could not be read
+   */
+  public static ImageInputStream open(Path path) throws IOException {
+    if (MappedImageInputStream.MAPPED) {
+      try {
+        return new MappedImageInputStream(path);
+      } catch (IOException | UnsupportedOperationException e) {
+        // Some file systems cannot be mapped, and those files are still read the usual way
+      }
+    }
+    return ImageIO.createImageInputStream(path.toFile());
+  }
+
+  @Override
+  public int read() throws IOException {
+    checkClosed();
+    this.bitOffset = 0;
+    if (this.streamPos >= this.length)
+      return -1;
+    MappedByteBuffer segment = this.segments.get((int)(this.streamPos/MappedImageInputStream.SEGMENT_SIZE));
+    int b;
+    try {
+      b = segment.get((int)(this.streamPos%MappedImageInputStream.SEGMENT_SIZE)) & 0xff;
+    } catch (InternalError e) {
+      throw MappedImageInputStream.truncated(e);
+    }
+    this.streamPos++;
+    return b;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    checkClosed();
+    if (off < 0 || len < 0 || off+len > b.length || off+len < 0)
+      throw new IndexOutOfBoundsException("Invalid offset or length");
+    this.bitOffset = 0;
+    if (len == 0)
+      return 0;
+    if (this.streamPos >= this.length)
+      return -1;
+
+    // Reads that cross the end of a segment continue into the next one
+    int total = (int)Math.min(len, this.length-this.streamPos);
+    int done = 0;
+    while (done < total) {
+      MappedByteBuffer segment = this.segments.get((int)(this.streamPos/MappedImageInputStream.SEGMENT_SIZE));
+      int index = (int)(this.streamPos%MappedImageInputStream.SEGMENT_SIZE);
+      int count = Math.min(total-done, segment.limit()-index);
+      // Positioned on a duplicate, so the shared mapping is never moved
+      ByteBuffer view = segment.duplicate();
+      view.position(index);
+      try {
+        view.get(b, off+done, count);
+      } catch (InternalError e) {
+        throw MappedImageInputStream.truncated(e);
+      }
+      done += count;
+      this.streamPos += count;
+    }
+    return total;
+  }
+
+  /**
+   * Returns the error for a read from a mapping whose file was cut short after it was mapped, which the
+   * virtual machine reports as an internal error rather than as an I/O error
+   * @param  InternalError e             Error from the read
+   * @return               I/O error to throw instead
+   */
+  private static IOException truncated(InternalError e) {
+    return new IOException("Image file was truncated while it was read", e);
+  }
+
+  @Override
+  public long length() {
+    return this.length;
+  }
+
+  @Override
+  public boolean isCached() {
+    return true;
+  }
+
+  @Override
+  public boolean isCachedMemory() {
+    return true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    super.close();
+    // The pages are unmapped once the mappings are garbage collected
+    this.segments = null;
+  }
+}
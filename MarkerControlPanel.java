@@ -13,6 +13,8 @@ public class MarkerControlPanel extends JPanel {
   private ImageContainer imageContainer;    // Image container contained in the image marker
   private SingleTogglePanel modePanel;      // The top controls for controlling modes (i.e. draw and delete)
   private LinkedList<AppButton> buttons;    // List of all of the buttons
+  private AppButton saveButton;             // Button that saves the opened image
+  private AppButton saveProceedButton;      // Button that saves the opened image and opens the next one
   private int defaultButtonHeight;          // Default height to use for the buttons
   private Box.Filler bottomFiller;          // Filler component to make sure the controls don't space out clear to the bottom of the window
 
@@ -81,17 +83,17 @@ public class MarkerControlPanel extends JPanel {
    */
   public void addModeButtons() {
     ToggleButton drawEasyButton = new ToggleButton(this.modePanel, "Draw Easy Face",
-        "draw", 0, new Color(150, 150, 150), this.width-1, this.defaultButtonHeight, null);
+        "draw", 0, Palette.PRESSED, this.width-1, this.defaultButtonHeight, null);
     this.modePanel.addButton(drawEasyButton);
     this.buttons.add(drawEasyButton);
 
     ToggleButton drawHardButton = new ToggleButton(this.modePanel, "Draw Hard Face",
-        "draw", 1, new Color(150, 150, 150), this.width-1, this.defaultButtonHeight, null);
+        "draw", 1, Palette.PRESSED, this.width-1, this.defaultButtonHeight, null);
     this.modePanel.addButton(drawHardButton);
     this.buttons.add(drawHardButton);
 
     ToggleButton deleteButton = new ToggleButton(this.modePanel, "Delete", "delete",
-        -1, new Color(150, 150, 150), this.width-1, this.defaultButtonHeight, null);
+        -1, Palette.PRESSED, this.width-1, this.defaultButtonHeight, null);
     this.modePanel.addButton(deleteButton);
     this.buttons.add(deleteButton);
   }
@@ -124,22 +126,32 @@ public class MarkerControlPanel extends JPanel {
     add(clearButton);
     this.buttons.add(clearButton);
 
-    AppButton saveButton = new AppButton("Save", this.width-1, this.defaultButtonHeight, new Runnable() {
+    this.saveButton = new AppButton("Save", this.width-1, this.defaultButtonHeight, new Runnable() {
         @Override
         public void run() {
           mainPanel.save();
         }});
-    add(saveButton);
-    this.buttons.add(saveButton);
+    add(this.saveButton);
+    this.buttons.add(this.saveButton);
 
-    AppButton saveProceedButton = new AppButton("Save and Proceed", this.width-1, this.defaultButtonHeight, new Runnable() {
+    this.saveProceedButton = new AppButton("Save and Proceed", this.width-1, this.defaultButtonHeight, new Runnable() {
         @Override
         public void run() {
           mainPanel.save();
           mainPanel.getFileExplorer().openNext();
         }});
-    add(saveProceedButton);
-    this.buttons.add(saveProceedButton);
+    add(this.saveProceedButton);
+    this.buttons.add(this.saveProceedButton);
+  }
+
+  /**
+   * Enables or disables the save buttons, which are disabled while the opened image is still being decoded
+   * so an image is never skipped by Save and Proceed before it could be saved
+   * @param boolean enabled Whether or not the save buttons can be used
+   */
+  public void setSaveEnabled(boolean enabled) {
+    this.saveButton.setEnabled(enabled);
+    this.saveProceedButton.setEnabled(enabled);
   }
 
   /**
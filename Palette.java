@@ -0,0 +1,29 @@
+import java.awt.Color;
+
+/**
+ * Class that holds every color drawn by the application, so painting never has to create colors of its own
+ */
+public final class Palette {
+
+  public static final Color BACKGROUND = new Color(255, 255, 255);  // Background of buttons and the scroll bar
+  public static final Color BORDER = new Color(0, 0, 0);            // Borders and text
+  public static final Color PRESSED = new Color(150, 150, 150);     // Buttons while pressed or toggled
+  public static final Color DISABLED = new Color(170, 170, 170);    // Text of buttons that cannot be used yet
+  public static final Color SCROLL_BAR = new Color(190, 190, 190);  // Draggable bar of the scroll bar
+  public static final Color IMAGE_BACKGROUND = new Color(0, 0, 0);  // Area around the image in the image container
+  public static final Color WINDOW = new Color(190, 190, 190);      // Background of the application window
+  public static final Color NO_MATCH = new Color(255, 200, 200);    // Search box when nothing matches the search
+
+  public static final Color SELECTED = new Color(70, 155, 255);     // Selected row of the file explorer
+  public static final Color OPEN = new Color(191, 110, 254);        // Row of the image opened in the image marker
+  public static final Color COMPLETED = new Color(100, 255, 100);   // Completed rows and the completed part of directory rows
+  public static final Color INCOMPLETE = new Color(255, 75, 75);    // Rows that have not been completed
+  public static final Color PENDING = new Color(210, 210, 210);     // Directory rows that are still being counted and rows not read yet
+
+  public static final Color EASY_FACE = new Color(0, 255, 0);       // Outer border of easy face rectangles
+  public static final Color HARD_FACE = new Color(0, 0, 255);       // Outer border of hard face rectangles
+  public static final Color RECT_INNER = new Color(255, 0, 0);      // Inner border of every rectangle
+
+  private Palette() {
+  }
+}
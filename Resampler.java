@@ -0,0 +1,492 @@
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class that scales images by filtering their pixels directly instead of drawing them through Java2D.
+ * The image is scaled horizontally and then vertically with the chosen filter (box, bilinear or Lanczos-3),
+ * and when shrinking, the filter is widened so every pixel of the original is taken into account.
+ * Images reduced to less than a third of their size are first halved with a box filter until they are not,
+ * which keeps the wider filters from reading many pixels for each scaled pixel.
+ * Each pass splits the rows of its output into strips that are filtered in parallel on a fork-join pool.
+ * Pixels are read and written as packed ARGB integers, with the color premultiplied by the alpha while filtering.
+ * With fewer threads than the filter needs to keep up, images are first shown as a preview drawn through Java2D,
+ * and only filtered once they are no longer being resized
+ */
+public class Resampler {
+
+  public static final int THREADS = Math.max(1, Integer.getInteger(CompletionIndex.PARALLELISM_PROPERTY,
+      Runtime.getRuntime().availableProcessors()));  // Number of threads the strips are filtered on
+  private static final ForkJoinPool POOL = new ForkJoinPool(Resampler.THREADS);  // Pool the strips are filtered on
+  private static final int PRECISION_BITS = 22;    // Number of fractional bits of the fixed point filter weights
+  public static final int BOX = 0;                 // Filter that averages every pixel covered by a scaled pixel
+  public static final int BILINEAR = 1;            // Filter that weighs pixels linearly by their distance
+  public static final int LANCZOS3 = 2;            // Windowed sinc filter over three lobes, which keeps edges sharp
+  public static final int STRIP_ROWS = 16;         // Largest number of rows filtered by a single task
+  public static final int HALVING_RATIO = 3;       // Reduction at or above which the image is first halved
+  public static final String FILTER_PROPERTY = "frameit.resample.filter";  // System property to set the filter (box, bilinear or lanczos3)
+  public static final int FILTER = Resampler.filterFor(System.getProperty(Resampler.FILTER_PROPERTY, "lanczos3"));  // Filter used by default
+  public static final int FILTER_THREADS = 4;      // Number of threads from which images are filtered directly instead of first shown as a preview
+  public static final boolean PREVIEW_FIRST = Resampler.THREADS < Resampler.FILTER_THREADS;  // Whether or not images are shown as a drawn preview before they are filtered
+
+  /**
+   * Class to represent the range of input pixels and their weights for each output pixel of a single dimension
+   */
+  private static class Coefficients {
+
+    private int[] starts;   // First input pixel of each output pixel
+    private int[] counts;   // Number of input pixels of each output pixel
+    private int[] weights;  // Fixed point weights of the input pixels, with taps entries per output pixel
+    private int taps;       // Largest number of input pixels of any output pixel
+  }
+
+  /**
+   * Class to represent a pass over rows of the output that can be split into strips
+   */
+  private static abstract class RowPass {
+
+    /**
+     * Processes the given rows of the output
+     * @param int from First row to process
+     * @param int to   Row after the last row to process
+     */
+    abstract void run(int from, int to);
+  }
+
+  /**
+   * Fork-join task that splits a range of rows in half until each strip is small enough to process directly
+   */
+  private static class StripTask extends RecursiveAction {
+
+    private RowPass pass;  // Pass the rows are processed by
+    private int from;      // First row of the strip
+    private int to;        // Row after the last row of the strip
+
+    /**
+     * Initializes a task to process the given rows
+     * @param  RowPass rowPass       Pass to process the rows with
+     * @param  int     first         First row to process
+     * @param  int     end           Row after the last row to process
+     */
+    StripTask(RowPass rowPass, int first, int end) {
+      this.pass = rowPass;
+      this.from = first;
+      this.to = end;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.to-this.from <= Resampler.STRIP_ROWS) {
+        this.pass.run(this.from, this.to);
+        return;
+      }
+      int mid = (this.from+this.to) >>> 1;
+      invokeAll(new StripTask(this.pass, this.from, mid), new StripTask(this.pass, mid, this.to));
+    }
+  }
+
+  /**
+   * Returns the filter with the given name
+   * @param  String name          Name of the filter (box, bilinear or lanczos3)
+   * @return        Filter constant, or Lanczos-3 if the name is not known
+   */
+  public static int filterFor(String name) {
+    if (name.equalsIgnoreCase("box"))
+      return Resampler.BOX;
+    else if (name.equalsIgnoreCase("bilinear"))
+      return Resampler.BILINEAR;
+    else if (!name.equalsIgnoreCase("lanczos3"))
+      System.out.println("Error when choosing resampling filter! Unknown filter " + name);
+    return Resampler.LANCZOS3;
+  }
+
+  /**
+   * Scales the image to the given size with the default filter
+   * @param  BufferedImage src           Image to scale
+   * @param  int           newW          Width of the scaled image
+   * @param  int           newH          Height of the scaled image
+   * @return               New image of the given size in the screen format
+   */
+  public static BufferedImage resize(BufferedImage src, int newW, int newH) {
+    return Resampler.resize(src, newW, newH, Resampler.FILTER);
+  }
+
+  /**
+   * Scales the image to the given size with the given filter
+   * @param  BufferedImage src           Image to scale
+   * @param  int           newW          Width of the scaled image
+   * @param  int           newH          Height of the scaled image
+   * @param  int           filter        Filter to scale with (BOX, BILINEAR or LANCZOS3)
+   * @return               New image of the given size in the screen format
+   */
+  public static BufferedImage resize(BufferedImage src, int newW, int newH, int filter) {
+    newW = Math.max(1, newW);
+    newH = Math.max(1, newH);
+    int w = src.getWidth();
+    int h = src.getHeight();
+    boolean alpha = src.getColorModel().hasAlpha();
+    int[] pixels = Resampler.readPixels(src, alpha);
+
+    // Halving first only averages pairs of pixels, so the filter is left with at most a few pixels per scaled pixel
+    while (w >= newW*Resampler.HALVING_RATIO || h >= newH*Resampler.HALVING_RATIO) {
+      boolean halveX = w >= newW*Resampler.HALVING_RATIO;
+      boolean halveY = h >= newH*Resampler.HALVING_RATIO;
+      pixels = Resampler.halve(pixels, w, h, halveX, halveY, alpha);
+      w = halveX ? w/2 : w;
+      h = halveY ? h/2 : h;
+    }
+    if (w != newW) {
+      pixels = Resampler.scaleRows(pixels, w, h, newW, Resampler.coefficients(w, newW, filter), alpha);
+      w = newW;
+    }
+    if (h != newH)
+      pixels = Resampler.scaleColumns(pixels, w, h, newH, Resampler.coefficients(h, newH, filter), alpha);
+
+    BufferedImage scaled = CompatibleImages.createImage(newW, newH, src.getTransparency());
+    Resampler.writePixels(scaled, pixels, alpha);
+    return scaled;
+  }
+
+  /**
+   * Scales the image to the given size by drawing it with bilinear interpolation, which is many times faster than
+   * filtering it but lets fine detail break up when the image is shrunk a lot
+   * @param  BufferedImage src           Image to scale
+   * @param  int           newW          Width of the scaled image
+   * @param  int           newH          Height of the scaled image
+   * @return               New image of the given size in the screen format
+   */
+  public static BufferedImage preview(BufferedImage src, int newW, int newH) {
+    newW = Math.max(1, newW);
+    newH = Math.max(1, newH);
+    BufferedImage scaled = CompatibleImages.createImage(newW, newH, src.getTransparency());
+    Graphics2D g2d = scaled.createGraphics();
+    g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+    g2d.drawImage(src, 0, 0, newW, newH, null);
+    g2d.dispose();
+    return scaled;
+  }
+
+  /**
+   * Processes every row of a pass, split into strips across the pool
+   * @param RowPass pass Pass to run
+   * @param int     rows Number of rows of the output
+   */
+  private static void runRows(RowPass pass, int rows) {
+    Resampler.POOL.invoke(new StripTask(pass, 0, rows));
+  }
+
+  /**
+   * Returns the distance from the center of a pixel within which the filter weighs other pixels
+   * @param  int    filter        Filter to get the support of
+   * @return        Support of the filter in pixels
+   */
+  private static double support(int filter) {
+    if (filter == Resampler.BOX)
+      return 0.5;
+    else if (filter == Resampler.BILINEAR)
+      return 1;
+    return 3;
+  }
+
+  /**
+   * Returns the weight of a pixel at the given distance from the center of the filter
+   * @param  int    filter        Filter to weigh with
+   * @param  double x             Distance from the center in pixels of the filter
+   * @return        Weight of the pixel
+   */
+  private static double weight(int filter, double x) {
+    x = Math.abs(x);
+    if (filter == Resampler.BOX)
+      return x < 0.5 ? 1 : 0;
+    else if (filter == Resampler.BILINEAR)
+      return x < 1 ? 1-x : 0;
+    if (x >= 3)
+      return 0;
+    if (x < 1e-8)
+      return 1;
+    double px = Math.PI*x;
+    return 3*Math.sin(px)*Math.sin(px/3)/(px*px);
+  }
+
+  /**
+   * Computes which input pixels each output pixel of a single dimension is filtered from, and their weights
+   * @param  int          inSize        Number of input pixels
+   * @param  int          outSize       Number of output pixels
+   * @param  int          filter        Filter to weigh the pixels with
+   * @return              Coefficients of every output pixel
+   */
+  private static Coefficients coefficients(int inSize, int outSize, int filter) {
+    double ratio = ((double)inSize)/outSize;
+    // The filter is stretched when shrinking so that it covers every input pixel
+    double filterScale = Math.max(1, ratio);
+    double support = Resampler.support(filter)*filterScale;
+
+    Coefficients coeffs = new Coefficients();
+    coeffs.taps = (int)Math.ceil(support)*2+1;
+    coeffs.starts = new int[outSize];
+    coeffs.counts = new int[outSize];
+    coeffs.weights = new int[outSize*coeffs.taps];
+    double[] weights = new double[coeffs.taps];
+    for (int i=0; i < outSize; i++) {
+      double center = (i+0.5)*ratio;
+      int start = Math.max(0, (int)(center-support+0.5));
+      int end = Math.min(inSize, (int)(center+support+0.5));
+      int count = Math.min(coeffs.taps, end-start);
+      double total = 0;
+      for (int j=0; j < count; j++) {
+        weights[j] = Resampler.weight(filter, (start+j-center+0.5)/filterScale);
+        total += weights[j];
+      }
+      // Falls back to the nearest pixel if the filter covers no pixel
+      if (total == 0) {
+        count = 1;
+        start = Math.min(inSize-1, (int)center);
+        weights[0] = 1;
+        total = 1;
+      }
+      coeffs.starts[i] = start;
+      coeffs.counts[i] = count;
+      for (int j=0; j < count; j++)
+        coeffs.weights[i*coeffs.taps+j] = (int)Math.round(weights[j]/total*(1 << Resampler.PRECISION_BITS));
+    }
+    return coeffs;
+  }
+
+  /**
+   * Clamps a fixed point sum to a color channel
+   * @param  int sum           Fixed point sum, already rounded
+   * @return     Channel value between 0 and 255
+   */
+  private static int clamp(int sum) {
+    sum >>= Resampler.PRECISION_BITS;
+    return sum < 0 ? 0 : (sum > 255 ? 255 : sum);
+  }
+
+  /**
+   * Scales every row of the image to the new width
+   * @param  int[]        src           Packed pixels of the image
+   * @param  int          w             Width of the image
+   * @param  int          h             Height of the image
+   * @param  int          newW          Width to scale the rows to
+   * @param  Coefficients coeffs        Coefficients of the output columns
+   * @param  boolean      alpha         Whether or not the image has an alpha channel to filter
+   * @return              Packed pixels of the scaled image
+   */
+  private static int[] scaleRows(final int[] src, final int w, int h, final int newW, final Coefficients coeffs, final boolean alpha) {
+    final int[] dst = new int[newW*h];
+    Resampler.runRows(new RowPass() {
+      @Override
+      void run(int from, int to) {
+        int half = 1 << (Resampler.PRECISION_BITS-1);
+        for (int y=from; y < to; y++) {
+          int row = y*w;
+          int out = y*newW;
+          for (int x=0; x < newW; x++) {
+            int a = half, r = half, g = half, b = half;
+            int in = row+coeffs.starts[x];
+            int k = x*coeffs.taps;
+            for (int j=0; j < coeffs.counts[x]; j++) {
+              int p = src[in+j];
+              int wt = coeffs.weights[k+j];
+              a += (p >>> 24)*wt;
+              r += ((p >> 16) & 0xFF)*wt;
+              g += ((p >> 8) & 0xFF)*wt;
+              b += (p & 0xFF)*wt;
+            }
+            dst[out+x] = ((alpha ? Resampler.clamp(a) : 0xFF) << 24) | (Resampler.clamp(r) << 16) |
+                (Resampler.clamp(g) << 8) | Resampler.clamp(b);
+          }
+        }
+      }
+    }, h);
+    return dst;
+  }
+
+  /**
+   * Scales every column of the image to the new height. Each output row is summed a whole input row at a time
+   * so the input is read in the order it is laid out
+   * @param  int[]        src           Packed pixels of the image
+   * @param  int          w             Width of the image
+   * @param  int          h             Height of the image
+   * @param  int          newH          Height to scale the columns to
+   * @param  Coefficients coeffs        Coefficients of the output rows
+   * @param  boolean      alpha         Whether or not the image has an alpha channel to filter
+   * @return              Packed pixels of the scaled image
+   */
+  private static int[] scaleColumns(final int[] src, final int w, int h, int newH, final Coefficients coeffs, final boolean alpha) {
+    final int[] dst = new int[w*newH];
+    Resampler.runRows(new RowPass() {
+      @Override
+      void run(int from, int to) {
+        int half = 1 << (Resampler.PRECISION_BITS-1);
+        int[] sumA = new int[w];
+        int[] sumR = new int[w];
+        int[] sumG = new int[w];
+        int[] sumB = new int[w];
+        for (int y=from; y < to; y++) {
+          Arrays.fill(sumA, half);
+          Arrays.fill(sumR, half);
+          Arrays.fill(sumG, half);
+          Arrays.fill(sumB, half);
+          int k = y*coeffs.taps;
+          for (int j=0; j < coeffs.counts[y]; j++) {
+            int in = (coeffs.starts[y]+j)*w;
+            int wt = coeffs.weights[k+j];
+            for (int x=0; x < w; x++) {
+              int p = src[in+x];
+              sumA[x] += (p >>> 24)*wt;
+              sumR[x] += ((p >> 16) & 0xFF)*wt;
+              sumG[x] += ((p >> 8) & 0xFF)*wt;
+              sumB[x] += (p & 0xFF)*wt;
+            }
+          }
+          int out = y*w;
+          for (int x=0; x < w; x++) {
+            dst[out+x] = ((alpha ? Resampler.clamp(sumA[x]) : 0xFF) << 24) | (Resampler.clamp(sumR[x]) << 16) |
+                (Resampler.clamp(sumG[x]) << 8) | Resampler.clamp(sumB[x]);
+          }
+        }
+      }
+    }, newH);
+    return dst;
+  }
+
+  /**
+   * Halves the width, the height, or both, by averaging each pair or square of pixels
+   * @param  int[]   src           Packed pixels of the image
+   * @param  int     w             Width of the image
+   * @param  int     h             Height of the image
+   * @param  boolean halveX        Whether or not to halve the width
+   * @param  boolean halveY        Whether or not to halve the height
+   * @param  boolean alpha         Whether or not the image has an alpha channel to average
+   * @return         Packed pixels of the halved image
+   */
+  private static int[] halve(final int[] src, final int w, int h, final boolean halveX, final boolean halveY, final boolean alpha) {
+    final int newW = halveX ? w/2 : w;
+    int newH = halveY ? h/2 : h;
+    final int[] dst = new int[newW*newH];
+    final int stepX = halveX ? 1 : 0;
+    final int stepY = halveY ? w : 0;
+    Resampler.runRows(new RowPass() {
+      @Override
+      void run(int from, int to) {
+        for (int y=from; y < to; y++) {
+          int row = (halveY ? y*2 : y)*w;
+          int out = y*newW;
+          for (int x=0; x < newW; x++) {
+            // A dimension that is not halved reads the same pixel twice, so the sum of four is always averaged
+            int in = row+(halveX ? x*2 : x);
+            int p1 = src[in];
+            int p2 = src[in+stepX];
+            int p3 = src[in+stepY];
+            int p4 = src[in+stepX+stepY];
+            int a = ((p1 >>> 24)+(p2 >>> 24)+(p3 >>> 24)+(p4 >>> 24)+2) >> 2;
+            int r = (((p1 >> 16) & 0xFF)+((p2 >> 16) & 0xFF)+((p3 >> 16) & 0xFF)+((p4 >> 16) & 0xFF)+2) >> 2;
+            int g = (((p1 >> 8) & 0xFF)+((p2 >> 8) & 0xFF)+((p3 >> 8) & 0xFF)+((p4 >> 8) & 0xFF)+2) >> 2;
+            int b = ((p1 & 0xFF)+(p2 & 0xFF)+(p3 & 0xFF)+(p4 & 0xFF)+2) >> 2;
+            dst[out+x] = ((alpha ? a : 0xFF) << 24) | (r << 16) | (g << 8) | b;
+          }
+        }
+      }
+    }, newH);
+    return dst;
+  }
+
+  /**
+   * Reads the pixels of an image as packed ARGB integers, premultiplying the color by the alpha if it has one.
+   * Integer and byte images are copied straight from their rasters, and any other format is converted pixel by pixel
+   * @param  BufferedImage img           Image to read
+   * @param  boolean       alpha         Whether or not the image has an alpha channel
+   * @return               Packed pixels of the image
+   */
+  private static int[] readPixels(BufferedImage img, boolean alpha) {
+    final int w = img.getWidth();
+    int h = img.getHeight();
+    int type = img.getType();
+    final int[] pixels;
+    if (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB || type == BufferedImage.TYPE_INT_ARGB_PRE) {
+      pixels = (int[])img.getRaster().getDataElements(0, 0, w, h, null);
+      if (type == BufferedImage.TYPE_INT_ARGB_PRE)
+        return pixels;
+    } else if (type == BufferedImage.TYPE_3BYTE_BGR || type == BufferedImage.TYPE_4BYTE_ABGR) {
+      // The samples of each pixel are returned in the order of the bands, which is red, green, blue and then alpha
+      final byte[] samples = (byte[])img.getRaster().getDataElements(0, 0, w, h, null);
+      final int bands = type == BufferedImage.TYPE_3BYTE_BGR ? 3 : 4;
+      pixels = new int[w*h];
+      Resampler.runRows(new RowPass() {
+        @Override
+        void run(int from, int to) {
+          for (int i=from*w, s=i*bands; i < to*w; i++, s+=bands) {
+            int a = bands == 4 ? samples[s+3] & 0xFF : 0xFF;
+            pixels[i] = (a << 24) | ((samples[s] & 0xFF) << 16) | ((samples[s+1] & 0xFF) << 8) | (samples[s+2] & 0xFF);
+          }
+        }
+      }, h);
+    } else {
+      pixels = img.getRGB(0, 0, w, h, null, 0, w);
+    }
+    if (alpha)
+      Resampler.premultiply(pixels, w, h, true);
+    return pixels;
+  }
+
+  /**
+   * Writes packed ARGB pixels into an image, undoing the premultiplied alpha unless the image keeps it premultiplied
+   * @param BufferedImage img    Image to write to
+   * @param int[]         pixels Packed pixels, premultiplied if the image has an alpha channel
+   * @param boolean       alpha  Whether or not the pixels have an alpha channel
+   */
+  private static void writePixels(BufferedImage img, int[] pixels, boolean alpha) {
+    int w = img.getWidth();
+    int h = img.getHeight();
+    int type = img.getType();
+    if (alpha && type != BufferedImage.TYPE_INT_ARGB_PRE)
+      Resampler.premultiply(pixels, w, h, false);
+    if (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB || type == BufferedImage.TYPE_INT_ARGB_PRE)
+      img.getRaster().setDataElements(0, 0, w, h, pixels);
+    else
+      img.setRGB(0, 0, w, h, pixels, 0, w);
+  }
+
+  /**
+   * Multiplies the color of each pixel by its alpha, or divides it back out
+   * @param int[]   pixels   Packed pixels to change in place
+   * @param int     w        Width of the image
+   * @param int     h        Height of the image
+   * @param boolean multiply Whether to multiply the color by the alpha or to divide it back out
+   */
+  private static void premultiply(final int[] pixels, final int w, int h, final boolean multiply) {
+    Resampler.runRows(new RowPass() {
+      @Override
+      void run(int from, int to) {
+        for (int i=from*w; i < to*w; i++) {
+          int p = pixels[i];
+          int a = p >>> 24;
+          if (a == 0xFF)
+            continue;
+          if (a == 0) {
+            pixels[i] = 0;
+            continue;
+          }
+          int r = (p >> 16) & 0xFF;
+          int g = (p >> 8) & 0xFF;
+          int b = p & 0xFF;
+          if (multiply) {
+            r = (r*a+127)/255;
+            g = (g*a+127)/255;
+            b = (b*a+127)/255;
+          } else {
+            // Filters with negative lobes can leave a color brighter than its alpha allows
+            r = Math.min(255, (r*255+a/2)/a);
+            g = Math.min(255, (g*255+a/2)/a);
+            b = Math.min(255, (b*255+a/2)/a);
+          }
+          pixels[i] = (a << 24) | (r << 16) | (g << 8) | b;
+        }
+      }
+    }, h);
+  }
+}
@@ -0,0 +1,51 @@
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * Class that holds the names of all save files within a single save directory.
+ * The directory is listed once so the completion of every image in the matching image directory
+ * can be checked in memory instead of checking for each save file on disk
+ */
+public class SaveLookup {
+  private HashSet<String> nameSet;    // Names of the save files, used for directories of normal size
+  private String[] sortedNames;       // Sorted names of the save files, used instead of the set for very large directories
+  public static final int SORTED_THRESHOLD = 100000;  // Number of save files above which the names are kept in a sorted array
+
+  /**
+   * Lists the given save directory and stores the names of its save files
+   * @param  Path saveDir       Save directory to list. If it does not exist, no images are completed
+   */
+  public SaveLookup(Path saveDir) {
+    ArrayList<String> names = new ArrayList<String>();
+    if (Files.isDirectory(saveDir)) {
+      // Only the names are read, so no file within the directory is looked up
+      try (DirectoryStream<Path> stream = Files.newDirectoryStream(saveDir, "*.txt")) {
+        for (Path savePath : stream)
+          names.add(savePath.getFileName().toString());
+      } catch (Exception e) {
+        System.out.println("Error when listing save directory! " + e);
+      }
+    }
+
+    if (names.size() > SaveLookup.SORTED_THRESHOLD) {
+      this.sortedNames = names.toArray(new String[names.size()]);
+      Arrays.sort(this.sortedNames);
+    } else {
+      this.nameSet = new HashSet<String>(names);
+    }
+  }
+
+  /**
+   * Checks whether or not a save file with the given name was in the directory
+   * @param  String saveName      Name of the save file
+   * @return        Whether or not the save file exists
+   */
+  public boolean contains(String saveName) {
+    if (this.nameSet != null)
+      return this.nameSet.contains(saveName);
+    else
+      return Arrays.binarySearch(this.sortedNames, saveName) >= 0;
+  }
+}
@@ -12,6 +12,7 @@ public class ScrollBar extends JComponent implements MouseListener, MouseMotionL
   private boolean onBar;                    // Whether the mouse is still held down after clicking the bar
   private float orgClickDif;                // Distance from the center of the bar to where the bar was clicked (relative position)
   public static final int BAR_WIDTH = 11;   // Total pixel width of the bar
+  public static final int MIN_BAR_HEIGHT = 20;  // Smallest pixel height of the bar, so it can still be dragged through very long lists
 
   /**
    * Initializes a scroll bar that links to a scroll list and allows it to be scrolled using a bar
@@ -36,11 +37,11 @@ public class ScrollBar extends JComponent implements MouseListener, MouseMotionL
    * @param int h New pixel height to give the entire scroll panel
    */
   public void resizePanel(int h) {
-    float barProgress = (this.curPos-barHeight())/this.height;
+    float listFrac = getListFrac();
     this.height = h;
     setPreferredSize(new Dimension(ScrollBar.BAR_WIDTH, this.height));
     // Moves the bar to the correct position
-    setCurPos(barHeight()+this.height*barProgress);
+    setListFrac(listFrac);
   }
 
   /**
@@ -70,7 +71,17 @@ public class ScrollBar extends JComponent implements MouseListener, MouseMotionL
    * @return Current height of the bar
    */
   public float barHeight() {
-    return this.height*this.heightRatio;
+    if (this.heightRatio <= 0)
+      return 0;
+    return Math.min(this.height, Math.max(this.height*this.heightRatio, ScrollBar.MIN_BAR_HEIGHT));
+  }
+
+  /**
+   * Calculates the pixel distance that the middle of the bar can travel
+   * @return Pixel distance between the highest and lowest positions of the bar
+   */
+  public float barTravel() {
+    return this.height-barHeight();
   }
 
   /**
@@ -78,7 +89,10 @@ public class ScrollBar extends JComponent implements MouseListener, MouseMotionL
    * @return Fraction of the list that has been scrolled through
    */
   public float getListFrac() {
-    return (this.curPos-barHeight()/2)/this.height;
+    // The bar may be larger than its share of the panel, so its travel is mapped onto the scrollable part of the list
+    if (barTravel() <= 0)
+      return 0;
+    return (this.curPos-barHeight()/2)/barTravel()*(1-this.heightRatio);
   }
 
   /**
@@ -112,6 +126,59 @@ public class ScrollBar extends JComponent implements MouseListener, MouseMotionL
     repaint();
 	}
 
+  /**
+   * Changes the ratio of the bar while keeping it at the same fraction of the list
+   * @param float heightRatio New percentage of the scroll bar panel that the bar covers
+   */
+  public void updateHeightRatio(float heightRatio) {
+    float listFrac = getListFrac();
+    this.heightRatio = heightRatio;
+    setListFrac(listFrac);
+  }
+
+  /**
+   * Moves the bar so that the list is scrolled to the given fraction
+   * @param float frac Fraction of the list that should be scrolled through
+   */
+  public void setListFrac(float frac) {
+    setCurPos(barPosition(frac));
+  }
+
+  /**
+   * Moves the bar to match a list that was scrolled to the given fraction by other means (i.e. the mouse wheel),
+   * without scrolling the list again
+   * @param float frac Fraction of the list that has been scrolled through
+   */
+  public void showListFrac(float frac) {
+    this.curPos = clampPosition(barPosition(frac));
+    repaint();
+  }
+
+  /**
+   * Calculates the Y position of the middle of the bar for the given fraction of the list
+   * @param  float frac          Fraction of the list that has been scrolled through
+   * @return       Y coordinate of the middle of the bar
+   */
+  public float barPosition(float frac) {
+    if (this.heightRatio >= 1)
+      return barHeight()/2;
+    return frac/(1-this.heightRatio)*barTravel() + barHeight()/2;
+  }
+
+  /**
+   * Limits a Y position of the middle of the bar to the panel
+   * @param  float pos           Y coordinate of the middle of the bar
+   * @return       Closest Y coordinate that keeps the whole bar within the panel
+   */
+  public float clampPosition(float pos) {
+    if (pos < barHeight()/2)
+      return barHeight()/2;
+    else if (pos > this.height-barHeight()/2)
+      return this.height-barHeight()/2;
+    else
+      return pos;
+  }
+
   /**
    * Moves the middle of the bar to the new given Y position and scrolls the associated list to its new position
    * If a value is too small, it is changed to the smallest possible value.
@@ -119,12 +186,7 @@ public class ScrollBar extends JComponent implements MouseListener, MouseMotionL
    * @param float curPos Y coordinate to place the middle of the bar
    */
 	public void setCurPos(float curPos) {
-    if (curPos < barHeight()/2)
-      this.curPos = barHeight()/2;
-    else if (curPos > this.height-barHeight()/2)
-      this.curPos = this.height-barHeight()/2;
-    else
-		  this.curPos = curPos;
+    this.curPos = clampPosition(curPos);
     repaint();
     this.list.scroll(getListFrac());
 	}
@@ -175,15 +237,15 @@ public class ScrollBar extends JComponent implements MouseListener, MouseMotionL
 
   @Override
   public void paintComponent(Graphics g) {
-    g.setColor(new Color(255, 255, 255));
+    g.setColor(Palette.BACKGROUND);
     g.fillRect(0, 0, ScrollBar.BAR_WIDTH, this.height);
-    g.setColor(new Color(0, 0, 0));
+    g.setColor(Palette.BORDER);
     g.drawRect(0, 0, ScrollBar.BAR_WIDTH-1, this.height-1);
 
     if (barHeight() > 0) {
-      g.setColor(new Color(190, 190, 190));
+      g.setColor(Palette.SCROLL_BAR);
       g.fillRect(0, (int)(this.curPos-barHeight()/2), ScrollBar.BAR_WIDTH, (int)barHeight());
-      g.setColor(new Color(0, 0, 0));
+      g.setColor(Palette.BORDER);
       g.drawRect(0, (int)(this.curPos-barHeight()/2), ScrollBar.BAR_WIDTH-1, (int)barHeight());
     }
   }
@@ -2,6 +2,8 @@ import java.awt.*;
 import javax.swing.*;
 import java.nio.file.*;
 import java.awt.event.*;
+import java.util.ArrayList;
+import java.util.function.Consumer;
 
 /**
  * Class that contains the scrollable list of images and directories along with the scroll bar
@@ -25,7 +27,7 @@ public class ScrollBox extends JPanel implements MouseWheelListener {
    */
   public ScrollBox(FileExplorer par, ImageMarker editor, Path imgDir, Path saveDir, int w, int h) {
     super(new BorderLayout());
-    setBackground(new Color(255, 255, 255));
+    setBackground(Palette.BACKGROUND);
     this.width = w;
     // Changes the height to round down to fit only full items and no extra space
     this.height = (h/ScrollList.ITEM_HEIGHT)*ScrollList.ITEM_HEIGHT;
@@ -81,16 +83,6 @@ public class ScrollBox extends JPanel implements MouseWheelListener {
     return this.list.getSelected();
   }
 
-  /**
-   * Selects and returns the item after the currently selected list item
-   * @return Item after the currently selected item in the list
-   */
-  public ListItem getNextSelected() {
-    this.list.selectNext();
-    repaint();
-    return this.list.getSelected();
-  }
-
   /**
    * Sets the list directory to be the given directory path
    * @param Path path Path for the new directory
@@ -99,6 +91,13 @@ public class ScrollBox extends JPanel implements MouseWheelListener {
     this.list.setDir(path);
   }
 
+  /**
+   * Stops the scroll list from watching its directories for changes
+   */
+  public void stopWatching() {
+    this.list.stopWatching();
+  }
+
   /**
    * Calls the reload list function of the scroll list to effectively refresh the status of all list items
    */
@@ -106,19 +105,75 @@ public class ScrollBox extends JPanel implements MouseWheelListener {
     this.list.reloadList();
   }
 
+  /**
+   * Passes a newly completed image to the scroll list
+   * @param Path imgPath      Path of the image that was just completed
+   * @param long saveModified Modification time of the save directory from before the save file was written
+   */
+  public void markCompleted(Path imgPath, long saveModified) {
+    this.list.markCompleted(imgPath, saveModified);
+  }
+
+  /**
+   * Passes an image that turned out to have a save file to the contained list, so it is no longer found as incomplete
+   * @param Path imgPath Path of the completed image
+   */
+  public void noteCompleted(Path imgPath) {
+    this.list.noteCompleted(imgPath);
+  }
+
+  /**
+   * Opens the directory of the given image in the list and selects the image
+   * @param Path imgPath Path of the image to show
+   */
+  public void showPath(Path imgPath) {
+    this.list.showPath(imgPath);
+  }
+
+  /**
+   * Passes the search for the next incomplete image to the scroll list
+   * @param Path           from     Path of the image or directory to start after (null to start at the beginning)
+   * @param Consumer<Path> callback Function that receives the path of the next image on the event dispatch thread (null if there is none)
+   */
+  public void findNextIncomplete(Path from, Consumer<Path> callback) {
+    this.list.findNextIncomplete(from, callback);
+  }
+
+  /**
+   * Passes the search for the next few incomplete images to the scroll list
+   * @param Path                     from     Path of the image or directory to start after (null to start at the beginning)
+   * @param int                      max      Maximum number of images to find
+   * @param Consumer<ArrayList<Path>> callback Function that receives the paths of the images on the event dispatch thread
+   */
+  public void findUpcomingImages(Path from, int max, Consumer<ArrayList<Path>> callback) {
+    this.list.findUpcomingImages(from, max, callback);
+  }
+
+  /**
+   * Passes a search of every image in the image directory to the scroll list
+   * @param String                   query    Text to search for, ignoring case
+   * @param int                      max      Maximum number of matches
+   * @param Consumer<ArrayList<Path>> callback Function that receives the paths of the matches on the event dispatch thread
+   */
+  public void searchImages(String query, int max, Consumer<ArrayList<Path>> callback) {
+    this.list.searchImages(query, max, callback);
+  }
+
+  /**
+   * Attaches a film strip to the scroll list so it shows the same rows
+   * @param FilmStrip strip Film strip to attach
+   */
+  public void setFilmStrip(FilmStrip strip) {
+    this.list.setFilmStrip(strip);
+  }
+
   /**
    * Adds a scrolling effect to the list and bar when the mouse is over the scroll box
    * @param MouseWheelEvent e Current mouse wheel event
    */
   public void mouseWheelMoved(MouseWheelEvent e) {
-    // Scrolls the bar and list 10 pixels in the given direction
-    this.bar.scroll(e.getWheelRotation()*10);
-  }
-
-  @Override
-  public void paintComponent(Graphics g) {
-    this.bar.paint(g);
-    this.list.paint(g);
+    // Scrolls the list a fixed number of rows per notch, so long lists scroll at the same pace as short ones
+    this.list.scrollRows(e.getWheelRotation()*ScrollList.WHEEL_ROWS);
   }
 
   @Override
@@ -1,32 +1,67 @@
 import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import java.awt.*;
 import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.ListIterator;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.awt.event.*;
 import java.nio.file.*;
-import java.util.Iterator;
 import java.io.File;
 
 /**
- * Class to represent a list of items in a directory
+ * Class to represent a list of items in a directory.
+ * The entries of the directory are kept as rows of an explorer model and only the displayed rows
+ * are drawn by a single painter, so the list does not create any component or object per entry
  */
 public class ScrollList extends JComponent implements MouseListener {
 
-  private ArrayList<ListItem> items;            // Array list of all list items
-  private LinkedList<ListItem> displayedItems;  // Linked list of all currently displayed items
+  private ExplorerModel model;                  // Rows of every entry in the current directory
+  private ListItemPainter painter;              // Painter that draws each displayed row
   private ScrollBox parent;                     // Scroll box that the list is nested in
   private ImageMarker imgEditor;                // Image marker that images open in
   private ScrollBar bar;                        // Scroll bar that is associated with the list
   private int width;                            // Total width of the list
   private int height;                           // Total height of the list
-  private int curStartIdx;                      // Index in the items list of the first displayed item
+  private int curStartIdx;                      // Index in the model of the first displayed row
   private Path orgDir;                          // Original directory of the list
   private Path curDir;                          // Currently active directory of the list
   private Path saveFolder;                      // Folder to save the files to
-  private ListItem selected;                    // Currently selected list item
+  private int selectedIdx;                      // Index in the model of the currently selected row (-1 if none)
   private int maxItems;                         // Max number of displayed items
+  private CompletionIndex completionIndex;      // Persistent index of the completion of all directories
+  private DirectoryWatcher watcher;             // Watcher that sends changes in the image and save directories to the list
+  private ImageTreeIndex searchIndex;           // Index of every image in the image directory used to search by name
+  private ExecutorService loader;               // Background thread that directories are listed on
+  private int loadGeneration;                   // Number of the current load, used to ignore results of previous directories
+  private AtomicBoolean loadCancelled;          // Flag that cancels the background work of the current load
+  private boolean loading;                      // Whether or not the listing of the current directory has not arrived yet
+  private int pendingCounts;                    // Number of directory counts that have not finished yet
+  private DirectoryPager pager;                 // Pager of the rows of the current directory that have not been added yet (null once all are added)
+  private int unloadedRows;                     // Number of rows of the current directory that have not been added yet
+  private boolean pageRequested;                // Whether or not the next page is currently being read
+  private HashSet<Path> deferredChanges;        // Changed paths that belong in pages that have not been added yet
+  private HashSet<Path> loadingImgChanges;      // Changed image paths that arrived while the current directory was being listed
+  private HashSet<Path> loadingSaveChanges;     // Changed save paths that arrived while the current directory was being listed
+  private boolean loadingOverflow;              // Whether or not changes were lost while the current directory was being listed
+  private Path restoreSelection;                // Path of the item to select once the current load arrives
+  private int restoreStartIdx;                  // Index to scroll to once the current load arrives (-1 if none)
+  private FilmStrip filmStrip;                  // Film strip that shows the rows of the list with thumbnails (null if none)
+  private Timer unwatchedTimer;                 // Timer that checks the current directory for changes while the watcher cannot watch all of it
+  private long listedModified;                  // Modification time of the current directory when it was last listed
+  private long listedSaveModified;              // Modification time of the save directory of the current directory when it was last listed
   public static final int ITEM_HEIGHT = 30;     // Default height of each item in the list
+  public static final int WHEEL_ROWS = 3;       // Number of rows scrolled by each notch of the mouse wheel
+  public static final int UNWATCHED_CHECK_DELAY = 5000;  // Milliseconds between checks of a directory the watcher cannot watch
 
   /**
    * Initializes a new scroll list for the given starting directory
@@ -37,8 +72,8 @@ public class ScrollList extends JComponent implements MouseListener {
    * @param  int       h             Pixel height of the list
    */
   public ScrollList(ScrollBox par, ImageMarker editor, Path imgDir, Path saveDir, int w, int h) {
-    this.items = new ArrayList<ListItem>();
-    this.displayedItems = new LinkedList<ListItem>();
+    this.model = new ExplorerModel();
+    this.painter = new ListItemPainter();
     this.parent = par;
     this.imgEditor = editor;
     this.bar = null;
@@ -49,12 +84,52 @@ public class ScrollList extends JComponent implements MouseListener {
     this.orgDir = imgDir;
     this.curDir = this.orgDir;
     this.saveFolder = saveDir;
-    this.selected = null;
+    this.selectedIdx = -1;
     this.maxItems = this.height/ScrollList.ITEM_HEIGHT;
+    this.completionIndex = new CompletionIndex(this.orgDir, this.saveFolder);
+    this.completionIndex.load();
+    this.loader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "FrameIt list loader");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    this.loadGeneration = 0;
+    this.loadCancelled = new AtomicBoolean(false);
+    this.loading = false;
+    this.pendingCounts = 0;
+    this.pager = null;
+    this.unloadedRows = 0;
+    this.pageRequested = false;
+    this.deferredChanges = new HashSet<Path>();
+    this.loadingImgChanges = new HashSet<Path>();
+    this.loadingSaveChanges = new HashSet<Path>();
+    this.loadingOverflow = false;
+    this.restoreSelection = null;
+    this.restoreStartIdx = -1;
+    this.filmStrip = null;
+    this.unwatchedTimer = new Timer(ScrollList.UNWATCHED_CHECK_DELAY, new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        checkUnwatched();
+      }
+    });
+    this.listedModified = 0;
+    this.listedSaveModified = 0;
 
     // Fills the list from the current directory
     fillList();
 
+    // Indexes every image in the background so they can be searched
+    this.searchIndex = new ImageTreeIndex(this.orgDir, this.saveFolder, this.completionIndex);
+    this.searchIndex.build();
+
+    // Keeps the list up to date with any changes made to the directories
+    this.watcher = new DirectoryWatcher(this, this.completionIndex, this.orgDir, this.saveFolder);
+    this.watcher.start();
+
     // Adds itself as a mouse listener
     addMouseListener(this);
   }
@@ -69,46 +144,8 @@ public class ScrollList extends JComponent implements MouseListener {
     this.height = h;
     setPreferredSize(new Dimension(this.width, this.height));
     this.maxItems = this.height/ScrollList.ITEM_HEIGHT;
-    // Adds or removes any needed or extra items from the display list
-    updateDisplayedSize();
-  }
-
-  /**
-   * Updates the size of the currently displayed items in the list to fit the new
-   * number of max allowed items
-   */
-  public void updateDisplayedSize() {
-    // Shrinks the number of displayed items until it is equal to the max items
-    if (this.displayedItems.size() > this.maxItems) {
-      if (this.maxItems <= 0)
-        return;
-      while (this.displayedItems.size() > this.maxItems)
-        this.displayedItems.removeLast();
-
-    /*
-      If the list doesn't have enough items, adds until there are no more
-      undisplayed items or the max number is met
-     */
-    } else if (this.displayedItems.size() < this.maxItems) {
-      while (this.displayedItems.size() < this.maxItems) {
-        if (this.items.isEmpty())
-          return;
-        else {
-          ListItem nextItem = this.displayedItems.get(this.displayedItems.size()-1).getNext();
-          if (nextItem != null)
-            this.displayedItems.add(nextItem);
-          else
-              break;
-        }
-      }
-      // If all items are ever display, then the scroll bar is reset and disappears
-      if (this.displayedItems.size() == this.items.size())
-        this.bar.resetBar();
-    }
-    // Updates the scroll bar to match the list
-    if (this.bar != null && this.items.size() > this.maxItems) {
-      this.bar.setHeightRatio(((float)this.displayedItems.size())/this.items.size());
-    }
+    // Updates the scroll bar to match the new number of displayed rows
+    itemsChanged();
   }
 
   /**
@@ -125,53 +162,110 @@ public class ScrollList extends JComponent implements MouseListener {
   }
 
   /**
-   * Fills the item list with all directories and images from the current directory
+   * Starts filling the model with all directories and images from the current directory.
+   * The directory is listed on a background thread and any work left from the previous directory is cancelled
    */
   public void fillList() {
-    try {
-      Iterator<Path> pathList = Files.newDirectoryStream(this.curDir).iterator();
+    // Cancels the counts of the previous directory and starts a new load
+    this.loadCancelled.set(true);
+    this.loadCancelled = new AtomicBoolean(false);
+    this.loadGeneration++;
+    this.loading = true;
+    // Changes from before the new listing starts are already part of it
+    this.loadingImgChanges.clear();
+    this.loadingSaveChanges.clear();
+    this.loadingOverflow = false;
+    // Taken before the listing is read, so a change made while it is read is found by the next check
+    this.listedModified = CompletionIndex.lastModified(this.curDir);
+    this.listedSaveModified = CompletionIndex.lastModified(this.completionIndex.getSaveDir(this.curDir));
+    final int generation = this.loadGeneration;
+    final AtomicBoolean cancelled = this.loadCancelled;
+    final Path dirPath = this.curDir;
+    final DirectoryPager oldPager = this.pager;
+
+    // Clears the model and resets the scroll bar
+    clearItems();
+    if (this.bar != null) {
+      this.bar.resetBar();
+    }
+
+    // Adds the first row of the list as a backtrack directory that directs to the parent directory
+    this.model.add("..", ExplorerModel.PARENT, 0, 0);
+    repaint();
+    if (this.filmStrip != null)
+      this.filmStrip.showFrom(0);
+
+    this.loader.execute(new Runnable() {
+      @Override
+      public void run() {
+        if (oldPager != null)
+          oldPager.close();
+        if (cancelled.get())
+          return;
+        // Opens the directory and reads only its first page, so it can be shown right away
+        final DirectoryPager newPager = new DirectoryPager(completionIndex, dirPath);
+        final ExplorerModel page = newPager.nextPage(DirectoryPager.PAGE_SIZE);
+        final int remaining = newPager.getRemaining();
+        SwingUtilities.invokeLater(new Runnable() {
+          @Override
+          public void run() {
+            if (generation == loadGeneration)
+              showListing(newPager, page, remaining);
+            else
+              closeLater(newPager);
+          }
+        });
+        // Caches the sorted listing of a large directory once its first page is on its way
+        newPager.writeCache();
+      }
+    });
+  }
 
-      // Clears the lists and resets the scroll bar
+  /**
+   * Fills the model from the first page of the current directory and keeps its pager to read the rest
+   * as the list is scrolled toward them. Directories are shown with their previously indexed completion,
+   * or as pending, and their completion is counted in the background
+   * @param DirectoryPager newPager  Pager of the current directory
+   * @param ExplorerModel  page      First page of sorted rows
+   * @param int            remaining Number of rows left after the first page
+   */
+  public void showListing(DirectoryPager newPager, ExplorerModel page, int remaining) {
+    try {
+      this.loading = false;
       clearItems();
       if (this.bar != null) {
         this.bar.resetBar();
       }
 
-      // Adds the first item of the list as a backtrack directory that directs to the parent directory
-      this.items.add(new ListItem(this.curDir.getParent(), "..", true, false));
-
-      // For each file or directory in the current directory, attempts to make a list item and add it
-      while (pathList.hasNext()) {
-        Path nextPath = pathList.next();
-        boolean isDir = nextPath.toFile().isDirectory();
-        boolean completed = false;
-
-        // Adds the item as a directory if it is one
-        if (isDir) {
-          // Checks for the total number and completed number of IMAGES in the directory
-          CompletionData completionData = checkDirCompletion(nextPath);
-          // If the directory has no IMAGES then it is not displayed in the list
-          if (completionData.getFileNum() > 0)
-            this.items.add(new ListDirItem(nextPath, nextPath.getFileName().toString(),
-                completionData));
-        // If the item is not a directory, checks for its completion and then adds it to the list
-        } else if (ImageChecker.isImage(nextPath)) {
-          Path savePath = ScrollList.convertToSavePath(this.orgDir, this.saveFolder, nextPath);
-          completed = ScrollList.checkFileCompletion(savePath);
-          ListItem item = new ListItem(nextPath, nextPath.getFileName().toString(),
-              isDir, completed);
-          if (this.imgEditor.isOpen(nextPath))
-            item.setOpen(true);
-          this.items.add(item);
-        }
-      }
+      // Adds the first row of the list as a backtrack directory that directs to the parent directory
+      this.model.add("..", ExplorerModel.PARENT, 0, 0);
+      this.pager = newPager;
+      appendPage(page, remaining);
 
-      // Alphanumerically sorts all items in the list
-      this.items.sort(null);
-      chainItems();
+      // Restores the position of a refreshed list
+      if (this.restoreStartIdx >= 0)
+        scrollToIndex(this.restoreStartIdx);
+      this.restoreStartIdx = -1;
 
-      // Fills the displayed items list
-      fillDisplayedItems();
+      if (this.pendingCounts == 0)
+        saveIndexLater();
+
+      // The listing may have passed an entry before it changed, so the changes made while it was read are applied to it
+      if (this.loadingOverflow || !this.loadingImgChanges.isEmpty() || !this.loadingSaveChanges.isEmpty()) {
+        HashSet<Path> imgPaths = this.loadingImgChanges;
+        HashSet<Path> savePaths = this.loadingSaveChanges;
+        boolean overflow = this.loadingOverflow;
+        this.loadingImgChanges = new HashSet<Path>();
+        this.loadingSaveChanges = new HashSet<Path>();
+        this.loadingOverflow = false;
+        applyListChanges(imgPaths, savePaths, overflow);
+      }
+
+      // Directories the watcher could not register would otherwise never show their changes
+      if (this.watcher == null || this.watcher.isFullyWatched(this.curDir))
+        this.unwatchedTimer.stop();
+      else if (!this.unwatchedTimer.isRunning())
+        this.unwatchedTimer.start();
 
     } catch (Exception e) {
       System.out.println("Error when loading current directory for scroll list! " + e);
@@ -182,56 +276,601 @@ public class ScrollList extends JComponent implements MouseListener {
   }
 
   /**
-   * Fills the displayed list with the max number of possible items
+   * Adds a page of sorted rows to the end of the model. Any changes that arrived before the page
+   * are applied once it is added, and the next page is requested if the displayed rows need it
+   * @param ExplorerModel page      Sorted rows that come after every row in the model
+   * @param int           remaining Number of rows of the directory left after the page
    */
-  public void fillDisplayedItems() {
-    // Fills the displayed items list until it is full
-    for (ListItem item : this.items) {
-      if (this.displayedItems.size() < this.maxItems)
-        this.displayedItems.add(item);
-      else
-        break;
+  public void appendPage(ExplorerModel page, int remaining) {
+    for (int i=0; i < page.size(); i++) {
+      String name = page.getName(i);
+      if (page.isDirectory(i)) {
+        Path dirPath = this.curDir.resolve(name);
+        CompletionData cached = this.completionIndex.getCachedCompletion(dirPath);
+        // Directories without any images are not displayed, unless their count finds some
+        if (cached == null)
+          this.model.add(name, page.getFlags(i), 0, 0);
+        else if (cached.getFileNum() > 0)
+          this.model.setCompletion(this.model.add(name, ExplorerModel.DIR, 0, 0),
+              cached.getCompleteNum(), cached.getFileNum());
+        requestCompletion(dirPath);
+      } else {
+        this.model.add(name, page.getFlags(i), 0, 0);
+      }
+    }
+
+    this.unloadedRows = remaining;
+    if (remaining == 0) {
+      closeLater(this.pager);
+      this.pager = null;
     }
+    applyDeferredChanges();
 
-    // If there is an associated scroll bar, adjusts its size to match the total number of items in the list
-    if (this.bar != null && this.items.size() > this.maxItems) {
-      this.bar.setHeightRatio(((float)this.displayedItems.size())/this.items.size());
+    // Restores the selection of a refreshed list once the page holding it arrives
+    if (this.restoreSelection != null) {
+      int idx = rowOf(this.restoreSelection);
+      if (idx >= 0 || this.pager == null) {
+        selectIndex(idx);
+        this.restoreSelection = null;
+        // Items found for a search are scrolled to, while refreshed lists keep their position
+        if (idx >= 0 && this.restoreStartIdx < 0)
+          scrollToShow(idx);
+      }
     }
 
-    this.parent.repaint();
+    itemsChanged();
+  }
+
+  /**
+   * Reads the next page of the current directory on the background thread if it is not already being read
+   */
+  public void requestPage() {
+    if (this.pager == null || this.pageRequested)
+      return;
+    this.pageRequested = true;
+    final int generation = this.loadGeneration;
+    final DirectoryPager current = this.pager;
+    this.loader.execute(new Runnable() {
+      @Override
+      public void run() {
+        final ExplorerModel page = current.nextPage(DirectoryPager.PAGE_SIZE);
+        final int remaining = current.getRemaining();
+        SwingUtilities.invokeLater(new Runnable() {
+          @Override
+          public void run() {
+            if (generation != loadGeneration || pager != current)
+              return;
+            pageRequested = false;
+            appendPage(page, remaining);
+          }
+        });
+      }
+    });
   }
 
-  public void chainItems() {
-    if (this.items.isEmpty())
+  /**
+   * Requests the next page once the displayed rows or the selection come within half a page of the last added row
+   */
+  public void ensureLoaded() {
+    loadRowsTo(Math.max(this.curStartIdx+this.maxItems, this.selectedIdx+1));
+  }
+
+  /**
+   * Requests the next page once the given row comes within half a page of the last added row
+   * @param int neededIdx Index of the last row that needs to be added
+   */
+  public void loadRowsTo(int neededIdx) {
+    int neededRows = neededIdx + DirectoryPager.PAGE_SIZE/2;
+    // Pages keep being read until an item waiting to be selected is found
+    if (this.model.size() < neededRows || this.restoreSelection != null)
+      requestPage();
+  }
+
+  /**
+   * Closes a pager on the background thread, after any page that is still being read from it
+   * @param DirectoryPager oldPager Pager to close
+   */
+  public void closeLater(final DirectoryPager oldPager) {
+    if (oldPager == null)
       return;
+    this.loader.execute(new Runnable() {
+      @Override
+      public void run() {
+        oldPager.close();
+      }
+    });
+  }
+
+  /**
+   * Returns the total number of rows in the current directory, including those that have not been added yet
+   * @return Number of rows
+   */
+  public int rowCount() {
+    return this.model.size()+this.unloadedRows;
+  }
+
+  /**
+   * Returns whether or not the row of the given name would already be in the model.
+   * Rows are added in sorted order, so every name up to the last added row has been added
+   * @param  String name          Name of an entry directly within the current directory
+   * @return        Whether or not the entry's page has been added
+   */
+  public boolean isLoaded(String name) {
+    if (this.pager == null)
+      return true;
+    int last = this.model.size()-1;
+    return last > 0 && !this.model.isParent(last) && name.compareTo(this.model.getName(last)) <= 0;
+  }
 
-    ListItem current = this.items.get(0);
-    ListItem next = null;
-    for (int i=1; i < this.items.size(); i++) {
-      next = this.items.get(i);
-      current.setNext(next);
-      current = next;
+  /**
+   * Applies the changes that were held back until the pages holding their entries were added
+   */
+  public void applyDeferredChanges() {
+    ArrayList<Path> entries = new ArrayList<Path>();
+    ArrayList<Path> saveFiles = new ArrayList<Path>();
+    Iterator<Path> itr = this.deferredChanges.iterator();
+    while (itr.hasNext()) {
+      Path path = itr.next();
+      if (path.startsWith(this.saveFolder)) {
+        String saveName = path.getFileName().toString();
+        if (isLoaded(saveName.substring(0, Math.max(0, saveName.length()-4)) + ".\uffff")) {
+          itr.remove();
+          saveFiles.add(path);
+        }
+      } else if (isLoaded(path.getFileName().toString())) {
+        itr.remove();
+        entries.add(path);
+      }
     }
+    if (!entries.isEmpty() || !saveFiles.isEmpty())
+      probeLater(entries, saveFiles, false);
   }
 
   /**
-   * Reloads the list and revalidates the statuses of all items currently in the list
+   * Checks the given paths of the current directory on the background thread and then updates their rows
+   * on the event dispatch thread, unless another directory has been loaded by then
+   * @param Collection<Path> entries   Changed paths directly within the current directory
+   * @param Collection<Path> saveFiles Changed save files within the save mirror of the current directory
+   * @param boolean          recheck   Whether or not to check the completion of every image row again
+   */
+  public void probeLater(Collection<Path> entries, Collection<Path> saveFiles, final boolean recheck) {
+    final int generation = this.loadGeneration;
+    final ArrayList<Path> entryPaths = new ArrayList<Path>(entries);
+    final ArrayList<Path> savePaths = new ArrayList<Path>(saveFiles);
+    final Path curSaveDir = this.completionIndex.getSaveDir(this.curDir);
+    this.loader.execute(new Runnable() {
+      @Override
+      public void run() {
+        final ChangeProbe probe = new ChangeProbe(orgDir, saveFolder, entryPaths, savePaths, recheck ? curSaveDir : null);
+        SwingUtilities.invokeLater(new Runnable() {
+          @Override
+          public void run() {
+            // A newly loaded directory is listed after the changes, so it already shows them
+            if (generation == loadGeneration)
+              applyProbe(probe);
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Updates the rows of the current directory from the checked paths of a batch of changes
+   * @param ChangeProbe probe Checked paths
+   */
+  public void applyProbe(ChangeProbe probe) {
+    if (probe.getRechecked() != null)
+      recheckFiles(probe.getRechecked());
+    for (Map.Entry<Path, Boolean> save : probe.getSaves().entrySet())
+      updateSaveRows(save.getKey(), save.getValue());
+    boolean listChanged = false;
+    for (Map.Entry<Path, Integer> entry : probe.getEntries().entrySet())
+      listChanged |= updateEntry(entry.getKey(), entry.getValue());
+
+    if (listChanged)
+      itemsChanged();
+    repaint();
+    if (this.filmStrip != null)
+      this.filmStrip.repaint();
+  }
+
+  /**
+   * Starts counting the completion of a directory within the current directory in the background.
+   * Once the count arrives, the directory's row is updated, added or removed
+   * @param Path dirPath Path of the directory to count
+   */
+  public void requestCompletion(final Path dirPath) {
+    final int generation = this.loadGeneration;
+    this.pendingCounts++;
+    this.completionIndex.countLater(dirPath, this.loadCancelled, new Consumer<CompletionData>() {
+      @Override
+      public void accept(final CompletionData data) {
+        SwingUtilities.invokeLater(new Runnable() {
+          @Override
+          public void run() {
+            pendingCounts--;
+            if (generation == loadGeneration)
+              updateDirCompletion(dirPath, data);
+            // Stores any directories that were rescanned once all counts are done
+            if (pendingCounts == 0)
+              saveIndexLater();
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Applies a newly counted completion to the row of a directory within the current directory
+   * @param Path           dirPath Path of the counted directory
+   * @param CompletionData data    Completion data of the directory
+   */
+  public void updateDirCompletion(Path dirPath, CompletionData data) {
+    int idx = rowOf(dirPath);
+    boolean listChanged = false;
+    // Directories without any images are not displayed
+    if (data.getFileNum() == 0) {
+      if (idx >= 0) {
+        removeRow(idx);
+        listChanged = true;
+      }
+    } else if (idx >= 0 && this.model.isDirectory(idx)) {
+      this.model.setCompletion(idx, data.getCompleteNum(), data.getFileNum());
+    } else if (idx < 0 && isLoaded(dirPath.getFileName().toString())) {
+      // Only a directory that was found when it was counted can have any images
+      insertRow(dirPath.getFileName().toString(), ExplorerModel.DIR, data.getCompleteNum(), data.getFileNum());
+      listChanged = true;
+    }
+
+    if (listChanged)
+      itemsChanged();
+    repaint();
+  }
+
+  /**
+   * Updates the displayed rows and the scroll bar after rows were added or removed
+   */
+  public void itemsChanged() {
+    displayFrom(this.curStartIdx);
+    if (this.filmStrip != null)
+      this.filmStrip.repaint();
+    if (this.bar != null) {
+      if (isScrollable())
+        this.bar.updateHeightRatio(((float)this.maxItems)/rowCount());
+      else
+        this.bar.resetBar();
+    }
+  }
+
+  /**
+   * Saves the completion index on the background thread
+   */
+  public void saveIndexLater() {
+    this.loader.execute(new Runnable() {
+      @Override
+      public void run() {
+        completionIndex.save();
+      }
+    });
+  }
+
+  /**
+   * Reloads the list and revalidates the statuses of all rows currently in the list
    */
   public void reloadList() {
-    for (ListItem item : this.items) {
-      if (!item.isDirectory()) {
-        Path savePath = ScrollList.convertToSavePath(this.orgDir, this.saveFolder, item.getPath());
-        boolean completed = ScrollList.checkFileCompletion(savePath);
-        item.setCompleted(completed);
-      } else if (item instanceof ListDirItem){
-        ListDirItem dirItem = (ListDirItem)item;
-        CompletionData completionData = checkDirCompletion(item.getPath());
-        dirItem.updateCompletionData(completionData);
+    probeLater(Collections.<Path>emptyList(), Collections.<Path>emptyList(), true);
+    for (int i=0; i < this.model.size(); i++) {
+      if (this.model.isDirectory(i) && !this.model.isParent(i))
+        requestCompletion(getPath(i));
+    }
+    repaint();
+  }
+
+  /**
+   * Marks the image at the given path as completed without reloading the list.
+   * The image's row and the directory row above it are updated in place and the completion
+   * index entry of its directory is counted up, so only the directories above the image are visited
+   * @param Path imgPath      Path of the image that was just completed
+   * @param long saveModified Modification time of the save directory from before the save file was written
+   */
+  public void markCompleted(Path imgPath, long saveModified) {
+    if (imgPath.startsWith(this.curDir) && !imgPath.equals(this.curDir)) {
+      Path relative = this.curDir.relativize(imgPath);
+      int idx = this.model.indexOf(relative.getName(0).toString());
+      if (idx >= 0) {
+        // Only one directory above the image can be displayed, which is the first one within the current directory
+        if (relative.getNameCount() == 1)
+          this.model.setCompleted(idx, true);
+        else if (this.model.isDirectory(idx) && !this.model.isPending(idx))
+          this.model.setCompletion(idx, this.model.getCompleteNum(idx)+1, this.model.getFileNum(idx));
       }
     }
+
+    this.completionIndex.markCompleted(imgPath, saveModified);
+    this.searchIndex.markCompletedLater(imgPath);
+    repaint();
+    if (this.filmStrip != null)
+      this.filmStrip.repaint();
+  }
+
+  /**
+   * Marks an image that turned out to have a save file as completed in its row and in the search index,
+   * such as when the save was written by another program before the watcher reported it.
+   * The completion index is left to count it again once its save directory is checked
+   * @param Path imgPath Path of the completed image
+   */
+  public void noteCompleted(Path imgPath) {
+    int idx = rowOf(imgPath);
+    if (idx >= 0 && !this.model.isDirectory(idx))
+      this.model.setCompleted(idx, true);
+    this.searchIndex.markCompletedLater(imgPath);
     repaint();
   }
 
+  /**
+   * Stops watching the image and save directories for changes, which closes the watch service before the program exits
+   */
+  public void stopWatching() {
+    this.unwatchedTimer.stop();
+    if (this.watcher != null)
+      this.watcher.stop();
+  }
+
+  /**
+   * Checks the current directory for changes while the watcher cannot watch all of it, such as once the system watch
+   * limit was reached. The list is refreshed if entries were added or removed, and every directory row is counted again,
+   * which only rescans the directories within it that were modified
+   */
+  public void checkUnwatched() {
+    if (this.loading)
+      return;
+    if (this.watcher == null || this.watcher.isFullyWatched(this.curDir)) {
+      this.unwatchedTimer.stop();
+      return;
+    }
+    if (CompletionIndex.lastModified(this.curDir) != this.listedModified ||
+        CompletionIndex.lastModified(this.completionIndex.getSaveDir(this.curDir)) != this.listedSaveModified) {
+      // The search index is brought up to date with the directory as well
+      if (this.curDir.equals(this.orgDir))
+        this.searchIndex.build();
+      else
+        this.searchIndex.applyChangesLater(Collections.singleton(this.curDir));
+      refreshList();
+      return;
+    }
+    for (int i=0; i < this.model.size(); i++) {
+      if (this.model.isDirectory(i) && !this.model.isParent(i))
+        requestCompletion(getPath(i));
+    }
+  }
+
+  /**
+   * Reloads the current directory while keeping the selected item and the scroll position
+   */
+  public void refreshList() {
+    if (this.selectedIdx >= 0)
+      this.restoreSelection = getPath(this.selectedIdx);
+    this.restoreStartIdx = this.curStartIdx;
+    fillList();
+  }
+
+  /**
+   * Applies a batch of changes from the directory watcher to the list.
+   * Entries directly within the current directory are added, removed or updated in place, and
+   * directory rows with changes inside of them have their completion updated through the completion index
+   * @param Set<Path> imgPaths  Changed paths within the image directory
+   * @param Set<Path> savePaths Changed paths within the save directory
+   * @param boolean   overflow  Whether or not changes were lost, in which case the whole list is refreshed
+   */
+  public void applyChanges(Set<Path> imgPaths, Set<Path> savePaths, boolean overflow) {
+    // The search index covers every directory, not only the current one
+    if (overflow)
+      this.searchIndex.build();
+    else if (!imgPaths.isEmpty())
+      this.searchIndex.applyChangesLater(imgPaths);
+    if (!overflow && !savePaths.isEmpty())
+      this.searchIndex.applySaveChangesLater(savePaths);
+
+    // A listing that has not arrived yet may already be past the changed entries, so the changes are applied once it arrives
+    if (this.loading) {
+      this.loadingImgChanges.addAll(imgPaths);
+      this.loadingSaveChanges.addAll(savePaths);
+      this.loadingOverflow |= overflow;
+      return;
+    }
+    applyListChanges(imgPaths, savePaths, overflow);
+  }
+
+  /**
+   * Applies a batch of changes to the rows of the current directory, which must have been listed already
+   * @param Set<Path> imgPaths  Changed paths within the image directory
+   * @param Set<Path> savePaths Changed paths within the save directory
+   * @param boolean   overflow  Whether or not changes were lost, in which case the whole list is refreshed
+   */
+  public void applyListChanges(Set<Path> imgPaths, Set<Path> savePaths, boolean overflow) {
+    if (overflow) {
+      refreshList();
+      return;
+    }
+
+    HashSet<Path> changedEntries = new HashSet<Path>();   // Changed paths directly within the current directory
+    HashSet<Path> changedDirs = new HashSet<Path>();      // Directories in the current directory with changes inside of them
+    for (Path path : imgPaths)
+      sortChange(path, changedEntries, changedDirs);
+
+    Path curSaveDir = this.completionIndex.getSaveDir(this.curDir);
+    HashSet<Path> saveFiles = new HashSet<Path>();        // Changed save files of images in the current directory
+    boolean recheck = false;
+    for (Path savePath : savePaths) {
+      // Save files of displayed images are matched to their rows directly
+      if (curSaveDir.equals(savePath.getParent()) && savePath.getFileName().toString().endsWith(".txt")) {
+        saveFiles.add(savePath);
+        continue;
+      }
+
+      // Otherwise the change is treated as a change to the matching image path
+      Path imgEquivalent = this.orgDir.resolve(this.saveFolder.relativize(savePath));
+      if (imgEquivalent.equals(this.curDir))
+        recheck = true;
+      else
+        sortChange(imgEquivalent, changedEntries, changedDirs);
+    }
+
+    // What is now at each path is checked in the background, and the rows are updated once it is known
+    changedDirs.removeAll(changedEntries);
+    changedEntries.addAll(changedDirs);
+    if (!changedEntries.isEmpty() || !saveFiles.isEmpty() || recheck)
+      probeLater(changedEntries, saveFiles, recheck);
+  }
+
+  /**
+   * Sets the completion of every image row in the current directory that saves to the given save file
+   * @param  Path    savePath      Changed save file within the save mirror of the current directory
+   * @param  boolean comp          Whether or not the save file exists
+   * @return         Whether or not any image row saves to the file
+   */
+  public boolean updateSaveRows(Path savePath, boolean comp) {
+    String saveName = savePath.getFileName().toString();
+    if (!saveName.endsWith(".txt"))
+      return false;
+    String stem = saveName.substring(0, saveName.length()-4);
+    // Save files of images in pages that have not been added yet are applied once their page arrives
+    if (!isLoaded(stem + ".\uffff")) {
+      this.deferredChanges.add(savePath);
+      return true;
+    }
+    boolean found = false;
+
+    // An image without an extension has the name of its save file without ".txt"
+    int idx = this.model.indexOf(stem);
+    if (idx >= 0 && !this.model.isDirectory(idx) && ScrollList.convertToSaveName(stem).equals(saveName)) {
+      this.model.setCompleted(idx, comp);
+      found = true;
+    }
+    // Every other image saving to the file has the same name up to its extension, so they are next to each other
+    String prefix = stem + ".";
+    for (idx = this.model.lowerBound(prefix); idx < this.model.size() && this.model.getName(idx).startsWith(prefix); idx++) {
+      if (!this.model.isDirectory(idx) && ScrollList.convertToSaveName(this.model.getName(idx)).equals(saveName)) {
+        this.model.setCompleted(idx, comp);
+        found = true;
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Sorts a changed path by whether it is directly within the current directory or nested inside of one of its directories
+   * @param Path          path           Changed path
+   * @param HashSet<Path> changedEntries Set of changed paths directly within the current directory
+   * @param HashSet<Path> changedDirs    Set of directories within the current directory with changes inside of them
+   */
+  public void sortChange(Path path, HashSet<Path> changedEntries, HashSet<Path> changedDirs) {
+    if (!path.startsWith(this.curDir) || path.equals(this.curDir))
+      return;
+
+    Path relative = this.curDir.relativize(path);
+    Path entry = this.curDir.resolve(relative.getName(0));
+    if (relative.getNameCount() == 1)
+      changedEntries.add(entry);
+    else
+      changedDirs.add(entry);
+  }
+
+  /**
+   * Brings the row of a single path directly within the current directory up to date.
+   * The row is added, removed or has its completion updated depending on what is now at the path.
+   * Directories are counted in the background, so their rows are updated later
+   * @param  Path entry         Path directly within the current directory
+   * @param  int  state         What is now at the path, as one of the states of the change probe
+   * @return      Whether or not a row was added or removed
+   */
+  public boolean updateEntry(Path entry, int state) {
+    // Entries in pages that have not been added yet are updated once their page arrives
+    if (!isLoaded(entry.getFileName().toString())) {
+      this.deferredChanges.add(entry);
+      return false;
+    }
+
+    int idx = rowOf(entry);
+
+    // Directories are counted in the background and updated once their count arrives
+    if (state == ChangeProbe.DIRECTORY) {
+      requestCompletion(entry);
+      return false;
+    }
+
+    if (idx >= 0 && state == ChangeProbe.GONE) {
+      removeRow(idx);
+      return true;
+    } else if (idx < 0 && (state == ChangeProbe.IMAGE || state == ChangeProbe.COMPLETED_IMAGE)) {
+      byte flag = state == ChangeProbe.COMPLETED_IMAGE ? ExplorerModel.COMPLETED : 0;
+      insertRow(entry.getFileName().toString(), flag, 0, 0);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Adds a row to the model in its sorted position, keeping the selection on the same row
+   * @param  String name          Name of the entry
+   * @param  byte   flag          State flags of the entry
+   * @param  int    complete      Number of completed images (directories only)
+   * @param  int    total         Total number of images (directories only)
+   * @return        Index of the new row
+   */
+  public int insertRow(String name, byte flag, int complete, int total) {
+    int idx = this.model.insert(name, flag, complete, total);
+    if (this.selectedIdx >= idx)
+      this.selectedIdx++;
+    return idx;
+  }
+
+  /**
+   * Removes a row from the model, keeping the selection on the same row
+   * @param int idx Index of the row to remove
+   */
+  public void removeRow(int idx) {
+    this.model.remove(idx);
+    if (this.selectedIdx == idx)
+      this.selectedIdx = -1;
+    else if (this.selectedIdx > idx)
+      this.selectedIdx--;
+  }
+
+  /**
+   * Finds the row of a path directly within the current directory
+   * @param  Path path          Path to find
+   * @return      Index of the row or -1 if the path is not displayed
+   */
+  public int rowOf(Path path) {
+    if (path.getParent() == null || !path.getParent().equals(this.curDir))
+      return -1;
+    return this.model.indexOf(path.getFileName().toString());
+  }
+
+  /**
+   * Returns the path of the entry at the given row
+   * @param  int idx           Index of the row
+   * @return     Path of the entry
+   */
+  public Path getPath(int idx) {
+    if (this.model.isParent(idx))
+      return this.curDir.getParent();
+    else
+      return this.curDir.resolve(this.model.getName(idx));
+  }
+
+  /**
+   * Checks the completion of every image row in the list again against a single listing of the save directory
+   * @param SaveLookup saves Listing of the save mirror of the current directory
+   */
+  public void recheckFiles(SaveLookup saves) {
+    for (int i=0; i < this.model.size(); i++) {
+      if (!this.model.isDirectory(i))
+        this.model.setCompleted(i, saves.contains(ScrollList.convertToSaveName(this.model.getName(i))));
+    }
+  }
+
   /**
    * Static method used to generate the save path for a single image's results
    * @param  String commonAncestor Closest common ancestor folder with the image path and the save folder
@@ -245,11 +884,19 @@ public class ScrollList extends JComponent implements MouseListener {
   public static Path convertToSavePath(Path commonAncestor, Path saveFolder, Path imgPath) {
     Path endImgPath = commonAncestor.relativize(imgPath);
     Path savePath = saveFolder.resolve(endImgPath).getParent();
+    return savePath.resolve(ScrollList.convertToSaveName(endImgPath.getFileName().toString()));
+  }
 
-    String imgName = endImgPath.getFileName().toString();
-    String imgNameNoExt = imgName.substring(0, imgName.lastIndexOf('.'));
-    savePath = savePath.resolve(imgNameNoExt+".txt");
-    return savePath;
+  /**
+   * Static method used to generate the name of the save file for a single image
+   * @param  String imgName       Name of the image file
+   * @return        Name of the image file with its extension replaced by ".txt"
+   */
+  public static String convertToSaveName(String imgName) {
+    // Images recognized by their header may not have an extension at all
+    int extIdx = imgName.lastIndexOf('.');
+    String imgNameNoExt = extIdx < 0 ? imgName : imgName.substring(0, extIdx);
+    return imgNameNoExt+".txt";
   }
 
   /**
@@ -271,59 +918,34 @@ public class ScrollList extends JComponent implements MouseListener {
   }
 
   /**
-   * Recursively checks the completion of a directory
+   * Recursively checks the completion of a directory through the completion index.
+   * Only directories modified since they were last indexed are scanned again
    * @param  Path dirPath       Path for the directory
    * @return      Completion data for the directory
    */
   public CompletionData checkDirCompletion(Path dirPath) {
-    int completedFileCount = 0;
-    int fileCount = 0;
-    try {
-      Iterator<Path> pathList = Files.newDirectoryStream(dirPath).iterator();
-
-      // For each file and directory within the current directory
-      while (pathList.hasNext()) {
-        Path nextPath = pathList.next();
-
-        // If the path is a directory, recursively checks completion
-        if (nextPath.toFile().isDirectory()) {
-          CompletionData curData = checkDirCompletion(nextPath);
-          completedFileCount += curData.getCompleteNum();
-          fileCount += curData.getFileNum();
-
-        // If the path is not a directory
-        } else {
-          // Only collects completion information for image files
-          if (ImageChecker.isImage(nextPath)) {
-            Path savePath = ScrollList.convertToSavePath(this.orgDir, this.saveFolder, nextPath);
-            if (ScrollList.checkFileCompletion(savePath))
-              completedFileCount++;
-            fileCount++;
-          }
-        }
-
-      }
-    } catch (Exception e) {
-      System.out.println("Error when checking directory completion! " + e);
-    }
-
-    return new CompletionData(completedFileCount, fileCount);
+    return this.completionIndex.getCompletion(dirPath);
   }
 
   /**
-   * Clears all items in both item lists
+   * Clears all rows of the model along with the selection and the displayed position
    */
   public void clearItems() {
-    this.items = new ArrayList<ListItem>();
-    this.displayedItems = new LinkedList<ListItem>();
+    this.model.clear();
+    this.pager = null;
+    this.unloadedRows = 0;
+    this.pageRequested = false;
+    this.deferredChanges.clear();
+    this.selectedIdx = -1;
+    this.curStartIdx = 0;
   }
 
   /**
-   * Whether or not there are more items in the list than the max amount of displayed items
+   * Whether or not there are more rows in the list than the max amount of displayed rows
    * @return Whether or not the list can be scrolled through
    */
   public boolean isScrollable() {
-    return this.items.size() > this.maxItems;
+    return rowCount() > this.maxItems;
   }
 
   /**
@@ -334,77 +956,216 @@ public class ScrollList extends JComponent implements MouseListener {
    */
   public void scroll(float frac) {
     // Calculates the correct index to start the list at
-    int startIdx = (int)(this.items.size()*frac);
+    int startIdx = Math.round(rowCount()*frac);
 
     // If the starting index is the same, do nothing
     if (startIdx == curStartIdx)
       return;
 
-    // Clears all items from the list
-    this.removeAll();
-    this.displayedItems.clear();
+    displayFrom(startIdx);
+  }
+
+  /**
+   * Displays the rows of the list starting from the given index
+   * @param int startIdx Index in the model of the first row to display
+   */
+  public void displayFrom(int startIdx) {
+    this.curStartIdx = Math.max(0, Math.min(startIdx, rowCount()-1));
+    ensureLoaded();
+    repaint();
+  }
+
+  /**
+   * Scrolls the list by the given number of rows and moves the scroll bar to match
+   * @param int rows Number of rows to scroll. Should be positive to scroll down and negative to scroll up
+   */
+  public void scrollRows(int rows) {
+    if (!isScrollable())
+      return;
+
+    int startIdx = Math.max(0, Math.min(this.curStartIdx+rows, rowCount()-this.maxItems));
+    if (startIdx == this.curStartIdx)
+      return;
 
-    // Creates an iterator through the list of items at the starting at the new start index
-    ListIterator<ListItem> itr = this.items.listIterator(startIdx);
+    displayFrom(startIdx);
+    if (this.bar != null)
+      this.bar.showListFrac(((float)startIdx)/rowCount());
+  }
+
+  /**
+   * Scrolls the list so the row at the given index is displayed near the middle, unless it is already displayed
+   * @param int idx Index in the model to show
+   */
+  public void scrollToShow(int idx) {
+    if (idx < this.curStartIdx || idx >= this.curStartIdx+this.maxItems)
+      scrollToIndex(Math.max(0, idx-this.maxItems/2));
+  }
+
+  /**
+   * Opens the directory of the given image if needed, then selects the image and scrolls to it.
+   * If the image is in a page that has not been read yet, it is selected once its page arrives
+   * @param Path imgPath Path of the image to show
+   */
+  public void showPath(Path imgPath) {
+    Path dirPath = imgPath.getParent();
+    if (dirPath == null || !dirPath.startsWith(this.orgDir))
+      return;
 
-    // Adds items to the displayed list while it can hold more and while the items list has items
-    while (this.displayedItems.size() < this.maxItems && itr.hasNext()) {
-      ListItem next = itr.next();
-      this.displayedItems.add(next);
-      add(next);
+    if (dirPath.equals(this.curDir) && !this.loading) {
+      int idx = rowOf(imgPath);
+      if (idx >= 0) {
+        selectIndex(idx);
+        scrollToShow(idx);
+      } else if (this.pager != null) {
+        this.restoreSelection = imgPath;
+        ensureLoaded();
+      }
+      return;
     }
 
-    this.curStartIdx = startIdx;
-    this.parent.repaint();
+    this.restoreSelection = imgPath;
+    this.restoreStartIdx = -1;
+    this.curDir = dirPath;
+    fillList();
   }
 
   /**
-   * Finds the list items currently displayed at a given y coordinate value
-   * @param  int pos           Y coordinate value to find item at
-   * @return     Returns the item displayed at the position if there is one and null otherwise
+   * Searches every image in the image directory by name in the background
+   * @param String                   query    Text to search for, ignoring case
+   * @param int                      max      Maximum number of matches
+   * @param Consumer<ArrayList<Path>> callback Function that receives the paths of the matches on the event dispatch thread
    */
-  public ListItem itemDisplayedAt(int pos) {
-    int idx = pos/ScrollList.ITEM_HEIGHT;
-    if (idx < this.displayedItems.size())
-      return this.displayedItems.get(idx);
-    else
-      return null;
+  public void searchImages(String query, int max, final Consumer<ArrayList<Path>> callback) {
+    this.searchIndex.searchLater(query, max, new Consumer<ArrayList<Path>>() {
+      @Override
+      public void accept(final ArrayList<Path> matches) {
+        SwingUtilities.invokeLater(new Runnable() {
+          @Override
+          public void run() {
+            callback.accept(matches);
+          }
+        });
+      }
+    });
   }
 
   /**
-   * Sets the selection of the given item and unselects the previously selected item
-   * @param ListItem selection New item to select
+   * Finds the next image that has not been completed after the given path, going through every directory
+   * in the order they are listed and back to the beginning after the last image.
+   * Until the index of every image has been built, the loaded rows of the current directory after the row of the
+   * given path are looked at first, or after the selected row if the path is not listed in the current directory.
+   * If none of them is incomplete, the search waits for the index, which finishes its build before any search
+   * @param Path           from     Path of the image or directory to start after (null to start at the beginning)
+   * @param Consumer<Path> callback Function that receives the path of the next image on the event dispatch thread (null if there is none)
    */
-  public void selectItem(ListItem selection) {
-    if (selection != null) {
-      if (this.selected != null)
-        this.selected.setSelected(false);
-      selection.setSelected(true);
-      this.selected = selection;
+  public void findNextIncomplete(Path from, final Consumer<Path> callback) {
+    if (!this.searchIndex.isBuilt()) {
+      int start = 0;
+      if (from != null) {
+        int fromIdx = this.curDir.equals(from.getParent()) ? this.model.indexOf(from.getFileName().toString()) : -1;
+        start = Math.max((fromIdx >= 0 ? fromIdx : this.selectedIdx)+1, 0);
+      }
+      for (int idx = start; idx < this.model.size(); idx++) {
+        if (!this.model.isDirectory(idx) && !this.model.isCompleted(idx)) {
+          callback.accept(getPath(idx));
+          return;
+        }
+      }
     }
-    this.parent.repaint();
+
+    this.searchIndex.nextIncompleteLater(from, new Consumer<Path>() {
+      @Override
+      public void accept(final Path next) {
+        SwingUtilities.invokeLater(new Runnable() {
+          @Override
+          public void run() {
+            callback.accept(next);
+          }
+        });
+      }
+    });
   }
 
   /**
-   * Selects the next item after the currently selected item if there is one
+   * Finds the next few images that have not been completed after the given path, in the order they would be opened next.
+   * Nothing is found until the index of every image has been built
+   * @param Path                     from     Path of the image or directory to start after (null to start at the beginning)
+   * @param int                      max      Maximum number of images to find
+   * @param Consumer<ArrayList<Path>> callback Function that receives the paths of the images on the event dispatch thread
    */
-  public void selectNext() {
-    if (this.selected == null)
+  public void findUpcomingImages(Path from, int max, final Consumer<ArrayList<Path>> callback) {
+    if (!this.searchIndex.isBuilt())
       return;
 
-    ListItem next = this.selected.getNext();
-    selectItem(next);
-    this.parent.repaint();
+    this.searchIndex.upcomingIncompleteLater(from, max, new Consumer<ArrayList<Path>>() {
+      @Override
+      public void accept(final ArrayList<Path> upcoming) {
+        SwingUtilities.invokeLater(new Runnable() {
+          @Override
+          public void run() {
+            callback.accept(upcoming);
+          }
+        });
+      }
+    });
   }
 
   /**
-   * Selects the item displayed under the mouse when the mouse is pressed
+   * Moves the scroll bar, and with it the list, so that the row at the given index is the first displayed
+   * @param int idx Index in the model to scroll to
+   */
+  public void scrollToIndex(int idx) {
+    if (this.bar != null && isScrollable())
+      this.bar.setListFrac(((float)idx)/rowCount());
+  }
+
+  /**
+   * Finds the row currently displayed at a given y coordinate value
+   * @param  int pos           Y coordinate value to find the row at
+   * @return     Returns the index of the row displayed at the position if there is one and -1 otherwise
+   */
+  public int rowDisplayedAt(int pos) {
+    int offset = pos/ScrollList.ITEM_HEIGHT;
+    int idx = this.curStartIdx+offset;
+    if (pos >= 0 && offset < this.maxItems && idx < this.model.size())
+      return idx;
+    else
+      return -1;
+  }
+
+  /**
+   * Sets the selection to the given row
+   * @param int idx Index of the row to select (ignored if -1)
+   */
+  public void selectIndex(int idx) {
+    if (idx >= 0 && idx < this.model.size()) {
+      // Only the previously and newly selected rows need to be drawn again
+      repaintRow(this.selectedIdx);
+      this.selectedIdx = idx;
+      repaintRow(this.selectedIdx);
+      if (this.filmStrip != null)
+        this.filmStrip.showIndex(idx);
+    }
+  }
+
+  /**
+   * Repaints a single row of the list if it is currently displayed
+   * @param int idx Index in the model of the row to repaint
+   */
+  public void repaintRow(int idx) {
+    int offset = idx-this.curStartIdx;
+    if (idx >= 0 && offset >= 0 && offset < this.maxItems)
+      repaint(0, offset*ScrollList.ITEM_HEIGHT, this.width+1, ScrollList.ITEM_HEIGHT+1);
+  }
+
+  /**
+   * Selects the row displayed under the mouse when the mouse is pressed
    * @param MouseEvent e Current mouse event
    */
   public void mousePressed(MouseEvent e) {
-    ListItem select = itemDisplayedAt(e.getY());
-    if (select != null) {
-      selectItem(select);
+    int select = rowDisplayedAt(e.getY());
+    if (select >= 0) {
+      selectIndex(select);
     }
   }
 
@@ -414,17 +1175,25 @@ public class ScrollList extends JComponent implements MouseListener {
    */
   public void mouseClicked(MouseEvent e) {
     if (e.getClickCount() == 2) {
-      ListItem selected = itemDisplayedAt(e.getY());
-      if (selected != null) {
-        selectItem(selected);
-        if (selected.isDirectory())
-          setDir(selected.getPath());
-        else
-          this.parent.triggerImgOpen(selected);
-      }
+      int idx = rowDisplayedAt(e.getY());
+      if (idx >= 0)
+        openIndex(idx);
     }
   }
 
+  /**
+   * Selects the row at the given index and enters it if it is a directory, or opens it if it is an image
+   * @param int idx Index of the row to open
+   */
+  public void openIndex(int idx) {
+    selectIndex(idx);
+    ListItem selected = getSelected();
+    if (selected.isDirectory())
+      setDir(selected.getPath());
+    else
+      this.parent.triggerImgOpen(selected);
+  }
+
   public void mouseReleased(MouseEvent e) {
   }
 
@@ -440,39 +1209,87 @@ public class ScrollList extends JComponent implements MouseListener {
    */
   public void setBar(ScrollBar bar) {
     this.bar = bar;
-    if (this.items.size() > this.maxItems)
-      this.bar.setHeightRatio(((float)this.displayedItems.size())/this.items.size());
+    if (isScrollable())
+      this.bar.setHeightRatio(((float)this.maxItems)/rowCount());
+  }
+
+  /**
+   * Attaches a film strip that shows the rows of the list with thumbnails
+   * @param FilmStrip strip Film strip to attach
+   */
+  public void setFilmStrip(FilmStrip strip) {
+    this.filmStrip = strip;
+    this.filmStrip.setList(this);
+  }
+
+  /**
+   * Returns the model holding the rows of the current directory
+   * @return Model of the list
+   */
+  public ExplorerModel getModel() {
+    return this.model;
+  }
+
+  /**
+   * Returns the index of the selected row
+   * @return Index in the model of the selected row (-1 if none)
+   */
+  public int getSelectedIndex() {
+    return this.selectedIdx;
   }
 
   /**
-   * Returns the currently selected list item
-   * @return Currently selected item
+   * Returns a handle to the currently selected row
+   * @return Currently selected item or null if nothing is selected
    */
   public ListItem getSelected() {
-    return this.selected;
+    if (this.selectedIdx < 0)
+      return null;
+    return new ListItem(getPath(this.selectedIdx), this.model.getName(this.selectedIdx),
+        this.model.isDirectory(this.selectedIdx), this.model.isCompleted(this.selectedIdx));
   }
 
   public String toString() {
-    String string = new String();
-    for (ListItem item : this.items)
-      string += item.toString() + "\n";
-    return string;
+    StringBuilder string = new StringBuilder();
+    for (int i=0; i < this.model.size(); i++)
+      string.append(String.format("%s at %s -- is dir: %b", this.model.getName(i), getPath(i),
+          this.model.isDirectory(i))).append("\n");
+    return string.toString();
   }
 
   @Override
   public void paintComponent(Graphics g) {
-    ListIterator<ListItem> itr = this.displayedItems.listIterator();
-    g.setColor(new Color(255, 255, 255));
+    g.setColor(Palette.BACKGROUND);
     g.fillRect(0, 0, this.width, this.height);
 
-    for (int i=0; i < this.displayedItems.size(); i++) {
-      ListItem next = itr.next();
-      int rectY = i*ScrollList.ITEM_HEIGHT;
-      next.setDimensions(0, rectY, this.width, ScrollList.ITEM_HEIGHT);
-      next.paintComponent(g);
+    // Only the rows within the area being repainted are drawn
+    int firstRow = 0;
+    int lastRow = this.maxItems;
+    Rectangle clip = g.getClipBounds();
+    if (clip != null) {
+      firstRow = Math.max(0, clip.y/ScrollList.ITEM_HEIGHT);
+      lastRow = Math.min(this.maxItems, (clip.y+clip.height)/ScrollList.ITEM_HEIGHT+1);
+    }
+
+    // Finds the name of the opened image once instead of building the path of every displayed row
+    Path openPath = this.imgEditor.getOpenedPath();
+    String openName = null;
+    if (openPath != null && this.curDir.equals(openPath.getParent()))
+      openName = openPath.getFileName().toString();
+
+    int endIdx = Math.min(this.curStartIdx+lastRow, this.model.size());
+    // Rows that have not been added yet are drawn as placeholders until their page arrives
+    int placeholderEnd = Math.min(this.curStartIdx+lastRow, rowCount());
+    for (int i=Math.max(endIdx, this.curStartIdx+firstRow); i < placeholderEnd; i++)
+      this.painter.paintPlaceholder(g, 0, (i-this.curStartIdx)*ScrollList.ITEM_HEIGHT, this.width, ScrollList.ITEM_HEIGHT);
+    for (int i=this.curStartIdx+firstRow; i < endIdx; i++) {
+      int rectY = (i-this.curStartIdx)*ScrollList.ITEM_HEIGHT;
+      boolean open = openName != null && !this.model.isDirectory(i) && openName.equals(this.model.getName(i));
+      this.painter.paintItem(g, this.model, i, 0, rectY, this.width, ScrollList.ITEM_HEIGHT,
+          i == this.selectedIdx, open);
     }
 
-    g.setColor(new Color(0, 0, 0));
+    g.setColor(Palette.BORDER);
     g.drawRect(0, 0, this.width, this.height);
   }
 
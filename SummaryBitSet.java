@@ -0,0 +1,127 @@
+/**
+ * Class to represent a fixed size set of bits that can find the next set bit in logarithmic time.
+ * The bits are stored in layers, where each bit of a layer is set if the matching word of the layer
+ * below it has any bits set, so finding the next set bit only ever looks at one word per layer going up and down
+ */
+public class SummaryBitSet {
+
+  private long[][] layers;  // Words of each layer, with the bits themselves in the first layer
+  private int size;         // Number of bits in the set
+
+  /**
+   * Initializes a set with every bit cleared
+   * @param  int bits          Number of bits in the set
+   */
+  public SummaryBitSet(int bits) {
+    this.size = bits;
+    // Adds layers until the top layer fits into a single word
+    int layerNum = 1;
+    for (int words = wordsFor(bits); words > 1; words = wordsFor(words))
+      layerNum++;
+    this.layers = new long[layerNum][];
+    int length = bits;
+    for (int i=0; i < layerNum; i++) {
+      this.layers[i] = new long[Math.max(1, wordsFor(length))];
+      length = this.layers[i].length;
+    }
+  }
+
+  /**
+   * Returns the number of words needed to hold the given number of bits
+   * @param  int bits          Number of bits
+   * @return     Number of words
+   */
+  private static int wordsFor(int bits) {
+    return (bits+63) >>> 6;
+  }
+
+  /**
+   * Returns the number of bits in the set
+   * @return Number of bits
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Returns whether or not the bit is set
+   * @param  int idx           Index of the bit
+   * @return     Whether or not the bit is set
+   */
+  public boolean get(int idx) {
+    return (this.layers[0][idx >>> 6] & (1L << (idx & 63))) != 0;
+  }
+
+  /**
+   * Sets or clears the bit
+   * @param int     idx Index of the bit
+   * @param boolean on  Whether to set or clear the bit
+   */
+  public void set(int idx, boolean on) {
+    if (on)
+      set(idx);
+    else
+      clear(idx);
+  }
+
+  /**
+   * Sets the bit and marks its word in each layer above it
+   * @param int idx Index of the bit
+   */
+  public void set(int idx) {
+    for (int layer=0; layer < this.layers.length; layer++) {
+      int word = idx >>> 6;
+      boolean wasEmpty = this.layers[layer][word] == 0;
+      this.layers[layer][word] |= 1L << (idx & 63);
+      // The layers above already know about a word that had bits set
+      if (!wasEmpty)
+        return;
+      idx = word;
+    }
+  }
+
+  /**
+   * Clears the bit and unmarks its word in each layer above it once the word is empty
+   * @param int idx Index of the bit
+   */
+  public void clear(int idx) {
+    for (int layer=0; layer < this.layers.length; layer++) {
+      int word = idx >>> 6;
+      this.layers[layer][word] &= ~(1L << (idx & 63));
+      if (this.layers[layer][word] != 0)
+        return;
+      idx = word;
+    }
+  }
+
+  /**
+   * Finds the first set bit at or after the given index
+   * @param  int from          Index to start from
+   * @return     Index of the next set bit or -1 if there is none
+   */
+  public int nextSetBit(int from) {
+    if (from >= this.size)
+      return -1;
+    int idx = Math.max(0, from);
+    int layer = 0;
+    while (layer < this.layers.length) {
+      int word = idx >>> 6;
+      if (word >= this.layers[layer].length)
+        return -1;
+      long bits = this.layers[layer][word] & (-1L << (idx & 63));
+      if (bits != 0) {
+        // Goes back down through the first set bit of each layer
+        idx = (word << 6) + Long.numberOfTrailingZeros(bits);
+        while (layer > 0) {
+          layer--;
+          idx = (idx << 6) + Long.numberOfTrailingZeros(this.layers[layer][idx]);
+        }
+        return idx;
+      }
+      // Nothing is left in this word, so the search continues from the next word one layer up
+      idx = word+1;
+      layer++;
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,108 @@
+import java.awt.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class that remembers the font each text was shrunk to in order to fit within a width, along with the measurements
+ * needed to place it, so text only has to be fitted again when it or its width changes instead of on every repaint.
+ * The least recently drawn texts are dropped once the cache is full, and the whole cache is dropped if the font it was
+ * fitted from changes. Should only be used from the event dispatch thread
+ */
+public class TextFitCache {
+
+  private LinkedHashMap<String, FittedText> fits;   // Fitted text by the text itself, in the order they were last used
+  private Font baseFont;                            // Font that every cached text was fitted from
+
+  /**
+   * Class to represent a text fitted within a width
+   */
+  public static class FittedText {
+
+    private int maxWidth;         // Width the text was fitted within
+    private Font font;            // Font of the fitted text
+    private int width;            // Width of the text in the fitted font
+    private int ascent;           // Ascent of the fitted font
+    private int height;           // Line height of the fitted font
+
+    /**
+     * Returns the font the text fits within the width with
+     * @return Fitted font
+     */
+    public Font getFont() {
+      return this.font;
+    }
+
+    /**
+     * Returns the width of the text in the fitted font
+     * @return Width of the text
+     */
+    public int getWidth() {
+      return this.width;
+    }
+
+    /**
+     * Returns the offset of the baseline that vertically centers the text within a box
+     * @param  int boxHeight     Height of the box
+     * @return     Offset of the baseline from the top of the box
+     */
+    public int getBaseline(int boxHeight) {
+      return ((boxHeight - this.height)/2) + this.ascent;
+    }
+  }
+
+  /**
+   * Initializes an empty cache
+   * @param  int maxEntries    Maximum number of texts to remember
+   */
+  public TextFitCache(final int maxEntries) {
+    this.fits = new LinkedHashMap<String, FittedText>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, FittedText> eldest) {
+        return size() > maxEntries;
+      }
+    };
+    this.baseFont = null;
+  }
+
+  /**
+   * Returns the text fitted within the width, shrinking the font of the graphics by a quarter at a time until it fits
+   * @param  Graphics   g             Graphics the text will be drawn with
+   * @param  String     text          Text to fit
+   * @param  int        maxWidth      Width the text has to fit within
+   * @return            Fitted text
+   */
+  public FittedText fit(Graphics g, String text, int maxWidth) {
+    Font orgFont = g.getFont();
+    if (!orgFont.equals(this.baseFont)) {
+      this.fits.clear();
+      this.baseFont = orgFont;
+    }
+    FittedText fitted = this.fits.get(text);
+    if (fitted != null && fitted.maxWidth == maxWidth)
+      return fitted;
+
+    Font font = orgFont;
+    FontMetrics metrics = g.getFontMetrics(font);
+    while (metrics.stringWidth(text) > maxWidth && font.getSize() > 1) {
+      font = font.deriveFont((float)(int)(font.getSize()*(3.0/4)));
+      metrics = g.getFontMetrics(font);
+    }
+    if (fitted == null) {
+      fitted = new FittedText();
+      this.fits.put(text, fitted);
+    }
+    fitted.maxWidth = maxWidth;
+    fitted.font = font;
+    fitted.width = metrics.stringWidth(text);
+    fitted.ascent = metrics.getAscent();
+    fitted.height = metrics.getHeight();
+    return fitted;
+  }
+
+  /**
+   * Forgets every fitted text
+   */
+  public void clear() {
+    this.fits.clear();
+  }
+}
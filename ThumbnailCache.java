@@ -0,0 +1,375 @@
+import javax.imageio.ImageIO;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import javax.swing.SwingUtilities;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Class that makes small previews of images and keeps them in a single pack file next to the saves folder,
+ * so each image is only decoded for its thumbnail once. Every thumbnail is stored as a JPEG record keyed by a hash
+ * of the image's path, size and modification time, so a changed image simply gets a new record.
+ * The pack is only ever appended to, and the offset of every record is indexed in memory when the cache is opened.
+ * Records are read from a memory mapping of the pack, and the most recently drawn thumbnails are also kept decoded.
+ * Thumbnails are made or read on a pool of background threads, and requests for thumbnails that are no longer
+ * visible by the time their turn comes are skipped, so scrolling quickly through a large directory stays cheap.
+ * The pack is guarded by its own lock, so drawing the strip on the event dispatch thread only ever waits for
+ * the decoded thumbnails and never for the pack to be indexed, read or written
+ */
+public class ThumbnailCache {
+
+  private Path packFile;                          // File the thumbnails are stored in
+  private final Object packLock;                  // Lock held while the pack, its mappings and its offsets are used
+  private FileChannel channel;                    // Channel of the pack file (null if it is closed or could not be opened)
+  private boolean opened;                         // Whether or not the pack file has been opened and indexed
+  private ArrayList<MappedByteBuffer> segments;   // Memory mappings of the pack, each covering SEGMENT_SIZE bytes
+  private long mappedSize;                        // Number of bytes of the pack covered by the mappings
+  private long packSize;                          // Number of bytes of complete records in the pack
+  private HashMap<Long, Long> offsets;            // Offset of the record of each thumbnail by key
+  private LinkedHashMap<Path, BufferedImage> decoded;  // Decoded thumbnails, from least to most recently drawn
+  private HashSet<Path> wanted;                   // Paths of the thumbnails that were visible when last drawn
+  private HashSet<Path> pending;                  // Paths of the thumbnails waiting to be read or made
+  private HashMap<Path, Long> failed;             // Modification time of each image that could not be decoded when it was tried
+  private ExecutorService pool;                   // Threads that read and make the thumbnails
+  public static final String PACK_FILE_NAME = "thumbnails.pack";  // Name of the pack file
+  public static final int THUMB_SIZE = 128;       // Largest width and height of a thumbnail
+  public static final int DECODED_THUMBS = 512;   // Number of decoded thumbnails kept in memory
+  public static final long SEGMENT_SIZE = 1L << 30;  // Number of bytes covered by each memory mapping of the pack
+  private static final int HEADER_BYTES = 12;     // Number of bytes before the data of each record (key and length)
+
+  /**
+   * Initializes the cache with its pack file next to the given save directory. The pack is indexed once the first thumbnail is needed
+   * @param  Path savePath      Path of the save directory
+   */
+  public ThumbnailCache(Path savePath) {
+    this.packFile = savePath.resolveSibling(ThumbnailCache.PACK_FILE_NAME);
+    this.packLock = new Object();
+    this.channel = null;
+    this.opened = false;
+    this.segments = new ArrayList<MappedByteBuffer>();
+    this.mappedSize = 0;
+    this.packSize = 0;
+    this.offsets = new HashMap<Long, Long>();
+    this.decoded = new LinkedHashMap<Path, BufferedImage>(16, 0.75f, true);
+    this.wanted = new HashSet<Path>();
+    this.pending = new HashSet<Path>();
+    this.failed = new HashMap<Path, Long>();
+    int threads = Integer.getInteger(ImagePrefetcher.THREADS_PROPERTY,
+        Math.max(1, Runtime.getRuntime().availableProcessors()/2));
+    this.pool = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "FrameIt thumbnail maker");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.NORM_PRIORITY-1);
+        return thread;
+      }
+    });
+  }
+
+  /**
+   * Opens the pack file and indexes the offset of every complete record, cutting off a record left incomplete.
+   * The pack is only opened once, by the first thumbnail that is read or made. Should only be called with the pack lock held
+   */
+  private void open() {
+    if (this.opened)
+      return;
+    this.opened = true;
+    try {
+      this.channel = FileChannel.open(this.packFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      long size = this.channel.size();
+      remap(size);
+      long offset = 0;
+      ByteBuffer header = ByteBuffer.allocate(ThumbnailCache.HEADER_BYTES);
+      while (offset+ThumbnailCache.HEADER_BYTES <= size) {
+        header.clear();
+        read(offset, header);
+        long key = header.getLong(0);
+        int length = header.getInt(8);
+        if (length < 0 || offset+ThumbnailCache.HEADER_BYTES+length > size)
+          break;
+        this.offsets.put(key, offset);
+        offset += ThumbnailCache.HEADER_BYTES+length;
+      }
+      // A record cut off when the program was closed is written over
+      if (offset < size) {
+        this.channel.truncate(offset);
+        this.segments.clear();
+        this.mappedSize = 0;
+        remap(offset);
+      }
+      this.packSize = offset;
+    } catch (Exception e) {
+      System.out.println("Error when opening thumbnail cache! " + e);
+      this.channel = null;
+    }
+  }
+
+  /**
+   * Maps the pack up to the given size, reusing the mappings of every full segment
+   * @param long size Number of bytes of the pack to map
+   */
+  private void remap(long size) throws IOException {
+    int full = (int)(this.mappedSize/ThumbnailCache.SEGMENT_SIZE);
+    // The last segment is mapped again since it was not full
+    while (this.segments.size() > full)
+      this.segments.remove(this.segments.size()-1);
+    for (long start = full*ThumbnailCache.SEGMENT_SIZE; start < size; start += ThumbnailCache.SEGMENT_SIZE)
+      this.segments.add(this.channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(ThumbnailCache.SEGMENT_SIZE, size-start)));
+    this.mappedSize = size;
+  }
+
+  /**
+   * Fills the buffer with the bytes of the pack at the given offset, from the mappings where they are mapped
+   * @param long       offset Offset in the pack to read from
+   * @param ByteBuffer buffer Buffer to fill
+   */
+  private void read(long offset, ByteBuffer buffer) throws IOException {
+    if (offset+buffer.remaining() > this.mappedSize)
+      remap(this.channel.size());
+    while (buffer.hasRemaining()) {
+      MappedByteBuffer segment = this.segments.get((int)(offset/ThumbnailCache.SEGMENT_SIZE));
+      int start = (int)(offset%ThumbnailCache.SEGMENT_SIZE);
+      int count = Math.min(buffer.remaining(), segment.limit()-start);
+      // Read through a duplicate, so the position and limit of the shared mapping never change
+      ByteBuffer view = segment.duplicate();
+      view.position(start);
+      view.limit(start+count);
+      buffer.put(view);
+      offset += count;
+    }
+    buffer.flip();
+  }
+
+  /**
+   * Returns the key of the thumbnail of an image, which changes whenever the image is changed
+   * @param  Path                path          Path of the image
+   * @param  BasicFileAttributes attrs         Attributes of the image file
+   * @return                     Key of the thumbnail
+   */
+  public static long thumbnailKey(Path path, BasicFileAttributes attrs) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      digest.update(path.toAbsolutePath().toString().getBytes(StandardCharsets.UTF_8));
+      digest.update(ByteBuffer.allocate(16).putLong(attrs.size()).putLong(attrs.lastModifiedTime().toMillis()).array());
+      return ByteBuffer.wrap(digest.digest()).getLong();
+    } catch (Exception e) {
+      System.out.println("Error when hashing thumbnail key! " + e);
+      return path.hashCode();
+    }
+  }
+
+  /**
+   * Returns the decoded thumbnail of an image if it is in memory, marking it as the most recently drawn
+   * @param  Path          path          Path of the image
+   * @return               Thumbnail or null if it has not been read or made yet
+   */
+  public synchronized BufferedImage get(Path path) {
+    return this.decoded.get(path);
+  }
+
+  /**
+   * Sets the images whose thumbnails are visible, so requests for any other thumbnail are skipped
+   * @param Collection<Path> visible Paths of the visible images
+   */
+  public synchronized void setWanted(Collection<Path> visible) {
+    this.wanted = new HashSet<Path>(visible);
+  }
+
+  /**
+   * Reads or makes the thumbnail of an image in the background unless it is already in memory or requested.
+   * Images that could not be decoded are not tried again until their file changes
+   * @param Path     path   Path of the image
+   * @param Runnable loaded Function run on the event dispatch thread once the thumbnail is in memory
+   */
+  public void request(final Path path, final Runnable loaded) {
+    Long failedAt;
+    synchronized (this) {
+      if (this.decoded.containsKey(path) || this.pending.contains(path))
+        return;
+      failedAt = this.failed.get(path);
+    }
+    // Only the images that failed are checked for changes, which are few
+    if (failedAt != null && failedAt == CompletionIndex.lastModified(path))
+      return;
+    Runnable task = new Runnable() {
+      @Override
+      public void run() {
+        synchronized (ThumbnailCache.this) {
+          if (!wanted.contains(path)) {
+            pending.remove(path);
+            return;
+          }
+        }
+        long modified = CompletionIndex.lastModified(path);
+        BufferedImage thumb = load(path);
+        synchronized (ThumbnailCache.this) {
+          pending.remove(path);
+          if (thumb == null) {
+            failed.put(path, modified);
+            return;
+          }
+          decoded.put(path, thumb);
+          if (decoded.size() > ThumbnailCache.DECODED_THUMBS)
+            decoded.remove(decoded.keySet().iterator().next());
+        }
+        SwingUtilities.invokeLater(loaded);
+      }
+    };
+    synchronized (this) {
+      // Nothing is made once the cache is closed
+      if (this.pool.isShutdown() || !this.pending.add(path))
+        return;
+      this.failed.remove(path);
+      this.pool.execute(task);
+    }
+  }
+
+  /**
+   * Reads the thumbnail of an image from the pack, or makes it and adds it to the pack if it is not there
+   * @param  Path          path          Path of the image
+   * @return               Thumbnail or null if the image could not be decoded
+   */
+  private BufferedImage load(Path path) {
+    try {
+      long key = ThumbnailCache.thumbnailKey(path, Files.readAttributes(path, BasicFileAttributes.class));
+      byte[] data = readRecord(key);
+      if (data != null)
+        return CompatibleImages.toCompatible(ImageIO.read(new MemoryCacheImageInputStream(new ByteArrayInputStream(data))));
+
+      BufferedImage thumb = ThumbnailCache.makeThumbnail(path);
+      if (thumb == null)
+        return null;
+      // A thumbnail that could not be stored is still shown, and is simply made again next time
+      try {
+        // The streams are kept in memory rather than cached in temporary files
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (MemoryCacheImageOutputStream stream = new MemoryCacheImageOutputStream(out)) {
+          ImageIO.write(thumb, "jpg", stream);
+        }
+        writeRecord(key, out.toByteArray());
+      } catch (Exception e) {
+        System.out.println("Error when storing thumbnail! " + e);
+      }
+      return CompatibleImages.toCompatible(thumb);
+    } catch (Exception e) {
+      System.out.println("Error when loading thumbnail! " + e);
+      return null;
+    }
+  }
+
+  /**
+   * Decodes an image at no more than the thumbnail size and scales it to fit within it
+   * @param  Path          path          Path of the image
+   * @return               Opaque thumbnail or null if the image could not be decoded
+   */
+  public static BufferedImage makeThumbnail(Path path) throws Exception {
+    ImageDecoder.DecodedImage decoded = ImageDecoder.decode(path, ThumbnailCache.THUMB_SIZE, ThumbnailCache.THUMB_SIZE);
+    if (decoded == null)
+      return null;
+    BufferedImage img = decoded.getImage();
+    float scale = Math.min(1, Math.min(((float)ThumbnailCache.THUMB_SIZE)/img.getWidth(), ((float)ThumbnailCache.THUMB_SIZE)/img.getHeight()));
+    BufferedImage scaled = Resampler.resize(img, Math.round(img.getWidth()*scale), Math.round(img.getHeight()*scale));
+    // JPEG has no alpha, so the thumbnail is always flattened to plain RGB
+    BufferedImage thumb = new BufferedImage(scaled.getWidth(), scaled.getHeight(), BufferedImage.TYPE_INT_RGB);
+    Graphics2D g2d = thumb.createGraphics();
+    g2d.drawImage(scaled, 0, 0, Color.WHITE, null);
+    g2d.dispose();
+    return thumb;
+  }
+
+  /**
+   * Reads the data of a record from the pack
+   * @param  long   key           Key of the thumbnail
+   * @return        Encoded thumbnail or null if it is not in the pack
+   */
+  private byte[] readRecord(long key) throws IOException {
+    synchronized (this.packLock) {
+      open();
+      Long offset = this.offsets.get(key);
+      if (offset == null || this.channel == null)
+        return null;
+      ByteBuffer header = ByteBuffer.allocate(ThumbnailCache.HEADER_BYTES);
+      read(offset, header);
+      ByteBuffer data = ByteBuffer.allocate(header.getInt(8));
+      read(offset+ThumbnailCache.HEADER_BYTES, data);
+      return data.array();
+    }
+  }
+
+  /**
+   * Appends a record to the end of the pack and indexes it
+   * @param long   key  Key of the thumbnail
+   * @param byte[] data Encoded thumbnail
+   */
+  private void writeRecord(long key, byte[] data) throws IOException {
+    ByteBuffer record = ByteBuffer.allocate(ThumbnailCache.HEADER_BYTES+data.length);
+    record.putLong(key).putInt(data.length).put(data).flip();
+    synchronized (this.packLock) {
+      open();
+      if (this.channel == null || this.offsets.containsKey(key))
+        return;
+      long offset = this.packSize;
+      while (record.hasRemaining())
+        offset += this.channel.write(record, offset);
+      this.offsets.put(key, this.packSize);
+      this.packSize = offset;
+    }
+  }
+
+  /**
+   * Returns the number of thumbnails in the pack
+   * @return Number of records
+   */
+  public int size() {
+    synchronized (this.packLock) {
+      return this.offsets.size();
+    }
+  }
+
+  /**
+   * Stops making thumbnails and closes the pack file once the record being written, if any, is complete.
+   * Thumbnails requested afterwards are never made
+   */
+  public void close() {
+    synchronized (this) {
+      this.decoded.clear();
+      this.wanted = new HashSet<Path>();
+      // Requests still queued find nothing wanted and are skipped
+      this.pool.shutdown();
+    }
+    synchronized (this.packLock) {
+      try {
+        if (this.channel != null)
+          this.channel.close();
+      } catch (Exception e) {
+        System.out.println("Error when closing thumbnail cache! " + e);
+      }
+      this.channel = null;
+      this.opened = true;
+      this.segments.clear();
+      this.mappedSize = 0;
+    }
+  }
+}
@@ -0,0 +1,238 @@
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.swing.SwingUtilities;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Class that shows a zoomed in part of a large image by decoding only the tiles of it that are visible.
+ * Each level of the pyramid decodes every 2^level-th pixel of the image, and the level is chosen so that a decoded
+ * pixel is never shown smaller than a screen pixel. Tiles are decoded from their region of the image file in the
+ * background, one at a time on a single reader, and kept in a cache limited by memory. Tiles that are no longer
+ * visible by the time their turn comes are skipped, so panning quickly does not decode every tile passed over
+ */
+public class TilePyramid {
+
+  private Path imgPath;                   // Path of the image
+  private int orgWidth;                   // Width of the full image
+  private int orgHeight;                  // Height of the full image
+  private ExecutorService worker;         // Thread that decodes the tiles
+  private Runnable onTileLoaded;          // Function run on the event dispatch thread after each tile is decoded
+  private ImageReader reader;             // Reader of the image file, only used on the worker thread
+  private ImageInputStream input;         // Stream of the image file read by the reader
+  private LinkedHashMap<Long, BufferedImage> tiles;  // Decoded tiles by key, from least to most recently drawn
+  private long tileBytes;                 // Number of bytes held by the decoded tiles
+  private long budget;                    // Maximum number of bytes of decoded tiles to keep
+  private HashSet<Long> wanted;           // Keys of the tiles that were visible when last painted
+  private HashSet<Long> pending;          // Keys of the tiles waiting to be decoded
+  private boolean closed;                 // Whether or not the pyramid has been closed
+  public static final int TILE_SIZE = 512;  // Width and height of each tile in decoded pixels
+  public static final String BUDGET_PROPERTY = "frameit.tiles.bytes";  // System property to set the tile cache budget in bytes
+  public static final long DEFAULT_BUDGET = 64L*1024*1024;             // Default tile cache budget in bytes
+
+  /**
+   * Initializes an empty pyramid for the image
+   * @param  Path            path          Path of the image
+   * @param  int             w             Width of the full image
+   * @param  int             h             Height of the full image
+   * @param  ExecutorService tileWorker    Single thread to decode the tiles on
+   * @param  Runnable        loaded        Function run on the event dispatch thread after each tile is decoded
+   */
+  public TilePyramid(Path path, int w, int h, ExecutorService tileWorker, Runnable loaded) {
+    this.imgPath = path;
+    this.orgWidth = w;
+    this.orgHeight = h;
+    this.worker = tileWorker;
+    this.onTileLoaded = loaded;
+    this.reader = null;
+    this.input = null;
+    this.tiles = new LinkedHashMap<Long, BufferedImage>(16, 0.75f, true);
+    this.tileBytes = 0;
+    this.budget = Long.getLong(TilePyramid.BUDGET_PROPERTY, TilePyramid.DEFAULT_BUDGET);
+    this.wanted = new HashSet<Long>();
+    this.pending = new HashSet<Long>();
+    this.closed = false;
+  }
+
+  /**
+   * Returns the level whose decoded pixels are at least as dense as the pixels shown at the given scale
+   * @param  float scale         Number of screen pixels for each pixel of the full image
+   * @return       Level of the pyramid, where level n decodes every 2^n-th pixel
+   */
+  public static int levelFor(float scale) {
+    int level = 0;
+    while (level < 30 && (1 << (level+1))*scale <= 1)
+      level++;
+    return level;
+  }
+
+  /**
+   * Returns the key of a tile
+   * @param  int  level         Level of the tile
+   * @param  int  col           Column of the tile
+   * @param  int  row           Row of the tile
+   * @return      Key of the tile
+   */
+  private static long tileKey(int level, int col, int row) {
+    return (((long)level) << 56) | (((long)row) << 28) | col;
+  }
+
+  /**
+   * Draws every decoded tile that is visible and requests the visible tiles that have not been decoded yet
+   * @param Graphics2D g2d     Graphics to draw with
+   * @param float      scale   Number of screen pixels for each pixel of the full image
+   * @param int        originX Screen X coordinate of the left edge of the full image
+   * @param int        originY Screen Y coordinate of the top edge of the full image
+   * @param int        viewW   Width of the visible area
+   * @param int        viewH   Height of the visible area
+   */
+  public void paint(Graphics2D g2d, float scale, int originX, int originY, int viewW, int viewH) {
+    int level = TilePyramid.levelFor(scale);
+    int tileSrc = TilePyramid.TILE_SIZE << level;   // Size of each tile in pixels of the full image
+
+    // Pixels of the full image that are visible
+    int x0 = Math.max(0, (int)Math.floor(-originX/scale));
+    int y0 = Math.max(0, (int)Math.floor(-originY/scale));
+    int x1 = Math.min(this.orgWidth, (int)Math.ceil((viewW-originX)/scale));
+    int y1 = Math.min(this.orgHeight, (int)Math.ceil((viewH-originY)/scale));
+    if (x0 >= x1 || y0 >= y1)
+      return;
+
+    HashSet<Long> visible = new HashSet<Long>();
+    for (int row = y0/tileSrc; row <= (y1-1)/tileSrc; row++) {
+      for (int col = x0/tileSrc; col <= (x1-1)/tileSrc; col++) {
+        long key = TilePyramid.tileKey(level, col, row);
+        visible.add(key);
+        BufferedImage tile;
+        synchronized (this) {
+          tile = this.tiles.get(key);
+        }
+        if (tile == null)
+          continue;
+        // Both edges of the tile are rounded the same way so neighbouring tiles never leave a gap
+        int srcX = col*tileSrc;
+        int srcY = row*tileSrc;
+        int dx1 = originX + Math.round(srcX*scale);
+        int dy1 = originY + Math.round(srcY*scale);
+        int dx2 = originX + Math.round(Math.min(this.orgWidth, srcX+tileSrc)*scale);
+        int dy2 = originY + Math.round(Math.min(this.orgHeight, srcY+tileSrc)*scale);
+        g2d.drawImage(tile, dx1, dy1, dx2-dx1, dy2-dy1, null);
+      }
+    }
+
+    synchronized (this) {
+      this.wanted = visible;
+      for (Long key : visible) {
+        if (!this.tiles.containsKey(key) && this.pending.add(key))
+          requestTile(key, level, tileSrc);
+      }
+    }
+  }
+
+  /**
+   * Decodes a tile in the background unless it is no longer visible by the time its turn comes
+   * @param long key     Key of the tile
+   * @param int  level   Level of the tile
+   * @param int  tileSrc Size of the tile in pixels of the full image
+   */
+  private void requestTile(final long key, final int level, final int tileSrc) {
+    this.worker.execute(new Runnable() {
+      @Override
+      public void run() {
+        synchronized (TilePyramid.this) {
+          if (closed || !wanted.contains(key)) {
+            pending.remove(key);
+            return;
+          }
+        }
+        int col = (int)(key & 0xFFFFFFFL);
+        int row = (int)((key >>> 28) & 0xFFFFFFFL);
+        BufferedImage tile = decodeTile(level, new Rectangle(col*tileSrc, row*tileSrc,
+            Math.min(tileSrc, orgWidth-col*tileSrc), Math.min(tileSrc, orgHeight-row*tileSrc)));
+        synchronized (TilePyramid.this) {
+          pending.remove(key);
+          if (tile == null || closed)
+            return;
+          addTile(key, tile);
+        }
+        SwingUtilities.invokeLater(onTileLoaded);
+      }
+    });
+  }
+
+  /**
+   * Decodes a region of the image at the given level. Should only be called from the worker thread
+   * @param  int           level         Level to decode at
+   * @param  Rectangle     region        Region of the full image to decode
+   * @return               Decoded tile or null if it could not be decoded
+   */
+  private BufferedImage decodeTile(int level, Rectangle region) {
+    try {
+      if (this.reader == null) {
+        this.input = MappedImageInputStream.open(this.imgPath);
+        Iterator<ImageReader> readers = this.input == null ? null : ImageIO.getImageReaders(this.input);
+        if (readers == null || !readers.hasNext())
+          return null;
+        this.reader = readers.next();
+        // The reader has to be able to seek back, since every tile reads the image again
+        this.reader.setInput(this.input, false, true);
+      }
+      ImageReadParam param = this.reader.getDefaultReadParam();
+      param.setSourceRegion(region);
+      param.setSourceSubsampling(1 << level, 1 << level, 0, 0);
+      return CompatibleImages.toCompatible(this.reader.read(0, param));
+    } catch (Exception e) {
+      System.out.println("Error when decoding image tile! " + e);
+      return null;
+    }
+  }
+
+  /**
+   * Adds a decoded tile, dropping the least recently drawn tiles until it fits within the budget
+   * @param long          key  Key of the tile
+   * @param BufferedImage tile Decoded tile
+   */
+  private void addTile(long key, BufferedImage tile) {
+    long bytes = DecodedImageCache.rasterBytes(tile);
+    Iterator<Map.Entry<Long, BufferedImage>> itr = this.tiles.entrySet().iterator();
+    while (this.tileBytes+bytes > this.budget && itr.hasNext()) {
+      this.tileBytes -= DecodedImageCache.rasterBytes(itr.next().getValue());
+      itr.remove();
+    }
+    this.tiles.put(key, tile);
+    this.tileBytes += bytes;
+  }
+
+  /**
+   * Drops every tile and closes the image file once the tiles already being decoded are done
+   */
+  public void close() {
+    synchronized (this) {
+      this.closed = true;
+      this.tiles.clear();
+      this.tileBytes = 0;
+      this.wanted = new HashSet<Long>();
+    }
+    this.worker.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          if (reader != null)
+            reader.dispose();
+          if (input != null)
+            input.close();
+        } catch (Exception e) {
+          System.out.println("Error when closing image tiles! " + e);
+        }
+      }
+    });
+  }
+}